@@ -3,9 +3,11 @@ package com.example.dms.api.controllers;
 import com.example.dms.api.dtos.administration.GrantDTO;
 import com.example.dms.api.dtos.administration.RolesPrivilegesDTO;
 import com.example.dms.services.AdministrationService;
+import com.example.dms.services.TextExtractionService;
 import com.example.dms.utils.Privileges;
 import com.example.dms.utils.Roles;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,6 +20,7 @@ import java.util.List;
 public class AdministrationController {
 	
 	private final AdministrationService administrationService;
+	private final TextExtractionService textExtractionService;
 
 	@PostMapping("/documents/grant/{id}")
 	public List<GrantDTO> grantPermissionsDocuments(@RequestBody List<GrantDTO> grantDTOs, @PathVariable Integer id) {
@@ -44,4 +47,10 @@ public class AdministrationController {
 		return new RolesPrivilegesDTO(Roles.getAsString(), Privileges.getAsString());
 	}
 
+	@PostMapping("/text-extraction")
+	@ResponseStatus(HttpStatus.ACCEPTED)
+	public Integer requestTextExtraction(@RequestParam(defaultValue = "false") boolean all) {
+		return textExtractionService.requestAll(all);
+	}
+
 }
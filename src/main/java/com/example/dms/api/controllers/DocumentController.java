@@ -1,20 +1,32 @@
 package com.example.dms.api.controllers;
 
 import com.example.dms.api.dtos.SortDTO;
+import com.example.dms.api.dtos.content.NewUploadSessionDTO;
+import com.example.dms.api.dtos.content.UploadSessionDTO;
 import com.example.dms.api.dtos.document.*;
 import com.example.dms.services.ContentService;
+import com.example.dms.services.DocumentExportService;
 import com.example.dms.services.DocumentService;
+import com.example.dms.services.FullTextSearchService;
+import com.example.dms.services.UploadSessionService;
+import com.example.dms.utils.PageUtils;
 import com.example.dms.utils.exceptions.BadRequestException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -25,6 +37,9 @@ public class DocumentController {
 
 	private final DocumentService documentService;
 	private final ContentService contentService;
+	private final UploadSessionService uploadSessionService;
+	private final FullTextSearchService fullTextSearchService;
+	private final DocumentExportService documentExportService;
 
 	@PostMapping
 	@ResponseStatus(value = HttpStatus.CREATED)
@@ -33,8 +48,36 @@ public class DocumentController {
 	}
 
 	@GetMapping
-	public List<DmsDocumentDTO> getAllDocuments(@RequestParam(required = false) String search, SortDTO sort) {
-		return documentService.searchAll(search, sort);
+	public ResponseEntity<List<Map<String, Object>>> getAllDocuments(@RequestParam(required = false) String search,
+																	 SortDTO sort,
+																	 @RequestParam(required = false) String cursor,
+																	 @RequestParam(required = false) Integer size,
+																	 @RequestParam(required = false) List<String> fields) {
+		return PageUtils.toResponse(documentService.searchFields(search, sort, cursor, size, fields));
+	}
+
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exportDocuments(@RequestParam(required = false) String search,
+																 @RequestParam(required = false) List<String> fields) {
+		return documentExportService.exportDocuments(search, fields);
+	}
+
+	@GetMapping("/full-text")
+	public List<DmsDocumentDTO> fullTextSearch(@RequestParam String query, @RequestParam(required = false) Integer size) {
+		return fullTextSearchService.search(query, size);
+	}
+
+	@GetMapping("/facets")
+	public Map<String, List<FacetCountDTO>> getFacets(@RequestParam(required = false) String search,
+													  @RequestParam(required = false) List<String> facets,
+													  @RequestParam(required = false) Integer size) {
+		return documentService.getFacets(search, facets, size);
+	}
+
+	@GetMapping("/keywords")
+	public List<KeywordCountDTO> getKeywordCounts(@RequestParam(required = false) String prefix,
+												  @RequestParam(required = false) Integer size) {
+		return documentService.getKeywordCounts(prefix, size);
 	}
 
 	@PostMapping("/batch")
@@ -53,14 +96,47 @@ public class DocumentController {
 				file.getOriginalFilename());
 	}
 
+	@PostMapping("/upload/{id}/sessions")
+	@ResponseStatus(value = HttpStatus.CREATED)
+	public UploadSessionDTO createUploadSession(@PathVariable Integer id,
+												@Valid @RequestBody NewUploadSessionDTO newUploadSessionDTO) {
+		return uploadSessionService.createSession(id, newUploadSessionDTO);
+	}
+
+	@GetMapping("/upload/sessions/{sessionKey}")
+	public UploadSessionDTO getUploadSession(@PathVariable String sessionKey) {
+		return uploadSessionService.getSession(sessionKey);
+	}
+
+	@PutMapping("/upload/sessions/{sessionKey}/chunks/{chunkNumber}")
+	public UploadSessionDTO uploadChunk(@PathVariable String sessionKey, @PathVariable Integer chunkNumber,
+										@RequestHeader("X-Chunk-Checksum") String checksum,
+										HttpServletRequest request) throws IOException {
+		return uploadSessionService.uploadChunk(sessionKey, chunkNumber, checksum, request.getInputStream());
+	}
+
+	@PostMapping("/upload/sessions/{sessionKey}/commit")
+	public DocumentFileDTO commitUploadSession(@PathVariable String sessionKey) {
+		UploadSessionDTO session = uploadSessionService.commit(sessionKey);
+		String fileDownloadUri = ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/v1/documents/download/"
+				+ session.getDocumentId()).toUriString();
+		return new DocumentFileDTO(session.getDocumentId(), fileDownloadUri, session.getContentType(),
+				session.getTotalSize(), session.getOriginalFileName());
+	}
+
+	@DeleteMapping("/upload/sessions/{sessionKey}")
+	public void abortUploadSession(@PathVariable String sessionKey) {
+		uploadSessionService.abort(sessionKey);
+	}
+
 	@GetMapping("/{id}")
-	public DmsDocumentDTO getDocumentById(@PathVariable Integer id) {
-		return documentService.findById(id);
+	public ResponseEntity<DmsDocumentDTO> getDocumentById(@PathVariable Integer id, @RequestHeader HttpHeaders headers) {
+		return documentService.findById(id, headers);
 	}
 
 	@GetMapping("/download/{id}")
-	public ResponseEntity<byte[]> downloadDocumentContent(@PathVariable Integer id) {
-		return contentService.downloadContent(id);
+	public ResponseEntity<Resource> downloadDocumentContent(@PathVariable Integer id, @RequestHeader HttpHeaders headers) {
+		return contentService.downloadContent(id, headers);
 	}
 
 	@PutMapping("/{id}")
@@ -4,11 +4,16 @@ import com.example.dms.api.dtos.folder.DmsFolderDTO;
 import com.example.dms.api.dtos.folder.FolderTreeDTO;
 import com.example.dms.api.dtos.folder.NewFolderDTO;
 import com.example.dms.api.dtos.folder.UpdateFolderDTO;
+import com.example.dms.services.ArchiveService;
 import com.example.dms.services.FolderService;
+import com.example.dms.utils.HttpCacheUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -20,15 +25,26 @@ import java.util.List;
 public class FolderController {
 
 	private final FolderService folderService;
+	private final ArchiveService archiveService;
 
 	@GetMapping
-	public List<DmsFolderDTO> getAllFolders() {
-		return folderService.findAll();
+	public ResponseEntity<List<DmsFolderDTO>> getAllFolders(@RequestHeader HttpHeaders headers) {
+		String eTag = folderService.getListingETag();
+		if (HttpCacheUtils.isNotModified(headers, eTag, -1)) {
+			return notModified(eTag);
+		}
+		return ResponseEntity.ok().eTag(eTag).header(HttpHeaders.CACHE_CONTROL, HttpCacheUtils.revalidate())
+				.body(folderService.findAll());
 	}
 
 	@GetMapping("/tree")
-	public List<FolderTreeDTO> getFolderTreeDTO() {
-		return folderService.getFolderTreeNew();
+	public ResponseEntity<List<FolderTreeDTO>> getFolderTreeDTO(@RequestHeader HttpHeaders headers) {
+		String eTag = folderService.getListingETag();
+		if (HttpCacheUtils.isNotModified(headers, eTag, -1)) {
+			return notModified(eTag);
+		}
+		return ResponseEntity.ok().eTag(eTag).header(HttpHeaders.CACHE_CONTROL, HttpCacheUtils.revalidate())
+				.body(folderService.getFolderTreeNew());
 	}
 
 	@GetMapping("/{id}")
@@ -36,6 +52,11 @@ public class FolderController {
 		return folderService.findById(id);
 	}
 
+	@GetMapping("/{id}/download")
+	public ResponseEntity<StreamingResponseBody> downloadFolder(@PathVariable Integer id) {
+		return archiveService.downloadFolder(id);
+	}
+
 	@PostMapping
 	@ResponseStatus(HttpStatus.CREATED)
 	public DmsFolderDTO createNewFolder(@RequestBody @Valid NewFolderDTO newFolderDTO) {
@@ -56,4 +77,9 @@ public class FolderController {
 	public DmsFolderDTO moveFilesToFolder(@PathVariable Integer id, @RequestBody List<Integer> documentIdList) {
 		return folderService.moveFilesToFolder(id, documentIdList);
 	}
+
+	private <T> ResponseEntity<T> notModified(String eTag) {
+		return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag)
+				.header(HttpHeaders.CACHE_CONTROL, HttpCacheUtils.revalidate()).build();
+	}
 }
@@ -5,8 +5,10 @@ import com.example.dms.api.dtos.group.DmsGroupDTO;
 import com.example.dms.api.dtos.group.NewGroupDTO;
 import com.example.dms.api.dtos.user.DmsUserDTO;
 import com.example.dms.services.GroupService;
+import com.example.dms.utils.PageUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,8 +25,10 @@ public class GroupController {
 	private final GroupService groupService;
 
 	@GetMapping
-	public List<DmsGroupDTO> getAllGroups(@RequestParam(required = false) String search, SortDTO sort) {
-		return groupService.searchAll(search, sort);
+	public ResponseEntity<List<DmsGroupDTO>> getAllGroups(@RequestParam(required = false) String search, SortDTO sort,
+														  @RequestParam(required = false) String cursor,
+														  @RequestParam(required = false) Integer size) {
+		return PageUtils.toResponse(groupService.searchAll(search, sort, cursor, size));
 	}
 
 	@GetMapping("/{id}")
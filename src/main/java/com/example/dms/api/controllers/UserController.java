@@ -5,10 +5,12 @@ import com.example.dms.api.dtos.user.DmsUserDTO;
 import com.example.dms.api.dtos.user.NewUserDTO;
 import com.example.dms.api.dtos.user.UpdateUserDTO;
 import com.example.dms.services.UserService;
+import com.example.dms.utils.PageUtils;
 import com.example.dms.utils.exceptions.BadRequestException;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
@@ -24,8 +26,10 @@ public class UserController {
 	UserService userService;
 
 	@GetMapping
-	public List<DmsUserDTO> getAllUsers(@RequestParam(required = false) String search, SortDTO sort) {
-		return userService.searchAll(search, sort);
+	public ResponseEntity<List<DmsUserDTO>> getAllUsers(@RequestParam(required = false) String search, SortDTO sort,
+														@RequestParam(required = false) String cursor,
+														@RequestParam(required = false) Integer size) {
+		return PageUtils.toResponse(userService.searchAll(search, sort, cursor, size));
 	}
 
 	@GetMapping("/details")
@@ -0,0 +1,33 @@
+package com.example.dms.api.dtos.content;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class NewUploadSessionDTO {
+
+	@NotBlank
+	private String originalFileName;
+
+	@NotBlank
+	private String contentType;
+
+	@NotNull
+	@Positive
+	private Long totalSize;
+
+	@NotNull
+	@Positive
+	private Long chunkSize;
+
+	private String checksum;
+}
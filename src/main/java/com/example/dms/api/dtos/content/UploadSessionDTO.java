@@ -0,0 +1,29 @@
+package com.example.dms.api.dtos.content;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSessionDTO {
+
+	private String sessionKey;
+	private Integer documentId;
+	private String originalFileName;
+	private String contentType;
+	private Long totalSize;
+	private Long chunkSize;
+	private Integer chunkCount;
+	@Default
+	private List<Integer> receivedChunks = new ArrayList<>();
+	private LocalDateTime modifyDate;
+}
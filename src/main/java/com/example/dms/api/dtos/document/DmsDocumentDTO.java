@@ -2,7 +2,7 @@ package com.example.dms.api.dtos.document;
 
 import com.example.dms.api.dtos.BaseEntityDTO;
 import com.example.dms.api.dtos.content.DmsContentDTO;
-import com.example.dms.api.dtos.user.DmsUserDTO;
+import com.example.dms.api.dtos.user.DmsUserSummaryDTO;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Builder.Default;
@@ -25,7 +25,7 @@ public class DmsDocumentDTO implements BaseEntityDTO {
 
 	private String objectName;
 	private String description;
-	private DmsUserDTO creator;
+	private DmsUserSummaryDTO creator;
 	private String type;
 	@Default
 	private List<String> keywords = new ArrayList<>();
@@ -0,0 +1,16 @@
+package com.example.dms.api.dtos.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class KeywordCountDTO {
+
+	private String keyword;
+	private Long count;
+}
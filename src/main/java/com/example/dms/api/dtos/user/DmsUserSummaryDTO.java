@@ -0,0 +1,21 @@
+package com.example.dms.api.dtos.user;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The user as referenced from other representations (e.g. the creator of a document), without roles and privileges.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DmsUserSummaryDTO {
+
+	private Integer id;
+	private String username;
+	private String firstName;
+	private String lastName;
+}
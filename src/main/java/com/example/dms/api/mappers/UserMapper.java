@@ -1,6 +1,7 @@
 package com.example.dms.api.mappers;
 
 import com.example.dms.api.dtos.user.DmsUserDTO;
+import com.example.dms.api.dtos.user.DmsUserSummaryDTO;
 import com.example.dms.api.dtos.user.NewUserDTO;
 import com.example.dms.api.dtos.user.UpdateUserDTO;
 import com.example.dms.domain.DmsUser;
@@ -30,6 +31,8 @@ public interface UserMapper extends MapperInterface<DmsUser, DmsUserDTO>{
 		return role != null ? role.getName() : null;
 	}
 
+	DmsUserSummaryDTO entityToSummary(DmsUser user);
+
 	@Override
 	List<DmsUserDTO> entityListToDtoList(List<DmsUser> list);
 	Set<DmsUserDTO> entityListToDtoList(Set<DmsUser> list);
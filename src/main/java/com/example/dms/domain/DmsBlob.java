@@ -0,0 +1,54 @@
+package com.example.dms.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import java.time.LocalDateTime;
+
+/**
+ * One row per distinct stored content (keyed by its SHA-256 digest), referenceCount holds the number of
+ * DmsContent rows pointing at it. Blobs that are no longer referenced are removed by the content garbage collector.
+ * contentSize is the size of the original content, storedSize the size of the (possibly encoded) stored data.
+ * Blobs with a baseDigest are stored as a binary delta against that blob, chainLength counts the deltas that have
+ * to be applied to reconstruct the content.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+public class DmsBlob extends BaseEntity {
+
+	@Column(unique = true, nullable = false, length = 64)
+	private String digest;
+
+	@Default
+	private Long contentSize = 0L;
+
+	@Default
+	private Long storedSize = null;
+
+	// null for content stored as is
+	@Default
+	private String codec = null;
+
+	@Default
+	@Column(length = 64)
+	private String baseDigest = null;
+
+	@Default
+	private Integer chainLength = 0;
+
+	@Default
+	private Integer referenceCount = 0;
+
+	@Default
+	private LocalDateTime lastUsed = null;
+}
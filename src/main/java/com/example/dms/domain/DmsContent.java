@@ -10,7 +10,6 @@ import lombok.Setter;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
-import javax.persistence.Lob;
 import javax.persistence.OneToOne;
 
 @Getter
@@ -20,9 +19,9 @@ import javax.persistence.OneToOne;
 @Builder
 @Entity
 public class DmsContent extends BaseEntity{
-	@Lob
+	// key of the binary data in the configured ContentStore, the bytes themselves are never kept in this table
 	@Default
-	private byte[] content = null;
+	private String storageKey = null;
 	@Default
 	private Long contentSize = 0L;
 	@Default
@@ -116,5 +116,8 @@ public class DmsDocument extends BaseEntity implements AclAllowedClass, DmsAclNo
 
 	public AclAllowedClass getACLObjectForPermissions() { return this; }
 
+	@Override
+	public AclAllowedClass getAclParent() { return parentFolder; }
+
 	public TypeEnum getObjectType() { return TypeEnum.DOCUMENT; }
 }
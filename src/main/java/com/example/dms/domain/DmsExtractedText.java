@@ -0,0 +1,64 @@
+package com.example.dms.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Lob;
+import java.time.LocalDateTime;
+
+/**
+ * Plain text extracted from stored content, one row per blob (keyed by its digest like DmsBlob) so content shared
+ * between versions is extracted once. The row doubles as the extraction job: it is requested when content is stored,
+ * picked up by the extraction workers and retried with a growing delay until maxAttempts is reached. text keeps the
+ * result of the last successful extraction while the content is extracted again. Rows are removed together with
+ * their blob by the content garbage collector.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+public class DmsExtractedText extends BaseEntity {
+
+	public enum Status {
+		PENDING, RUNNING, DONE, FAILED
+	}
+
+	@Column(unique = true, nullable = false, length = 64)
+	private String storageKey;
+
+	private String contentType;
+
+	@Default
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 16)
+	private Status status = Status.PENDING;
+
+	@Default
+	private Integer attempts = 0;
+
+	// earliest time the job is picked up again
+	@Default
+	private LocalDateTime nextAttempt = null;
+
+	// time the current extraction was requested, the difference to the completion is the extraction lag
+	@Default
+	private LocalDateTime requestedAt = null;
+
+	@Default
+	@Column(length = 1000)
+	private String error = null;
+
+	@Lob
+	@Default
+	private String text = null;
+}
@@ -65,6 +65,9 @@ public class DmsFolder extends BaseEntity implements AclAllowedClass, DmsAclNoti
 
 	public AclAllowedClass getACLObjectForPermissions() { return parentFolder; }
 
+	@Override
+	public AclAllowedClass getAclParent() { return parentFolder; }
+
 	public TypeEnum getObjectType() { return TypeEnum.FOLDER; }
 
 	public boolean isRoot() {
@@ -0,0 +1,42 @@
+package com.example.dms.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * Normalized (trimmed, case folded) keyword of a document, the lookup table behind keyword filters and keyword
+ * counts. DmsDocument.keywords stays the list as it was entered, this table is derived from it by the KeywordIndex.
+ * The unique (keyword, document_id) key serves exact and prefix lookups of a keyword.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(uniqueConstraints = {@UniqueConstraint(name = "uk_dms_keyword", columnNames = {"keyword", "document_id"})},
+		indexes = {@Index(name = "idx_dms_keyword_document", columnList = "document_id")})
+public class DmsKeyword extends BaseEntity {
+
+	@Column(nullable = false)
+	private String keyword;
+
+	@ManyToOne(optional = false, fetch = FetchType.LAZY)
+	@JoinColumn(name = "document_id")
+	@OnDelete(action = OnDeleteAction.CASCADE)
+	private DmsDocument document;
+}
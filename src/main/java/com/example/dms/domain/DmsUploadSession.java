@@ -0,0 +1,50 @@
+package com.example.dms.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+
+/**
+ * Chunked upload in progress, the received chunks themselves are kept in the upload directory until the session
+ * is committed or expires.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+public class DmsUploadSession extends BaseEntity {
+
+	@Column(unique = true, nullable = false, length = 36)
+	private String sessionKey;
+
+	@ManyToOne(optional = false)
+	@JoinColumn(name = "document_id")
+	@OnDelete(action = OnDeleteAction.CASCADE)
+	private DmsDocument document;
+
+	private String username;
+
+	private String originalFileName;
+
+	private String contentType;
+
+	private Long totalSize;
+
+	private Long chunkSize;
+
+	private Integer chunkCount;
+
+	// optional SHA-256 of the whole file, verified on commit
+	private String checksum;
+}
@@ -1,6 +1,12 @@
 package com.example.dms.domain.security;
 
 public interface AclAllowedClass {
-	// empty interface
 	// every object you want to have acl's for needs to implement this interface
+
+	/**
+	 * Object whose acl entries this object inherits, null if it inherits none.
+	 */
+	default AclAllowedClass getAclParent() {
+		return null;
+	}
 }
@@ -0,0 +1,43 @@
+package com.example.dms.domain.security;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Subselect;
+import org.hibernate.annotations.Synchronize;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Read only view over the spring acl tables, one row per granting acl entry. The tables are created by schema.sql
+ * and written by the JdbcMutableAclService, the view only exists so queries can filter by acl entries.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Immutable
+@Subselect("SELECT entry.id AS id, class.class AS object_class, aoi.object_id_identity AS object_identity, "
+		+ "sid.sid AS sid, sid.principal AS principal, entry.mask AS mask "
+		+ "FROM acl_entry entry "
+		+ "JOIN acl_object_identity aoi ON aoi.id = entry.acl_object_identity "
+		+ "JOIN acl_class class ON class.id = aoi.object_id_class "
+		+ "JOIN acl_sid sid ON sid.id = entry.sid "
+		+ "WHERE entry.granting = true")
+@Synchronize({"acl_entry", "acl_object_identity", "acl_class", "acl_sid"})
+public class AclGrant {
+
+	@Id
+	private Long id;
+
+	private String objectClass;
+
+	// object ids are stored as strings by the acl service
+	private String objectIdentity;
+
+	private String sid;
+
+	private boolean principal;
+
+	private int mask;
+}
@@ -0,0 +1,36 @@
+package com.example.dms.domain.security;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Subselect;
+import org.hibernate.annotations.Synchronize;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Read only view over the spring acl tables, one row per acl. Like {@link AclGrant} it only exists so queries can
+ * filter by acls, here by whether the acl inherits the entries of its parent.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Immutable
+@Subselect("SELECT aoi.id AS id, class.class AS object_class, aoi.object_id_identity AS object_identity, "
+		+ "aoi.entries_inheriting AS entries_inheriting "
+		+ "FROM acl_object_identity aoi "
+		+ "JOIN acl_class class ON class.id = aoi.object_id_class")
+@Synchronize({"acl_object_identity", "acl_class"})
+public class AclObject {
+
+	@Id
+	private Long id;
+
+	private String objectClass;
+
+	// object ids are stored as strings by the acl service
+	private String objectIdentity;
+
+	private boolean entriesInheriting;
+}
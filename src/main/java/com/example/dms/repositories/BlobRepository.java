@@ -0,0 +1,55 @@
+package com.example.dms.repositories;
+
+import com.example.dms.domain.DmsBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface BlobRepository extends JpaRepository<DmsBlob, Integer> {
+
+	// 1 when the blob was inserted, 0 when a blob with the digest exists; a concurrent insert of the digest waits on
+	// the unique key until the first transaction completes
+	@Modifying
+	@Query(nativeQuery = true, value = "INSERT IGNORE INTO dms_blob (digest, content_size, stored_size, codec, base_digest, "
+			+ "chain_length, reference_count, last_used, creation_date, modify_date) VALUES (?1, ?2, ?3, ?4, ?5, ?6, 0, "
+			+ "CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)")
+	int insertIfAbsent(String digest, Long contentSize, Long storedSize, String codec, String baseDigest,
+					   Integer chainLength);
+
+	@Modifying
+	@Query("UPDATE DmsBlob b SET b.lastUsed = CURRENT_TIMESTAMP WHERE b.digest = ?1")
+	int markUsed(String digest);
+
+	@Modifying
+	@Query("UPDATE DmsBlob b SET b.referenceCount = b.referenceCount + 1, b.lastUsed = CURRENT_TIMESTAMP WHERE b.digest = ?1")
+	int incrementReferenceCount(String digest);
+
+	@Modifying
+	@Query("UPDATE DmsBlob b SET b.referenceCount = b.referenceCount - 1, b.lastUsed = CURRENT_TIMESTAMP WHERE b.digest = ?1")
+	int decrementReferenceCount(String digest);
+
+	@Query("SELECT b.digest FROM DmsBlob b WHERE b.referenceCount <= 0 AND b.lastUsed < ?1")
+	List<String> findUnreferencedDigests(LocalDateTime lastUsedBefore);
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	Optional<DmsBlob> findByDigest(String digest);
+
+	Optional<DmsBlob> readByDigest(String digest);
+
+	@Query("SELECT COALESCE(SUM(b.contentSize), 0) AS contentSize, COALESCE(SUM(b.storedSize), 0) AS storedSize "
+			+ "FROM DmsBlob b WHERE b.storedSize IS NOT NULL")
+	StorageTotals getStorageTotals();
+
+	interface StorageTotals {
+
+		Long getContentSize();
+
+		Long getStoredSize();
+	}
+}
@@ -1,10 +1,28 @@
 package com.example.dms.repositories;
 
 import com.example.dms.domain.DmsContent;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ContentRepository extends JpaRepository<DmsContent, Integer>{
 
+	@Query("SELECT c.document.id FROM DmsContent c WHERE c.storageKey = ?1")
+	List<Integer> findDocumentIdsByStorageKey(String storageKey);
+
+	// distinct stored content ordered by key, pages continue after the last key of the previous page
+	@Query("SELECT c.storageKey AS storageKey, MAX(c.contentType) AS contentType FROM DmsContent c "
+			+ "WHERE c.storageKey > ?1 GROUP BY c.storageKey ORDER BY c.storageKey")
+	List<StoredContent> findStoredContentAfter(String storageKey, Pageable pageable);
+
+	interface StoredContent {
+
+		String getStorageKey();
+
+		String getContentType();
+	}
 }
@@ -1,17 +1,68 @@
 package com.example.dms.repositories;
 
 import com.example.dms.domain.DmsDocument;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * The inverse one to one content association can't be loaded lazily, listing methods fetch the content metadata
+ * (never the stored data, which lives in the ContentStore) in the same query instead of one select per document.
+ */
 @Repository
 public interface DocumentRepository extends JpaRepository<DmsDocument, Integer>, JpaSpecificationExecutor<DmsDocument>{
 
+	@Override
+	@EntityGraph(attributePaths = "content")
+	List<DmsDocument> findAll();
+
+	@Override
+	@EntityGraph(attributePaths = "content")
+	List<DmsDocument> findAll(Sort sort);
+
+	@Override
+	@EntityGraph(attributePaths = "content")
+	List<DmsDocument> findAll(Specification<DmsDocument> spec, Sort sort);
+
+	@Override
+	@EntityGraph(attributePaths = "content")
+	List<DmsDocument> findAllById(Iterable<Integer> ids);
+
+	@EntityGraph(attributePaths = "content")
 	List<DmsDocument> findAllByRootId(Integer id);
 
 	Collection<Object> findByParentFolderId(Integer id);
+
+	@EntityGraph(attributePaths = "content")
+	List<DmsDocument> findAllByParentFolderIdIn(Collection<Integer> folderIds);
+
+	// validators of the document representation, loaded without the document itself
+	@Query("SELECT d.modifyDate AS modifyDate, c.modifyDate AS contentModifyDate, d.immutable AS immutable "
+			+ "FROM DmsDocument d LEFT JOIN d.content c WHERE d.id = ?1")
+	Optional<DocumentState> findStateById(Integer id);
+
+	@Query("SELECT d.id FROM DmsDocument d WHERE d.keywords IS NOT EMPTY ORDER BY d.id")
+	List<Integer> findIdsWithKeywords(Pageable pageable);
+
+	@Query("SELECT COUNT(d) AS count, MAX(d.modifyDate) AS lastModified FROM DmsDocument d")
+	ModificationSummary getModificationSummary();
+
+	interface DocumentState {
+
+		LocalDateTime getModifyDate();
+
+		LocalDateTime getContentModifyDate();
+
+		boolean isImmutable();
+	}
 }
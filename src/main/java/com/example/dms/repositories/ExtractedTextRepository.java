@@ -0,0 +1,60 @@
+package com.example.dms.repositories;
+
+import com.example.dms.domain.DmsExtractedText;
+import com.example.dms.domain.DmsExtractedText.Status;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ExtractedTextRepository extends JpaRepository<DmsExtractedText, Integer> {
+
+	// content that was requested (or extracted) before is left as is
+	@Modifying
+	@Query(nativeQuery = true, value = "INSERT INTO dms_extracted_text (storage_key, content_type, status, attempts, "
+			+ "next_attempt, requested_at, creation_date, modify_date) VALUES (?1, ?2, 'PENDING', 0, ?3, ?3, ?3, ?3) "
+			+ "ON DUPLICATE KEY UPDATE modify_date = modify_date")
+	void request(String storageKey, String contentType, LocalDateTime now);
+
+	// rows that are extracted right now are left alone, their result would overwrite the state set here
+	@Modifying
+	@Query("UPDATE DmsExtractedText t SET t.status = ?3, t.attempts = 0, t.nextAttempt = ?4, t.requestedAt = ?4, "
+			+ "t.error = NULL WHERE t.storageKey IN ?1 AND t.status IN ?2")
+	int requestAgain(Collection<String> storageKeys, Collection<Status> statuses, Status pending, LocalDateTime now);
+
+	@Modifying
+	@Query("UPDATE DmsExtractedText t SET t.status = ?2 WHERE t.status = ?1")
+	int updateStatus(Status from, Status to);
+
+	@Modifying
+	@Query("DELETE FROM DmsExtractedText t WHERE t.storageKey = ?1")
+	int deleteByStorageKey(String storageKey);
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	Optional<DmsExtractedText> findByStorageKey(String storageKey);
+
+	Optional<DmsExtractedText> readByStorageKey(String storageKey);
+
+	@Query("SELECT t.text FROM DmsExtractedText t WHERE t.storageKey = ?1")
+	Optional<String> findTextByStorageKey(String storageKey);
+
+	@Query("SELECT t.storageKey FROM DmsExtractedText t WHERE t.status = ?1 AND t.nextAttempt <= ?2 ORDER BY t.nextAttempt")
+	List<String> findDueStorageKeys(Status status, LocalDateTime now, Pageable pageable);
+
+	@Query("SELECT COUNT(t) AS count, MIN(t.requestedAt) AS oldestRequest FROM DmsExtractedText t WHERE t.status IN ?1")
+	Backlog getBacklog(Collection<Status> statuses);
+
+	interface Backlog {
+
+		Long getCount();
+
+		LocalDateTime getOldestRequest();
+	}
+}
@@ -4,6 +4,7 @@ import com.example.dms.domain.DmsFolder;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,4 +21,26 @@ public interface FolderRepository extends JpaRepository<DmsFolder, Integer>{
 	Optional<DmsFolder> findByNameAndParentFolderId(String name, Integer parentFolderId);
 	
 	Optional<DmsFolder> findByName(String name);
+
+	List<DmsFolder> findAllByParentFolderIdIn(Collection<Integer> parentFolderIds);
+
+	@Query("SELECT COUNT(f) AS count, MAX(f.modifyDate) AS lastModified FROM DmsFolder f")
+	ModificationSummary getModificationSummary();
+
+	@Query("SELECT f.id AS id, p.id AS parentId FROM DmsFolder f LEFT JOIN f.parentFolder p")
+	List<FolderParent> findParents();
+
+	// folders whose acl keeps only its own entries instead of inheriting the entries of the parent folder
+	@Query(nativeQuery = true, value = "SELECT folder.id FROM dms_folder folder "
+			+ "JOIN acl_object_identity aoi on aoi.object_id_identity = folder.id "
+			+ "JOIN acl_class class on class.id = aoi.object_id_class "
+			+ "WHERE class.class = 'com.example.dms.domain.DmsFolder' and aoi.entries_inheriting = false")
+	List<Integer> findNotInheritingIds();
+
+	interface FolderParent {
+
+		Integer getId();
+
+		Integer getParentId();
+	}
 }
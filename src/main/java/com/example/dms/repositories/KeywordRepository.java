@@ -0,0 +1,19 @@
+package com.example.dms.repositories;
+
+import com.example.dms.domain.DmsKeyword;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface KeywordRepository extends JpaRepository<DmsKeyword, Integer> {
+
+	@Query("SELECT k.keyword FROM DmsKeyword k WHERE k.document.id = ?1")
+	List<String> findKeywordsByDocumentId(Integer documentId);
+
+	@Modifying
+	@Query("DELETE FROM DmsKeyword k WHERE k.document.id = ?1 AND k.keyword IN ?2")
+	int deleteByDocumentIdAndKeywordIn(Integer documentId, Collection<String> keywords);
+}
@@ -0,0 +1,13 @@
+package com.example.dms.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row count and latest modification of a table, changes whenever rows are created, modified or deleted.
+ */
+public interface ModificationSummary {
+
+	Long getCount();
+
+	LocalDateTime getLastModified();
+}
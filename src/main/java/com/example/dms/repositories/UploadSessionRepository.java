@@ -0,0 +1,15 @@
+package com.example.dms.repositories;
+
+import com.example.dms.domain.DmsUploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface UploadSessionRepository extends JpaRepository<DmsUploadSession, Integer> {
+
+	Optional<DmsUploadSession> findBySessionKey(String sessionKey);
+
+	List<DmsUploadSession> findAllByModifyDateBefore(LocalDateTime modifyDate);
+}
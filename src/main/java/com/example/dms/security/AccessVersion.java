@@ -0,0 +1,41 @@
+package com.example.dms.security;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the access rules, changed whenever acl entries or principal authorities (group memberships, roles) are
+ * changed. Responses filtered by what the current user may read (folder listings) use it in their validators.
+ * <p>
+ * The version is kept per instance and starts at a random value, validators computed by another instance or before
+ * a restart don't match.
+ */
+@Component
+public class AccessVersion {
+
+	private final AtomicLong version = new AtomicLong(ThreadLocalRandom.current().nextLong());
+
+	public long current() {
+		return version.get();
+	}
+
+	/**
+	 * Changes the version now and once more when the current transaction completes, a validator computed before the
+	 * change is committed would otherwise be stored with the old content.
+	 */
+	public void increment() {
+		version.incrementAndGet();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					version.incrementAndGet();
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package com.example.dms.security;
+
+import com.example.dms.utils.Roles;
+import lombok.Value;
+
+import java.util.Set;
+
+/**
+ * Authorities of an acl principal at the time it was read: a user with its roles and privileges, or a group
+ * (group identifiers are used as principals as well) without any.
+ */
+@Value
+public class PrincipalAuthorities {
+
+	String username;
+	boolean group;
+	Set<String> authorities;
+
+	public static PrincipalAuthorities ofGroup(String identifier) {
+		return new PrincipalAuthorities(identifier, true, Set.of());
+	}
+
+	public static PrincipalAuthorities ofUser(String username, Set<String> authorities) {
+		return new PrincipalAuthorities(username, false, Set.copyOf(authorities));
+	}
+
+	public boolean isAdmin() {
+		return authorities.contains(Roles.ROLE_ADMIN.name());
+	}
+}
@@ -0,0 +1,111 @@
+package com.example.dms.security;
+
+import com.example.dms.repositories.GroupRepository;
+import com.example.dms.utils.Roles;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Authorities of acl principals by username, cached so granting or checking rights does not load the whole user
+ * (with its groups, roles and privileges) on every call. Services changing users or groups evict the principals they
+ * changed, entries also expire after time-to-live. Evicting changes the {@link AccessVersion}.
+ * <p>
+ * Users that do not exist or are disabled are not cached, looking them up fails like loading their user details.
+ */
+@Service
+public class PrincipalAuthorityService {
+
+	public static final String NAME = "principalAuthorities";
+
+	private final DmsUserDetailsService userDetailsService;
+	private final GroupRepository groupRepository;
+	private final LoadingCache<String, PrincipalAuthorities> cache;
+	private final AccessVersion accessVersion;
+
+	public PrincipalAuthorityService(DmsUserDetailsService userDetailsService, GroupRepository groupRepository,
+									 MeterRegistry meterRegistry, AccessVersion accessVersion,
+									 @Value("${dms.principal-authorities.cache.max-size:10000}") long maximumSize,
+									 @Value("${dms.principal-authorities.cache.time-to-live:PT10M}") Duration timeToLive) {
+		this.userDetailsService = userDetailsService;
+		this.groupRepository = groupRepository;
+		this.accessVersion = accessVersion;
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(timeToLive)
+				.recordStats()
+				.build(this::load);
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+	}
+
+	public PrincipalAuthorities get(String username) {
+		return cache.get(username);
+	}
+
+	public boolean isAdmin(String username) {
+		return get(username).isAdmin();
+	}
+
+	/**
+	 * Admin check of an authenticated principal, its authorities were read when it was authenticated.
+	 */
+	public static boolean isAdmin(Authentication authentication) {
+		return authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority)
+				.anyMatch(Roles.ROLE_ADMIN.name()::equals);
+	}
+
+	public void evict(String... usernames) {
+		evict(Arrays.asList(usernames));
+	}
+
+	/**
+	 * Evicts the principals now and once more when the current transaction completes, a lookup running before the
+	 * change is committed would cache the old authorities again.
+	 */
+	public void evict(Collection<String> usernames) {
+		Set<String> evicted = Set.copyOf(usernames);
+		accessVersion.increment();
+		cache.invalidateAll(evicted);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					cache.invalidateAll(evicted);
+				}
+			});
+		}
+	}
+
+	public void evictAll() {
+		accessVersion.increment();
+		cache.invalidateAll();
+	}
+
+	public long estimatedSize() {
+		return cache.estimatedSize();
+	}
+
+	private PrincipalAuthorities load(String username) {
+		// group identifiers are granted rights like usernames, the user details service fails for them
+		if (groupRepository.existsByIdentifier(username)) {
+			return PrincipalAuthorities.ofGroup(username);
+		}
+		UserDetails details = userDetailsService.loadUserByUsername(username);
+		return PrincipalAuthorities.ofUser(username, details.getAuthorities().stream()
+				.map(GrantedAuthority::getAuthority).collect(Collectors.toSet()));
+	}
+}
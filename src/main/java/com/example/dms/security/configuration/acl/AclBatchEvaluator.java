@@ -0,0 +1,112 @@
+package com.example.dms.security.configuration.acl;
+
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.domain.PermissionFactory;
+import org.springframework.security.acls.jdbc.LookupStrategy;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.acls.model.SidRetrievalStrategy;
+import org.springframework.security.core.Authentication;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Permission checks of many objects at once: the acls of all objects are read with one lookup (the lookup strategy
+ * reads the acls missing from the acl cache in batches) and the permissions are evaluated in memory against the
+ * sids of the authentication, instead of reading the acl of every object through the acl service.
+ * <p>
+ * Objects without an acl are not granted, like in AclPermissionEvaluator. Admins are not special here, callers
+ * check them first.
+ */
+public class AclBatchEvaluator {
+
+	private final LookupStrategy lookupStrategy;
+	private final SidRetrievalStrategy sidRetrievalStrategy;
+	private final PermissionFactory permissionFactory;
+
+	public AclBatchEvaluator(LookupStrategy lookupStrategy, SidRetrievalStrategy sidRetrievalStrategy,
+							 PermissionFactory permissionFactory) {
+		this.lookupStrategy = lookupStrategy;
+		this.sidRetrievalStrategy = sidRetrievalStrategy;
+		this.permissionFactory = permissionFactory;
+	}
+
+	/**
+	 * Ids of the objects of the type the authentication is granted any of the permissions on.
+	 */
+	public <I extends Serializable> Set<I> filterGranted(String type, Collection<I> ids, Authentication authentication,
+														List<Permission> permissions) {
+		if (ids.isEmpty()) return Collections.emptySet();
+
+		List<Sid> sids = sidRetrievalStrategy.getSids(authentication);
+		Map<ObjectIdentity, I> identities = new LinkedHashMap<>();
+		for (I id : ids) {
+			identities.put(new ObjectIdentityImpl(type, id), id);
+		}
+		// unlike the acl service the lookup strategy skips objects without an acl instead of failing
+		Map<ObjectIdentity, Acl> acls = lookupStrategy.readAclsById(List.copyOf(identities.keySet()), sids);
+
+		Set<I> granted = new HashSet<>();
+		identities.forEach((identity, id) -> {
+			Acl acl = acls.get(identity);
+			if (acl != null && isGranted(acl, sids, permissions)) {
+				granted.add(id);
+			}
+		});
+		return granted;
+	}
+
+	/**
+	 * Whether the authentication is granted the permission on every object, permissions are given like to
+	 * hasPermission in security expressions (name, mask or permission).
+	 */
+	public boolean isGrantedAll(String type, Collection<? extends Serializable> ids, Authentication authentication,
+								Object permission) {
+		if (ids.stream().anyMatch(Objects::isNull)) return false;
+		Set<Serializable> distinct = new HashSet<>(ids);
+		return filterGranted(type, distinct, authentication, resolvePermissions(permission)).size() == distinct.size();
+	}
+
+	private boolean isGranted(Acl acl, List<Sid> sids, List<Permission> permissions) {
+		try {
+			return acl.isGranted(permissions, sids, false);
+		} catch (NotFoundException e) {
+			return false;
+		}
+	}
+
+	// same resolution as AclPermissionEvaluator
+	private List<Permission> resolvePermissions(Object permission) {
+		if (permission instanceof Integer) {
+			return List.of(permissionFactory.buildFromMask((Integer) permission));
+		}
+		if (permission instanceof Permission) {
+			return List.of((Permission) permission);
+		}
+		if (permission instanceof Permission[]) {
+			return Arrays.asList((Permission[]) permission);
+		}
+		if (permission instanceof String) {
+			String name = (String) permission;
+			try {
+				return List.of(permissionFactory.buildFromName(name));
+			} catch (IllegalArgumentException notFound) {
+				return List.of(permissionFactory.buildFromName(name.toUpperCase(Locale.ENGLISH)));
+			}
+		}
+		throw new IllegalArgumentException("Unsupported permission: " + permission);
+	}
+}
@@ -0,0 +1,292 @@
+package com.example.dms.security.configuration.acl;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.security.acls.domain.PermissionFactory;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.Assert;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads and grants the permissions of principals on many objects with a few batched statements on the acl tables,
+ * where the acl service reads, rewrites and updates the acl of every object one at a time. Objects are handled
+ * batch-size objects at a time: one select of the existing acls (the missing ones are inserted in one JDBC batch),
+ * one select of their entries and one JDBC batch inserting the new entries.
+ * <p>
+ * Rows are written like JdbcMutableAclService writes them: missing acls are owned by the current user and inherit
+ * entries, permissions already granted are skipped and new entries are appended after the existing ones. Changed
+ * acls are evicted from the acl cache together with the acls inheriting from them.
+ */
+public class AclBulkOperations {
+
+	private static final int BATCH_SIZE = 500;
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+	private final AclCache aclCache;
+	private final PermissionFactory permissionFactory;
+
+	public AclBulkOperations(NamedParameterJdbcTemplate jdbcTemplate, AclCache aclCache,
+							 PermissionFactory permissionFactory) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.aclCache = aclCache;
+		this.permissionFactory = permissionFactory;
+	}
+
+	/**
+	 * Permissions granted to principals on every object that has an acl, in the order of the entries.
+	 */
+	public Map<ObjectIdentity, Map<String, Set<Permission>>> readGrants(Collection<ObjectIdentity> identities) {
+		Map<ObjectIdentity, Map<String, Set<Permission>>> grants = new HashMap<>();
+		identities.stream().collect(Collectors.groupingBy(ObjectIdentity::getType)).forEach((type, ofType) -> {
+			Map<String, ObjectIdentity> byIdentifier = byIdentifier(ofType);
+			for (List<String> batch : batches(byIdentifier.keySet())) {
+				MapSqlParameterSource parameters = new MapSqlParameterSource("type", type).addValue("identifiers", batch);
+				jdbcTemplate.query("SELECT oi.object_id_identity, s.sid, e.mask FROM acl_entry e "
+						+ "JOIN acl_object_identity oi ON oi.id = e.acl_object_identity "
+						+ "JOIN acl_class c ON c.id = oi.object_id_class JOIN acl_sid s ON s.id = e.sid "
+						+ "WHERE c.class = :type AND oi.object_id_identity IN (:identifiers) "
+						+ "AND s.principal = TRUE AND e.granting = TRUE ORDER BY e.acl_object_identity, e.ace_order",
+						parameters, row -> {
+							grants.computeIfAbsent(byIdentifier.get(row.getString(1)), identity -> new LinkedHashMap<>())
+									.computeIfAbsent(row.getString(2), sid -> new LinkedHashSet<>())
+									.add(permissionFactory.buildFromMask(row.getInt(3)));
+						});
+			}
+		});
+		return grants;
+	}
+
+	/**
+	 * Grants the permissions of every principal on every object, creating the acls of objects without one. The acl
+	 * of every object of parents (the keys) is linked to the acl of its parent (the value), acls of parents are
+	 * created like the others.
+	 */
+	public void grant(Map<ObjectIdentity, Map<String, Set<Permission>>> grants,
+					  Map<ObjectIdentity, ObjectIdentity> parents) {
+		if (grants.isEmpty() && parents.isEmpty()) return;
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		Assert.notNull(authentication, "An authenticated principal is required to create acls");
+		String owner = new PrincipalSid(authentication).getPrincipal();
+
+		Set<String> principals = new HashSet<>();
+		principals.add(owner);
+		grants.values().forEach(granted -> principals.addAll(granted.keySet()));
+		Map<String, Long> sids = sidIds(principals);
+
+		Set<Long> changed = new HashSet<>();
+		Map<ObjectIdentity, AclRow> rows = link(grants.keySet(), parents, sids.get(owner), changed);
+		Map<Long, Map<String, Set<Permission>>> entries = new LinkedHashMap<>();
+		grants.forEach((identity, granted) -> {
+			if (!granted.isEmpty()) entries.put(rows.get(identity).id, granted);
+		});
+		for (List<Long> batch : batches(entries.keySet())) {
+			Map<Long, Map<String, Set<Permission>>> batchGrants = new LinkedHashMap<>();
+			batch.forEach(objectId -> batchGrants.put(objectId, entries.get(objectId)));
+			changed.addAll(insertEntries(batchGrants, sids));
+		}
+		evictWithChildren(changed);
+	}
+
+	/**
+	 * Links the acl of every object (the keys) to the acl of its parent (the value) so it inherits the entries of
+	 * its parent. Missing acls are created owned by the owner principal.
+	 */
+	public void link(Map<ObjectIdentity, ObjectIdentity> parents, String owner) {
+		if (parents.isEmpty()) return;
+		Set<Long> changed = new HashSet<>();
+		link(Set.of(), parents, sidIds(Set.of(owner)).get(owner), changed);
+		evictWithChildren(changed);
+	}
+
+	// acl rows of the objects and of the parents, acls linked to another parent are relinked and added to changed
+	private Map<ObjectIdentity, AclRow> link(Collection<ObjectIdentity> objects,
+											 Map<ObjectIdentity, ObjectIdentity> parents, long ownerId,
+											 Set<Long> changed) {
+		Set<ObjectIdentity> identities = new LinkedHashSet<>(objects);
+		parents.forEach((object, parent) -> {
+			identities.add(object);
+			identities.add(parent);
+		});
+		Map<ObjectIdentity, AclRow> rows = new HashMap<>();
+		identities.stream().collect(Collectors.groupingBy(ObjectIdentity::getType)).forEach((type, ofType) -> {
+			long classId = classId(type, ofType.get(0).getIdentifier());
+			Map<String, ObjectIdentity> byIdentifier = byIdentifier(ofType);
+			for (List<String> batch : batches(byIdentifier.keySet())) {
+				objectIdentityRows(classId, batch, ownerId).forEach((identifier, row) ->
+						rows.put(byIdentifier.get(identifier), row));
+			}
+		});
+
+		List<SqlParameterSource> links = new ArrayList<>();
+		parents.forEach((object, parent) -> {
+			AclRow row = rows.get(object);
+			long parentId = rows.get(parent).id;
+			if (row.parent == null || row.parent != parentId) {
+				links.add(new MapSqlParameterSource("id", row.id).addValue("parent", parentId));
+				changed.add(row.id);
+			}
+		});
+		for (List<SqlParameterSource> batch : batches(links)) {
+			jdbcTemplate.batchUpdate("UPDATE acl_object_identity SET parent_object = :parent, entries_inheriting = TRUE "
+					+ "WHERE id = :id", batch.toArray(new SqlParameterSource[0]));
+		}
+		return rows;
+	}
+
+	// cached acls hold their parent acl, the acls inheriting from a changed acl are evicted with it
+	private void evictWithChildren(Collection<Long> objectIds) {
+		Set<Long> evicted = new HashSet<>();
+		List<Long> level = new ArrayList<>(objectIds);
+		while (!level.isEmpty()) {
+			level.removeIf(objectId -> !evicted.add(objectId));
+			level.forEach(aclCache::evictFromCache);
+			List<Long> children = new ArrayList<>();
+			for (List<Long> batch : batches(level)) {
+				children.addAll(jdbcTemplate.queryForList("SELECT id FROM acl_object_identity WHERE parent_object IN (:ids)",
+						new MapSqlParameterSource("ids", batch), Long.class));
+			}
+			level = children;
+		}
+	}
+
+	private Map<String, ObjectIdentity> byIdentifier(List<ObjectIdentity> identities) {
+		Map<String, ObjectIdentity> byIdentifier = new LinkedHashMap<>();
+		identities.forEach(identity -> byIdentifier.put(identity.getIdentifier().toString(), identity));
+		return byIdentifier;
+	}
+
+	private long classId(String type, Serializable identifier) {
+		MapSqlParameterSource parameters = new MapSqlParameterSource("type", type)
+				.addValue("idType", identifier.getClass().getCanonicalName());
+		String select = "SELECT id FROM acl_class WHERE class = :type";
+		List<Long> ids = jdbcTemplate.queryForList(select, parameters, Long.class);
+		if (ids.isEmpty()) {
+			jdbcTemplate.update("INSERT INTO acl_class (class, class_id_type) VALUES (:type, :idType)", parameters);
+			ids = jdbcTemplate.queryForList(select, parameters, Long.class);
+		}
+		return ids.get(0);
+	}
+
+	private Map<String, Long> sidIds(Set<String> principals) {
+		Map<String, Long> ids = selectSids(principals);
+		List<SqlParameterSource> missing = principals.stream().filter(principal -> !ids.containsKey(principal))
+				.map(principal -> new MapSqlParameterSource("sid", principal)).collect(Collectors.toList());
+		if (!missing.isEmpty()) {
+			jdbcTemplate.batchUpdate("INSERT INTO acl_sid (principal, sid) VALUES (TRUE, :sid)",
+					missing.toArray(new SqlParameterSource[0]));
+			ids.putAll(selectSids(principals));
+		}
+		return ids;
+	}
+
+	private Map<String, Long> selectSids(Collection<String> principals) {
+		Map<String, Long> ids = new HashMap<>();
+		jdbcTemplate.query("SELECT id, sid FROM acl_sid WHERE principal = TRUE AND sid IN (:sids)",
+				new MapSqlParameterSource("sids", principals), row -> {
+					ids.put(row.getString(2), row.getLong(1));
+				});
+		return ids;
+	}
+
+	private Map<String, AclRow> objectIdentityRows(long classId, List<String> identifiers, long ownerId) {
+		Map<String, AclRow> rows = selectObjectIdentities(classId, identifiers);
+		List<SqlParameterSource> missing = identifiers.stream().filter(identifier -> !rows.containsKey(identifier))
+				.map(identifier -> new MapSqlParameterSource("classId", classId).addValue("identifier", identifier)
+						.addValue("owner", ownerId))
+				.collect(Collectors.toList());
+		if (!missing.isEmpty()) {
+			jdbcTemplate.batchUpdate("INSERT INTO acl_object_identity "
+					+ "(object_id_class, object_id_identity, owner_sid, entries_inheriting) "
+					+ "VALUES (:classId, :identifier, :owner, TRUE)", missing.toArray(new SqlParameterSource[0]));
+			rows.putAll(selectObjectIdentities(classId, identifiers));
+		}
+		return rows;
+	}
+
+	private Map<String, AclRow> selectObjectIdentities(long classId, List<String> identifiers) {
+		Map<String, AclRow> rows = new HashMap<>();
+		jdbcTemplate.query("SELECT id, object_id_identity, parent_object FROM acl_object_identity "
+						+ "WHERE object_id_class = :classId AND object_id_identity IN (:identifiers)",
+				new MapSqlParameterSource("classId", classId).addValue("identifiers", identifiers), row -> {
+					long parent = row.getLong(3);
+					Long parentId = row.wasNull() ? null : parent;
+					rows.put(row.getString(2), new AclRow(row.getLong(1), parentId));
+				});
+		return rows;
+	}
+
+	// ids of the objects that got new entries
+	private Set<Long> insertEntries(Map<Long, Map<String, Set<Permission>>> grants, Map<String, Long> sids) {
+		// existing entries by object: their sid and mask pairs and the next position
+		Map<Long, Set<String>> existing = new HashMap<>();
+		Map<Long, Integer> nextOrder = new HashMap<>();
+		jdbcTemplate.query("SELECT acl_object_identity, sid, mask, ace_order FROM acl_entry "
+						+ "WHERE acl_object_identity IN (:objectIds)",
+				new MapSqlParameterSource("objectIds", grants.keySet()), row -> {
+					long objectId = row.getLong(1);
+					existing.computeIfAbsent(objectId, id -> new HashSet<>()).add(row.getLong(2) + ":" + row.getInt(3));
+					nextOrder.merge(objectId, row.getInt(4) + 1, Math::max);
+				});
+
+		List<SqlParameterSource> entries = new ArrayList<>();
+		Set<Long> changed = new HashSet<>();
+		grants.forEach((objectId, granted) -> {
+			Set<String> entriesOfObject = existing.computeIfAbsent(objectId, id -> new HashSet<>());
+			int order = nextOrder.getOrDefault(objectId, 0);
+			for (Map.Entry<String, Set<Permission>> grant : granted.entrySet()) {
+				long sid = sids.get(grant.getKey());
+				for (Permission permission : grant.getValue()) {
+					if (entriesOfObject.add(sid + ":" + permission.getMask())) {
+						changed.add(objectId);
+						entries.add(new MapSqlParameterSource("objectId", objectId).addValue("order", order++)
+								.addValue("sid", sid).addValue("mask", permission.getMask()));
+					}
+				}
+			}
+		});
+		if (!entries.isEmpty()) {
+			jdbcTemplate.batchUpdate("INSERT INTO acl_entry "
+					+ "(acl_object_identity, ace_order, sid, mask, granting, audit_success, audit_failure) "
+					+ "VALUES (:objectId, :order, :sid, :mask, TRUE, FALSE, FALSE)",
+					entries.toArray(new SqlParameterSource[0]));
+		}
+		return changed;
+	}
+
+	private static <E> List<List<E>> batches(Collection<E> elements) {
+		List<E> all = new ArrayList<>(elements);
+		List<List<E>> batches = new ArrayList<>();
+		for (int start = 0; start < all.size(); start += BATCH_SIZE) {
+			batches.add(all.subList(start, Math.min(start + BATCH_SIZE, all.size())));
+		}
+		return batches;
+	}
+
+	private static final class AclRow {
+
+		private final long id;
+		private final Long parent;
+
+		private AclRow(long id, Long parent) {
+			this.id = id;
+			this.parent = parent;
+		}
+	}
+}
@@ -1,11 +1,14 @@
 package com.example.dms.security.configuration.acl;
 
+import com.example.dms.security.AccessVersion;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
 import org.springframework.security.access.expression.method.MethodSecurityExpressionHandler;
@@ -18,7 +21,6 @@ import org.springframework.security.acls.domain.ConsoleAuditLogger;
 import org.springframework.security.acls.domain.DefaultPermissionFactory;
 import org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy;
 import org.springframework.security.acls.domain.PermissionFactory;
-import org.springframework.security.acls.domain.SpringCacheBasedAclCache;
 import org.springframework.security.acls.jdbc.BasicLookupStrategy;
 import org.springframework.security.acls.jdbc.JdbcMutableAclService;
 import org.springframework.security.acls.jdbc.LookupStrategy;
@@ -27,6 +29,7 @@ import org.springframework.security.acls.model.PermissionGrantingStrategy;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 import javax.sql.DataSource;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.stream.Stream;
 
@@ -40,6 +43,19 @@ public class AclContext {
 	@Autowired
 	private Environment environment;
 
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private AccessVersion accessVersion;
+
+	// entries, every acl takes two (by object identity and by id)
+	@Value("${dms.acl.cache.max-size:100000}")
+	private long aclCacheMaxSize;
+
+	@Value("${dms.acl.cache.time-to-live:PT1H}")
+	private Duration aclCacheTimeToLive;
+
     @Bean 
     public JdbcMutableAclService aclService() { 
     	JdbcMutableAclService jdbcMutableAclService = new JdbcMutableAclService(
@@ -71,21 +87,27 @@ public class AclContext {
 
     @Bean
     public AclCache aclCache() {
-        return new SpringCacheBasedAclCache(
-                new ConcurrentMapCache("aclCache"),
-                permissionGrantingStrategy(),
-                aclAuthorizationStrategy()
-        );
+        return new BoundedAclCache(aclCacheMaxSize, aclCacheTimeToLive, meterRegistry, accessVersion);
     }
     
     @Bean
     public PermissionEvaluator permissionEvaluator() {
-		AclPermissionEvaluator permissionEvaluator = new DmsAclPermissionEvaluator(aclService());
+		AclPermissionEvaluator permissionEvaluator = new DmsAclPermissionEvaluator(aclService(), aclBatchEvaluator());
 		permissionEvaluator.setPermissionFactory(permissionFactory());
 		permissionEvaluator.setSidRetrievalStrategy(sidRetrievalStrategy());
 		return permissionEvaluator;
     }
 
+	@Bean
+	public AclBulkOperations aclBulkOperations() {
+		return new AclBulkOperations(new NamedParameterJdbcTemplate(dataSource), aclCache(), permissionFactory());
+	}
+
+	@Bean
+	public AclBatchEvaluator aclBatchEvaluator() {
+		return new AclBatchEvaluator(lookupStrategy(), sidRetrievalStrategy(), permissionFactory());
+	}
+
     @Bean 
     public LookupStrategy lookupStrategy() { 
         BasicLookupStrategy basicLookupStrategy = new BasicLookupStrategy(
@@ -0,0 +1,202 @@
+package com.example.dms.security.configuration.acl;
+
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.domain.DmsFolder;
+import com.example.dms.services.search.FolderHierarchy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Migrates acls written before documents and folders inherited the entries of their parent folder. Runs once during
+ * startup, before the web server accepts requests, while acls of documents or folders below the root folder are not
+ * linked to a parent (searches restrict results assuming linked acls).
+ * <p>
+ * Linking must not change what anyone can access: before, an object was only granted by its own entries, the
+ * entries of the folders above it (the creator's rights on a folder, READ granted on the folders above an object to
+ * navigate to it, ...) did not reach it. Every acl not linked before is linked to the acl of its parent folder
+ * (missing acls are created), then:
+ * <ul>
+ * <li>an acl already holding every entry its parent grants (own or inherited) inherits, its entries held by the
+ * parent too are removed, they are inherited</li>
+ * <li>any other acl is linked without inheriting entries and keeps its own entries only, folder grants made from now
+ * on don't reach it either</li>
+ * </ul>
+ * Either way every object is granted exactly what it was granted before. Acls linked before the migration are left
+ * as they are. The number of acls keeping only their own entries is logged, their objects at debug level.
+ */
+@Component
+@Log4j2
+public class AclInheritanceMigration implements SmartInitializingSingleton {
+
+	private static final int BATCH_SIZE = 500;
+	private static final String DOCUMENT = DmsDocument.class.getName();
+	private static final String FOLDER = DmsFolder.class.getName();
+
+	private final JdbcTemplate jdbcTemplate;
+	private final AclBulkOperations aclBulkOperations;
+	private final AclCache aclCache;
+	private final FolderHierarchy folderHierarchy;
+	private final TransactionTemplate transactionTemplate;
+	private final boolean enabled;
+	private final String owner;
+
+	public AclInheritanceMigration(JdbcTemplate jdbcTemplate, AclBulkOperations aclBulkOperations, AclCache aclCache,
+								   FolderHierarchy folderHierarchy, TransactionTemplate transactionTemplate,
+								   @Value("${dms.acl.migration.enabled:true}") boolean enabled,
+								   @Value("${dms.acl.migration.owner:admin}") String owner) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.aclBulkOperations = aclBulkOperations;
+		this.aclCache = aclCache;
+		this.folderHierarchy = folderHierarchy;
+		this.transactionTemplate = transactionTemplate;
+		this.enabled = enabled;
+		this.owner = owner;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		migrate();
+	}
+
+	public void migrate() {
+		if (!enabled || !hasUnlinkedAcls()) {
+			return;
+		}
+		log.info("migrating acls to inherit the entries of parent folders...");
+		int[] result = transactionTemplate.execute(status -> {
+			Set<Long> linkedBefore = new HashSet<>(jdbcTemplate.queryForList(
+					"SELECT id FROM acl_object_identity WHERE parent_object IS NOT NULL", Long.class));
+			link();
+			Map<Long, AclRow> acls = acls(linkedBefore);
+			List<Long> notInheriting = new ArrayList<>();
+			List<Long> inherited = new ArrayList<>();
+			acls.values().stream().filter(acl -> acl.migrated).forEach(acl -> {
+				AclRow parent = acls.get(acl.parent);
+				if (inherits(acl, acls)) {
+					Set<String> parentEntries = effectiveEntries(parent, acls);
+					acl.entries.forEach((entry, ids) -> {
+						if (parentEntries.contains(entry)) inherited.addAll(ids);
+					});
+				} else {
+					notInheriting.add(acl.id);
+					log.debug("acl of {} with id: {} keeps only its own entries", acl.objectClass, acl.objectIdentity);
+				}
+			});
+			jdbcTemplate.batchUpdate("UPDATE acl_object_identity SET entries_inheriting = FALSE WHERE id = ?",
+					notInheriting, BATCH_SIZE, (statement, id) -> statement.setLong(1, id));
+			return new int[] {notInheriting.size(), delete(inherited)};
+		});
+		aclCache.clearCache();
+		folderHierarchy.evict();
+		log.info("acl migration finished, acls keeping only their own entries: {}, removed inherited entries: {}",
+				result[0], result[1]);
+	}
+
+	// once migrated only the acls of root folders have no parent
+	private boolean hasUnlinkedAcls() {
+		Set<String> rootFolders = new HashSet<>(jdbcTemplate.queryForList(
+				"SELECT id FROM dms_folder WHERE parent_folder_id IS NULL", String.class));
+		Boolean unlinked = jdbcTemplate.query("SELECT c.class, oi.object_id_identity FROM acl_object_identity oi "
+				+ "JOIN acl_class c ON c.id = oi.object_id_class "
+				+ "WHERE oi.parent_object IS NULL AND c.class IN (?, ?)", rs -> {
+			while (rs.next()) {
+				if (DOCUMENT.equals(rs.getString(1)) || !rootFolders.contains(rs.getString(2))) {
+					return true;
+				}
+			}
+			return false;
+		}, DOCUMENT, FOLDER);
+		return Boolean.TRUE.equals(unlinked);
+	}
+
+	private void link() {
+		Map<ObjectIdentity, ObjectIdentity> parents = new LinkedHashMap<>();
+		jdbcTemplate.query("SELECT id, parent_folder_id FROM dms_folder WHERE parent_folder_id IS NOT NULL", row -> {
+			parents.put(new ObjectIdentityImpl(FOLDER, row.getInt(1)), new ObjectIdentityImpl(FOLDER, row.getInt(2)));
+		});
+		jdbcTemplate.query("SELECT id, parent_folder_id FROM dms_document", row -> {
+			parents.put(new ObjectIdentityImpl(DOCUMENT, row.getInt(1)), new ObjectIdentityImpl(FOLDER, row.getInt(2)));
+		});
+		aclBulkOperations.link(parents, owner);
+	}
+
+	// every acl with its granting entries, linked acls not linked before (or created by linking) are migrated
+	private Map<Long, AclRow> acls(Set<Long> linkedBefore) {
+		Map<Long, AclRow> acls = new HashMap<>();
+		jdbcTemplate.query("SELECT oi.id, oi.parent_object, oi.entries_inheriting, c.class, oi.object_id_identity "
+				+ "FROM acl_object_identity oi JOIN acl_class c ON c.id = oi.object_id_class", row -> {
+			AclRow acl = new AclRow();
+			acl.id = row.getLong(1);
+			long parent = row.getLong(2);
+			acl.parent = row.wasNull() ? null : parent;
+			acl.entriesInheriting = row.getBoolean(3);
+			acl.objectClass = row.getString(4);
+			acl.objectIdentity = row.getString(5);
+			acl.migrated = acl.parent != null && !linkedBefore.contains(acl.id);
+			acls.put(acl.id, acl);
+		});
+		jdbcTemplate.query("SELECT id, acl_object_identity, sid, mask FROM acl_entry WHERE granting = TRUE", row -> {
+			AclRow acl = acls.get(row.getLong(2));
+			acl.entries.computeIfAbsent(row.getLong(3) + ":" + row.getInt(4), entry -> new ArrayList<>())
+					.add(row.getLong(1));
+		});
+		return acls;
+	}
+
+	// a migrated acl inherits only if its own entries already grant everything its parent grants
+	private boolean inherits(AclRow acl, Map<Long, AclRow> acls) {
+		if (acl.inherits == null) {
+			AclRow parent = acl.parent == null ? null : acls.get(acl.parent);
+			acl.inherits = parent != null && (acl.migrated
+					? acl.entries.keySet().containsAll(effectiveEntries(parent, acls)) : acl.entriesInheriting);
+		}
+		return acl.inherits;
+	}
+
+	// own entries and, while inheriting, the entries of the ancestors
+	private Set<String> effectiveEntries(AclRow acl, Map<Long, AclRow> acls) {
+		if (acl.effectiveEntries == null) {
+			Set<String> entries = new HashSet<>(acl.entries.keySet());
+			if (inherits(acl, acls)) {
+				entries.addAll(effectiveEntries(acls.get(acl.parent), acls));
+			}
+			acl.effectiveEntries = entries;
+		}
+		return acl.effectiveEntries;
+	}
+
+	private int delete(List<Long> entryIds) {
+		jdbcTemplate.batchUpdate("DELETE FROM acl_entry WHERE id = ?", entryIds, BATCH_SIZE,
+				(statement, id) -> statement.setLong(1, id));
+		return entryIds.size();
+	}
+
+	private static final class AclRow {
+
+		private long id;
+		private Long parent;
+		private boolean entriesInheriting;
+		private String objectClass;
+		private String objectIdentity;
+		private boolean migrated;
+		// entry ids by sid and mask
+		private final Map<String, List<Long>> entries = new HashMap<>();
+		private Boolean inherits;
+		private Set<String> effectiveEntries;
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.dms.security.configuration.acl;
+
+import com.example.dms.security.AccessVersion;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * Acl cache bounded in size (W-TinyLFU eviction) and in age, with its hit, miss and eviction statistics published
+ * as the aclCache cache metrics.
+ * <p>
+ * Like SpringCacheBasedAclCache every acl is kept under its object identity and under its id, the lookup strategy
+ * reads parent acls by id. When one of the two entries is evicted the other one is removed as well: evicting an acl
+ * (on updateAcl / deleteAcl) finds it through either key, an entry left behind without its partner could not be
+ * evicted anymore and would keep serving the old acl.
+ * <p>
+ * Every acl change evicts the changed acls, evicting or clearing changes the {@link AccessVersion}.
+ */
+public class BoundedAclCache implements AclCache {
+
+	public static final String NAME = "aclCache";
+
+	private final Cache<Serializable, MutableAcl> cache;
+	private final AccessVersion accessVersion;
+
+	public BoundedAclCache(long maximumSize, Duration timeToLive, MeterRegistry meterRegistry,
+						   AccessVersion accessVersion) {
+		this.accessVersion = accessVersion;
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(timeToLive)
+				.recordStats()
+				// runs on the evicting thread, the partner entry is gone before the next lookup can see it
+				.executor(Runnable::run)
+				.removalListener(this::onRemoval)
+				.build();
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+	}
+
+	@Override
+	public void evictFromCache(Serializable pk) {
+		accessVersion.increment();
+		MutableAcl acl = cache.getIfPresent(pk);
+		if (acl != null) {
+			cache.invalidate(pk);
+			cache.invalidate(acl.getObjectIdentity());
+		}
+	}
+
+	@Override
+	public void evictFromCache(ObjectIdentity objectIdentity) {
+		accessVersion.increment();
+		MutableAcl acl = cache.getIfPresent(objectIdentity);
+		if (acl != null) {
+			cache.invalidate(objectIdentity);
+			cache.invalidate(acl.getId());
+		}
+	}
+
+	@Override
+	public MutableAcl getFromCache(ObjectIdentity objectIdentity) {
+		return cache.getIfPresent(objectIdentity);
+	}
+
+	@Override
+	public MutableAcl getFromCache(Serializable pk) {
+		return cache.getIfPresent(pk);
+	}
+
+	@Override
+	public void putInCache(MutableAcl acl) {
+		if (acl.getParentAcl() instanceof MutableAcl) {
+			putInCache((MutableAcl) acl.getParentAcl());
+		}
+		cache.put(acl.getObjectIdentity(), acl);
+		cache.put(acl.getId(), acl);
+	}
+
+	@Override
+	public void clearCache() {
+		accessVersion.increment();
+		cache.invalidateAll();
+	}
+
+	public long estimatedSize() {
+		return cache.estimatedSize();
+	}
+
+	private void onRemoval(Serializable key, MutableAcl acl, RemovalCause cause) {
+		if (!cause.wasEvicted() || acl == null) {
+			return;
+		}
+		Serializable partner = key instanceof ObjectIdentity ? acl.getId() : acl.getObjectIdentity();
+		// only the same acl is removed, the partner key may already hold a newer one
+		cache.asMap().remove(partner, acl);
+	}
+}
@@ -1,47 +1,44 @@
 package com.example.dms.security.configuration.acl;
 
-import com.example.dms.utils.Roles;
+import com.example.dms.security.PrincipalAuthorityService;
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.acls.AclPermissionEvaluator;
 import org.springframework.security.acls.model.AclService;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public class DmsAclPermissionEvaluator extends AclPermissionEvaluator implements PermissionEvaluator{
 
-	public DmsAclPermissionEvaluator(AclService aclService) {
+	private final AclBatchEvaluator batchEvaluator;
+
+	public DmsAclPermissionEvaluator(AclService aclService, AclBatchEvaluator batchEvaluator) {
 		super(aclService);
+		this.batchEvaluator = batchEvaluator;
 	}
 
 	@Override
 	public boolean hasPermission(Authentication authentication, Object domainObject, Object permission) {
-		if (checkAuthoritiesForAdminRole(authentication.getAuthorities())) return true;
+		if (PrincipalAuthorityService.isAdmin(authentication)) return true;
 		return super.hasPermission(authentication, domainObject, permission);
 	}
 
 	@Override
 	public boolean hasPermission(Authentication authentication, Serializable targetId, String targetType, Object permission) {
-		if (checkAuthoritiesForAdminRole(authentication.getAuthorities())) return true;
+		if (PrincipalAuthorityService.isAdmin(authentication)) return true;
 		return super.hasPermission(authentication, targetId, targetType, permission);
 	}
 	
-	private boolean checkAuthoritiesForAdminRole(Collection<? extends GrantedAuthority> authorities) {
-		boolean retVal = false;
-		for (GrantedAuthority authority : authorities) {
-			if (authority.getAuthority().equals(Roles.ROLE_ADMIN.name())) retVal = true;
-		}
-		return retVal;
-	}
-	
+	/**
+	 * Whether the permission is granted on every object, all acls are read and evaluated at once.
+	 */
 	public boolean hasPermission(Collection<Object> targetDomainIds, String targetType, Object permission, Authentication authentication) {
-		for (Object targetDomainId : targetDomainIds) {
-			if (!hasPermission(authentication, (Serializable) targetDomainId, targetType, permission))
-				return false;
-		}
-		return true;
+		if (PrincipalAuthorityService.isAdmin(authentication)) return true;
+		List<Serializable> ids = targetDomainIds.stream().map(Serializable.class::cast).collect(Collectors.toList());
+		return batchEvaluator.isGrantedAll(targetType, ids, authentication, permission);
 	}
 	
 }
@@ -0,0 +1,15 @@
+package com.example.dms.services;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public interface ArchiveService {
+
+	/**
+	 * ZIP archive of the current versions of all readable documents in the folder and its subfolders. The
+	 * documents are collected up front, their content is streamed into the response one entry at a time.
+	 */
+	@PreAuthorize("hasPermission(#folderId,'com.example.dms.domain.DmsFolder','READ') || hasAuthority('READ_PRIVILEGE')")
+	ResponseEntity<StreamingResponseBody> downloadFolder(Integer folderId);
+}
@@ -0,0 +1,40 @@
+package com.example.dms.services;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface BlobService {
+
+	/**
+	 * Stores the stream in the content store and returns the digest of the original content, content that is already
+	 * stored is not written again. The content is compressed unless its type is already compressed. The stream is
+	 * closed once it was consumed. The returned digest is only protected from garbage collection once a reference
+	 * is added.
+	 */
+	String store(InputStream inputStream, String contentType);
+
+	/**
+	 * Same as store, if delta storage is enabled the content is stored as a binary diff against the base content
+	 * (usually the previous version of the document). Content is stored in full when the delta chain of the base
+	 * reached its maximum length or the diff is not considerably smaller than the content.
+	 */
+	String store(InputStream inputStream, String contentType, String baseDigest);
+
+	/**
+	 * Opens a stream over the decoded content, the caller is responsible for closing it.
+	 */
+	InputStream read(String digest) throws IOException;
+
+	/**
+	 * Resource over the decoded content used for serving downloads.
+	 */
+	Resource getResource(String digest, String filename) throws IOException;
+
+	void addReference(String digest);
+
+	void releaseReference(String digest);
+
+	int collectGarbage();
+}
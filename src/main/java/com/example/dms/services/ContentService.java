@@ -1,13 +1,20 @@
 package com.example.dms.services;
 
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+
 public interface ContentService {
 	@PreAuthorize("hasPermission(#id,'com.example.dms.domain.DmsDocument','WRITE') || hasAuthority('WRITE_PRIVILEGE')")
 	void uploadFile(Integer id, MultipartFile file);
 
+	@PreAuthorize("hasPermission(#id,'com.example.dms.domain.DmsDocument','WRITE') || hasAuthority('WRITE_PRIVILEGE')")
+	String storeContent(Integer id, InputStream inputStream, long contentSize, String contentType, String originalFileName);
+
 	@PreAuthorize("hasPermission(#id,'com.example.dms.domain.DmsDocument','READ') || hasAuthority('READ_PRIVILEGE')")
-	ResponseEntity<byte[]> downloadContent(Integer id);
+	ResponseEntity<Resource> downloadContent(Integer id, HttpHeaders requestHeaders);
 }
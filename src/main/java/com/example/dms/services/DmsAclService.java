@@ -2,11 +2,14 @@ package com.example.dms.services;
 
 import com.example.dms.api.dtos.administration.GrantDTO;
 import com.example.dms.domain.security.AclAllowedClass;
+import com.example.dms.services.search.AclSpecification;
 import org.springframework.security.acls.model.Permission;
 import org.springframework.security.acls.model.Sid;
+import org.springframework.security.core.Authentication;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public interface DmsAclService {
@@ -27,7 +30,53 @@ public interface DmsAclService {
 
 	<T extends AclAllowedClass> void copyRightsToAnotherEntity(T original, T copy);
 
+	/**
+	 * Grants the permissions of every user or group on every object with a few batched statements instead of
+	 * rewriting the acl of every object. Admins are skipped like in grantRightsOnObject.
+	 */
+	<T extends AclAllowedClass> void grantRightsOnObjects(Map<T, Map<String, Collection<Permission>>> grants);
+
+	/**
+	 * Copies the rights on every original (the keys) to its copy, together with the additional grants on every copy,
+	 * reading and writing the acls of all objects at once.
+	 */
+	<T extends AclAllowedClass> void copyRightsToOtherEntities(Map<T, T> copies,
+															   Map<String, Collection<Permission>> additionalGrants);
+
+	/**
+	 * Links the acls of the objects to the acls of their current parents, e.g. after they were moved, so they
+	 * inherit the entries of their new parents.
+	 */
+	<T extends AclAllowedClass> void linkToParents(Collection<T> objects);
+
 	<T extends AclAllowedClass> Set<String> getRecipients(T object);
 
 	<T extends AclAllowedClass> Set<String> getRecipients(T object, String filterPermission);
+
+	/**
+	 * Ids of the objects of the given type the user holds the permission on. Acls are read in batches instead
+	 * of one lookup per object.
+	 */
+	Set<Integer> filterGranted(Class<? extends AclAllowedClass> type, Collection<Integer> ids,
+							   Authentication authentication, Permission permission);
+
+	/**
+	 * Query restriction to the objects of the given type the user holds the permission on, null (no restriction)
+	 * for administrators.
+	 */
+	<T extends AclAllowedClass> AclSpecification<T> grantedSpecification(Class<T> type, Authentication authentication,
+																	  Permission permission);
+
+	/**
+	 * Ids of the objects of the given type the user may read: all of them with the READ privilege, otherwise the ones
+	 * the user holds READ on.
+	 */
+	Set<Integer> filterReadable(Class<? extends AclAllowedClass> type, Collection<Integer> ids,
+								Authentication authentication);
+
+	/**
+	 * Query restriction to the objects of the given type the user may read, null (no restriction) with the READ
+	 * privilege.
+	 */
+	<T extends AclAllowedClass> AclSpecification<T> readableSpecification(Class<T> type, Authentication authentication);
 }
@@ -0,0 +1,16 @@
+package com.example.dms.services;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+public interface DocumentExportService {
+
+	/**
+	 * Readable documents matching the search as newline delimited JSON, one document per line with the given fields
+	 * (all fields without them). The rows are read with a forward only cursor and written in batches while the
+	 * query runs, at most one batch is held in memory.
+	 */
+	ResponseEntity<StreamingResponseBody> exportDocuments(String search, List<String> fields);
+}
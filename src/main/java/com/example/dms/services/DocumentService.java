@@ -2,16 +2,27 @@ package com.example.dms.services;
 
 import com.example.dms.api.dtos.SortDTO;
 import com.example.dms.api.dtos.document.DmsDocumentDTO;
+import com.example.dms.api.dtos.document.FacetCountDTO;
+import com.example.dms.api.dtos.document.KeywordCountDTO;
 import com.example.dms.api.dtos.document.ModifyDocumentDTO;
 import com.example.dms.api.dtos.document.NewDocumentDTO;
 import com.example.dms.domain.DmsDocument;
+import com.example.dms.services.search.CursorPage;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 
 import java.util.List;
+import java.util.Map;
 
 public interface DocumentService extends CrudService<DmsDocument, DmsDocumentDTO, Integer>{
 
 	DmsDocumentDTO createDocument(NewDocumentDTO newDocumentDTO);
 
+	/**
+	 * Document metadata with validators, conditional requests are answered without loading the document.
+	 */
+	ResponseEntity<DmsDocumentDTO> findById(Integer id, HttpHeaders requestHeaders);
+
 	DmsDocumentDTO createNewVersion(Integer id);
 
 	DmsDocumentDTO createNewBranch(Integer id);
@@ -20,7 +31,31 @@ public interface DocumentService extends CrudService<DmsDocument, DmsDocumentDTO
 
 	DmsDocumentDTO updateDocument(Integer id, ModifyDocumentDTO modifyDocumentDTO, boolean patch);
 
-	List<DmsDocumentDTO> searchAll(String search, SortDTO sort);
+	/**
+	 * Page of the search results in the order of the sort, the cursor of the previous page continues after its
+	 * last row. Page sizes are capped by dms.search.page-size.max.
+	 */
+	CursorPage<DmsDocumentDTO> searchAll(String search, SortDTO sort, String cursor, Integer size);
+
+	/**
+	 * Same page as searchAll with only the given fields (by their JSON names) of every document, only their columns
+	 * are read. Without fields the document columns the current user displays are returned. The id is always part
+	 * of the rows.
+	 */
+	CursorPage<Map<String, Object>> searchFields(String search, SortDTO sort, String cursor, Integer size,
+												 List<String> fields);
+
+	/**
+	 * Number of readable documents matching the search per value of each facet: type, creator, folder (id), month
+	 * (yyyy-MM) or year of the creation date. Without facets type, creator, folder and month are counted.
+	 */
+	Map<String, List<FacetCountDTO>> getFacets(String search, List<String> facets, Integer size);
+
+	/**
+	 * Number of readable documents per keyword, most used keywords first. Keywords are counted case insensitively,
+	 * a prefix limits the counts to the keywords starting with it.
+	 */
+	List<KeywordCountDTO> getKeywordCounts(String prefix, Integer size);
 
 	List<DmsDocumentDTO> copyDocuments(Integer folderId, List<Integer> documentIdList);
 
@@ -19,4 +19,10 @@ public interface FolderService extends CrudService<DmsFolder, DmsFolderDTO, Inte
 
 	DmsFolderDTO createFolder(NewFolderDTO newFolderDTO);
 
+	/**
+	 * Entity tag of the folder listings of the current user, it changes whenever a folder or document is created,
+	 * modified or deleted or rights are granted or revoked.
+	 */
+	String getListingETag();
+
 }
@@ -0,0 +1,14 @@
+package com.example.dms.services;
+
+import com.example.dms.api.dtos.document.DmsDocumentDTO;
+
+import java.util.List;
+
+public interface FullTextSearchService {
+
+	/**
+	 * Documents matching the query (Lucene query syntax over name, keywords, description and content text) ordered
+	 * by relevance, limited to the documents the caller can read.
+	 */
+	List<DmsDocumentDTO> search(String query, Integer size);
+}
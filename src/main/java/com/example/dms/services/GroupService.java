@@ -4,6 +4,7 @@ import com.example.dms.api.dtos.SortDTO;
 import com.example.dms.api.dtos.group.DmsGroupDTO;
 import com.example.dms.api.dtos.group.NewGroupDTO;
 import com.example.dms.domain.DmsGroup;
+import com.example.dms.services.search.CursorPage;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -18,5 +19,5 @@ public interface GroupService extends CrudService<DmsGroup, DmsGroupDTO, Integer
 
 	DmsGroupDTO updateGroup(Integer id, NewGroupDTO groupDTO);
 
-	List<DmsGroupDTO> searchAll(String search, SortDTO sort);
+	CursorPage<DmsGroupDTO> searchAll(String search, SortDTO sort, String cursor, Integer size);
 }
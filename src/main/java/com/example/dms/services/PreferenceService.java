@@ -10,4 +10,10 @@ public interface PreferenceService {
 
 	List<DmsDocumentColumnPreference> saveDocColPref(String username, List<DmsDocumentColumnPreference> preferences);
 
+	/**
+	 * Identifiers of the document columns the user displays in the configured order, columns without a saved
+	 * preference are displayed.
+	 */
+	List<String> getDisplayedDocColumns(String username);
+
 }
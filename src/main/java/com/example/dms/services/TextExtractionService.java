@@ -0,0 +1,17 @@
+package com.example.dms.services;
+
+public interface TextExtractionService {
+
+	/**
+	 * Requests the text extraction of stored content as part of the current transaction, the content is extracted
+	 * in the background once the transaction commits. Content types no text can be extracted from are ignored.
+	 */
+	void request(String storageKey, String contentType);
+
+	/**
+	 * Requests the extraction of all stored content that was never extracted or whose extraction failed, with all
+	 * set content that was extracted already is extracted again (after upgrading the extractors). Returns the number
+	 * of requested contents.
+	 */
+	int requestAll(boolean all);
+}
@@ -0,0 +1,23 @@
+package com.example.dms.services;
+
+import com.example.dms.api.dtos.content.NewUploadSessionDTO;
+import com.example.dms.api.dtos.content.UploadSessionDTO;
+import org.springframework.security.access.prepost.PreAuthorize;
+
+import java.io.InputStream;
+
+public interface UploadSessionService {
+
+	@PreAuthorize("hasPermission(#documentId,'com.example.dms.domain.DmsDocument','WRITE') || hasAuthority('WRITE_PRIVILEGE')")
+	UploadSessionDTO createSession(Integer documentId, NewUploadSessionDTO newUploadSessionDTO);
+
+	UploadSessionDTO getSession(String sessionKey);
+
+	UploadSessionDTO uploadChunk(String sessionKey, int chunkNumber, String checksum, InputStream inputStream);
+
+	UploadSessionDTO commit(String sessionKey);
+
+	void abort(String sessionKey);
+
+	void removeExpiredSessions();
+}
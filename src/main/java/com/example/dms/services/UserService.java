@@ -5,8 +5,7 @@ import com.example.dms.api.dtos.user.DmsUserDTO;
 import com.example.dms.api.dtos.user.NewUserDTO;
 import com.example.dms.api.dtos.user.UpdateUserDTO;
 import com.example.dms.domain.DmsUser;
-
-import java.util.List;
+import com.example.dms.services.search.CursorPage;
 
 public interface UserService extends CrudService<DmsUser, DmsUserDTO, Integer>{
 
@@ -18,5 +17,5 @@ public interface UserService extends CrudService<DmsUser, DmsUserDTO, Integer>{
 
 	DmsUserDTO updateUser(UpdateUserDTO userDTO, Integer id, boolean patch);
 
-	List<DmsUserDTO> searchAll(String search, SortDTO sort);
+	CursorPage<DmsUserDTO> searchAll(String search, SortDTO sort, String cursor, Integer size);
 }
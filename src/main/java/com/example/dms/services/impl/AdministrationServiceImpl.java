@@ -11,7 +11,6 @@ import com.example.dms.services.DmsAclService;
 import com.example.dms.services.NotificationService;
 import com.example.dms.utils.ActionEnum;
 import com.example.dms.utils.Permissions;
-import com.example.dms.utils.Utils;
 import com.example.dms.utils.exceptions.DmsNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
@@ -26,8 +25,6 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import static com.example.dms.utils.Permissions.READ;
-
 @Service
 @RequiredArgsConstructor
 @Transactional
@@ -78,11 +75,6 @@ public class AdministrationServiceImpl implements AdministrationService {
 		DmsDocument document = documentRepository.findById(id).orElseThrow(DmsNotFoundException::new);
 		List<GrantDTO> granted = this.grantRightsToSid(dtos, document);
 
-		List<GrantDTO> readDtos = dtos.stream()
-				.map(dto -> new GrantDTO(dto.getUsername(), Utils.toSet(READ.name())))
-				.collect(Collectors.toList());
-		this.grantReadRightsToAllParentFolders(readDtos, document.getParentFolder());
-
 		notificationService.createAclNotification(document, ActionEnum.ADMINISTRATE);
 		return granted;
 	}
@@ -91,13 +83,9 @@ public class AdministrationServiceImpl implements AdministrationService {
 	@PreAuthorize("hasAuthority('ADMINISTRATION_PRIVILEGE') || hasPermission(#id,'com.example.dms.domain.DmsFolder','ADMINISTRATION')")
 	public List<GrantDTO> grantRightsForFolder(List<GrantDTO> dtos, Integer id) {
 		DmsFolder folder = folderRepository.findById(id).orElseThrow(DmsNotFoundException::new);
+		// subfolders and documents of the folder inherit its entries
 		List<GrantDTO> granted = this.grantRightsToSid(dtos, folder);
 
-		List<GrantDTO> readDtos = dtos.stream()
-				.map(dto -> new GrantDTO(dto.getUsername(), Utils.toSet(READ.name())))
-				.collect(Collectors.toList());
-		this.grantReadRightsToAllParentFolders(readDtos, folder.getParentFolder());
-
 		notificationService.createAclNotification(folder, ActionEnum.ADMINISTRATE);
 		return granted;
 	}
@@ -119,12 +107,4 @@ public class AdministrationServiceImpl implements AdministrationService {
 	private Map<String, Set<String>> grantDTOToMap(List<GrantDTO> dtos) {
 		return dtos.stream().collect(Collectors.toMap(GrantDTO::getUsername, GrantDTO::getPermissions));
 	}
-
-	private void grantReadRightsToAllParentFolders(List<GrantDTO> dtos, DmsFolder parentFolder) {
-		if (!parentFolder.isRoot()) {
-			log.info("Granting READ to parent folder: {}", parentFolder.getName());
-			this.grantRightsToSid(dtos, parentFolder);
-			grantReadRightsToAllParentFolders(dtos, parentFolder.getParentFolder());
-		}
-	}
 }
@@ -0,0 +1,158 @@
+package com.example.dms.services.impl;
+
+import com.example.dms.domain.DmsContent;
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.domain.DmsFolder;
+import com.example.dms.repositories.DocumentRepository;
+import com.example.dms.repositories.FolderRepository;
+import com.example.dms.services.ArchiveService;
+import com.example.dms.services.AuthenticationUtil;
+import com.example.dms.services.BlobService;
+import com.example.dms.services.DmsAclService;
+import com.example.dms.services.storage.CompressionPolicy;
+import com.example.dms.services.storage.ContentMigrationService;
+import com.example.dms.utils.HttpCacheUtils;
+import com.example.dms.utils.exceptions.DmsNotFoundException;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class ArchiveServiceImpl implements ArchiveService {
+
+	private final FolderRepository folderRepository;
+	private final DocumentRepository documentRepository;
+	private final DmsAclService aclService;
+	private final AuthenticationUtil authUtil;
+	private final BlobService blobService;
+	private final CompressionPolicy compressionPolicy;
+	private final ContentMigrationService contentMigrationService;
+
+	@Override
+	@Transactional
+	@PreAuthorize("hasPermission(#folderId,'com.example.dms.domain.DmsFolder','READ') || hasAuthority('READ_PRIVILEGE')")
+	public ResponseEntity<StreamingResponseBody> downloadFolder(Integer folderId) {
+		DmsFolder folder = folderRepository.findById(folderId).orElseThrow(DmsNotFoundException::new);
+		List<ArchiveEntry> entries = collectEntries(folder);
+		log.debug("archiving folder: {} with {} documents", folderId, entries.size());
+
+		String filename = (folder.isRoot() ? "documents" : folder.getName()) + ".zip";
+		return ResponseEntity.ok()
+				.contentType(MediaType.valueOf("application/zip"))
+				.header(HttpHeaders.CONTENT_DISPOSITION,
+						ContentDisposition.attachment().filename(filename, StandardCharsets.UTF_8).build().toString())
+				.body(outputStream -> writeArchive(entries, outputStream));
+	}
+
+	private List<ArchiveEntry> collectEntries(DmsFolder root) {
+		// the subtree is read one level at a time, walking the subfolder collections would load every folder separately
+		Map<Integer, String> paths = new HashMap<>();
+		paths.put(root.getId(), "");
+		Map<Integer, String> level = Map.of(root.getId(), "");
+		while (!level.isEmpty()) {
+			Map<Integer, String> next = new HashMap<>();
+			for (DmsFolder child : folderRepository.findAllByParentFolderIdIn(level.keySet())) {
+				String path = level.get(child.getParentFolder().getId()) + child.getName().replace('/', '_') + "/";
+				if (paths.putIfAbsent(child.getId(), path) == null) {
+					next.put(child.getId(), path);
+				}
+			}
+			level = next;
+		}
+
+		// older versions are immutable, only the current versions (and branches) are exported
+		List<DmsDocument> documents = documentRepository.findAllByParentFolderIdIn(paths.keySet()).stream()
+				.filter(document -> !document.isImmutable() && document.getContent() != null)
+				.collect(Collectors.toList());
+		Set<Integer> readable = readableDocuments(documents);
+
+		List<ArchiveEntry> entries = new ArrayList<>();
+		Set<String> names = new HashSet<>();
+		documents.sort(Comparator.comparing(DmsDocument::getId));
+		for (DmsDocument document : documents) {
+			if (!readable.contains(document.getId())) continue;
+			DmsContent content = document.getContent();
+			String storageKey = contentMigrationService.ensureMigrated(content);
+			String name = content.getOriginalFileName() != null ? content.getOriginalFileName() : document.getObjectName();
+			String path = uniqueName(paths.get(document.getParentFolder().getId()) + name.replace('/', '_'), names);
+			entries.add(new ArchiveEntry(path, storageKey, content.getContentType(),
+					HttpCacheUtils.toEpochMillis(content.getModifyDate())));
+		}
+		return entries;
+	}
+
+	private Set<Integer> readableDocuments(List<DmsDocument> documents) {
+		Set<Integer> ids = documents.stream().map(DmsDocument::getId).collect(Collectors.toSet());
+		return aclService.filterReadable(DmsDocument.class, ids, authUtil.getCurrentAuthentication());
+	}
+
+	// documents of one folder may share a file name (branches of the same document for example)
+	private String uniqueName(String path, Set<String> names) {
+		String candidate = path;
+		int extension = path.lastIndexOf('.');
+		boolean hasExtension = extension > path.lastIndexOf('/') + 1;
+		for (int i = 1; !names.add(candidate); i++) {
+			candidate = hasExtension ? path.substring(0, extension) + " (" + i + ")" + path.substring(extension)
+					: path + " (" + i + ")";
+		}
+		return candidate;
+	}
+
+	private void writeArchive(List<ArchiveEntry> entries, OutputStream outputStream) throws IOException {
+		ZipOutputStream zip = new ZipOutputStream(outputStream);
+		for (ArchiveEntry entry : entries) {
+			// already compressed content only gets bigger when it is deflated again
+			zip.setLevel(compressionPolicy.isPrecompressed(entry.contentType) ? Deflater.NO_COMPRESSION
+					: Deflater.DEFAULT_COMPRESSION);
+			ZipEntry zipEntry = new ZipEntry(entry.path);
+			if (entry.lastModified > 0) {
+				zipEntry.setTime(entry.lastModified);
+			}
+			zip.putNextEntry(zipEntry);
+			try (InputStream inputStream = blobService.read(entry.storageKey)) {
+				inputStream.transferTo(zip);
+			} catch (IOException | RuntimeException e) {
+				// the response is already committed, the client sees a truncated archive
+				log.error("could not archive content with key: {}", entry.storageKey, e);
+				throw e;
+			}
+			zip.closeEntry();
+		}
+		zip.finish();
+		zip.flush();
+	}
+
+	@AllArgsConstructor
+	private static class ArchiveEntry {
+		private final String path;
+		private final String storageKey;
+		private final String contentType;
+		private final long lastModified;
+	}
+}
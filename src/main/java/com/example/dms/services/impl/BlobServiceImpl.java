@@ -0,0 +1,395 @@
+package com.example.dms.services.impl;
+
+import com.example.dms.domain.DmsBlob;
+import com.example.dms.repositories.BlobRepository;
+import com.example.dms.repositories.BlobRepository.StorageTotals;
+import com.example.dms.repositories.ExtractedTextRepository;
+import com.example.dms.services.BlobService;
+import com.example.dms.services.storage.BinaryDelta;
+import com.example.dms.services.storage.CompressionPolicy;
+import com.example.dms.services.storage.ContentCodec;
+import com.example.dms.services.storage.ContentStore;
+import com.example.dms.services.storage.DecodedResource;
+import com.example.dms.services.storage.StagedContent;
+import com.example.dms.utils.StorageUtils;
+import com.example.dms.utils.exceptions.InternalException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Log4j2
+@Transactional
+public class BlobServiceImpl implements BlobService {
+
+	private final BlobRepository blobRepository;
+	private final ExtractedTextRepository extractedTextRepository;
+	private final ContentStore contentStore;
+	private final CompressionPolicy compressionPolicy;
+	private final TransactionTemplate transactionTemplate;
+	private final TransactionTemplate registerTemplate;
+	private final Duration gracePeriod;
+	private final boolean deltaEnabled;
+	private final int maxChainLength;
+	private final double maxDeltaRatio;
+	private final Path workDirectory;
+	private final MeterRegistry meterRegistry;
+	private final Counter originalBytes;
+	private final Counter storedBytes;
+	// totals of all stored content for the compression ratio gauge, read from the database on the first scrape and
+	// after garbage collection, kept up to date in between as content is registered
+	private final AtomicLong totalContentSize = new AtomicLong();
+	private final AtomicLong totalStoredSize = new AtomicLong();
+	private volatile boolean totalsLoaded = false;
+
+	public BlobServiceImpl(BlobRepository blobRepository, ExtractedTextRepository extractedTextRepository,
+						   ContentStore contentStore, CompressionPolicy compressionPolicy,
+						   TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+						   @Value("${dms.content.gc.grace-period:PT1H}") Duration gracePeriod,
+						   @Value("${dms.content.delta.enabled:false}") boolean deltaEnabled,
+						   @Value("${dms.content.delta.max-chain-length:10}") int maxChainLength,
+						   @Value("${dms.content.delta.max-ratio:0.5}") double maxDeltaRatio,
+						   @Value("${dms.content.delta.location:delta-work}") String workLocation) throws IOException {
+		this.blobRepository = blobRepository;
+		this.extractedTextRepository = extractedTextRepository;
+		this.contentStore = contentStore;
+		this.compressionPolicy = compressionPolicy;
+		this.transactionTemplate = transactionTemplate;
+		this.registerTemplate = new TransactionTemplate(Objects.requireNonNull(transactionTemplate.getTransactionManager()));
+		this.registerTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.gracePeriod = gracePeriod;
+		this.deltaEnabled = deltaEnabled;
+		this.maxChainLength = maxChainLength;
+		this.maxDeltaRatio = maxDeltaRatio;
+		this.workDirectory = Paths.get(workLocation).toAbsolutePath().normalize();
+		if (deltaEnabled) {
+			Files.createDirectories(workDirectory);
+		}
+		this.meterRegistry = meterRegistry;
+		this.originalBytes = Counter.builder("dms.content.written.bytes").tag("size", "original").baseUnit("bytes")
+				.description("Size of the content written to the content store before encoding").register(meterRegistry);
+		this.storedBytes = Counter.builder("dms.content.written.bytes").tag("size", "stored").baseUnit("bytes")
+				.description("Size of the data written to the content store").register(meterRegistry);
+		Gauge.builder("dms.content.compression.ratio", this, BlobServiceImpl::storedCompressionRatio)
+				.description("Original size divided by stored size over all stored content").register(meterRegistry);
+	}
+
+	@Override
+	public String store(InputStream inputStream, String contentType) {
+		ContentCodec codec = compressionPolicy.select(contentType);
+		DigestInputStream digestInputStream = new DigestInputStream(inputStream, StorageUtils.newDigest());
+		CountingInputStream countingInputStream = new CountingInputStream(digestInputStream);
+
+		StagedContent staged = stage(countingInputStream, codec);
+		// the key is the digest of the original content so identical content is found whatever it is encoded with
+		String digest = StorageUtils.toHex(digestInputStream.getMessageDigest().digest());
+		register(staged, digest, countingInputStream.getCount(), codec, null);
+		return digest;
+	}
+
+	@Override
+	public String store(InputStream inputStream, String contentType, String baseDigest) {
+		DmsBlob base = !deltaEnabled || baseDigest == null || compressionPolicy.isPrecompressed(contentType) ? null
+				: blobRepository.readByDigest(baseDigest).orElse(null);
+		if (base == null || chainLength(base) >= maxChainLength) {
+			// stored in full, this blob becomes the keyframe following versions are diffed against
+			return store(inputStream, contentType);
+		}
+
+		Path target = null;
+		Path basePath = null;
+		Path delta = null;
+		try {
+			target = Files.createTempFile(workDirectory, "target", ".part");
+			DigestInputStream digestInputStream = new DigestInputStream(inputStream, StorageUtils.newDigest());
+			try (InputStream in = digestInputStream) {
+				Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+			String digest = StorageUtils.toHex(digestInputStream.getMessageDigest().digest());
+			long contentSize = Files.size(target);
+			if (blobRepository.readByDigest(digest).isPresent()) {
+				return store(Files.newInputStream(target), contentType);
+			}
+
+			basePath = materialize(baseDigest);
+			delta = Files.createTempFile(workDirectory, "delta", ".part");
+			try (OutputStream out = Files.newOutputStream(delta)) {
+				BinaryDelta.encode(basePath, target, out);
+			}
+			if (Files.size(delta) > contentSize * maxDeltaRatio) {
+				log.debug("delta against: {} is too large, storing content in full", baseDigest);
+				return store(Files.newInputStream(target), contentType);
+			}
+
+			ContentCodec codec = compressionPolicy.select(contentType);
+			StagedContent staged = stage(Files.newInputStream(delta), codec);
+			register(staged, digest, contentSize, codec, base);
+			return digest;
+		} catch (IOException e) {
+			log.error("could not store content as delta of: {}", baseDigest, e);
+			throw new InternalException("Could not store content.");
+		} finally {
+			deleteQuietly(target);
+			deleteQuietly(basePath);
+			deleteQuietly(delta);
+		}
+	}
+
+	private StagedContent stage(InputStream inputStream, ContentCodec codec) {
+		try (InputStream encoded = codec == null ? inputStream : codec.encode(inputStream)) {
+			return contentStore.stage(encoded);
+		} catch (IOException e) {
+			throw new InternalException("Could not store content.");
+		}
+	}
+
+	private void register(StagedContent staged, String digest, long contentSize, ContentCodec codec, DmsBlob base) {
+		String codecName = codec == null ? null : codec.getName();
+		String baseDigest = base == null ? null : base.getDigest();
+		AtomicBoolean created = new AtomicBoolean();
+		try {
+			// register before publishing, a garbage collection running for the same digest either finishes
+			// before the register call returns or skips the blob since it was just used
+			DmsBlob blob = registerTemplate.execute(status -> {
+				// decided by the insert, of two concurrent stores of a new digest only one inserts the blob
+				created.set(blobRepository.insertIfAbsent(digest, contentSize, staged.getSize(), codecName,
+						baseDigest, base == null ? 0 : chainLength(base) + 1) > 0);
+				if (!created.get()) {
+					blobRepository.markUsed(digest);
+				} else if (baseDigest != null) {
+					// the base can't be collected while deltas against it exist, committed together with the insert
+					blobRepository.incrementReferenceCount(baseDigest);
+				}
+				return blobRepository.readByDigest(digest).orElseThrow();
+			});
+			if (Objects.equals(blob.getCodec(), codecName) && Objects.equals(blob.getBaseDigest(), baseDigest)) {
+				contentStore.publish(staged, digest);
+			} else {
+				// stored before with another encoding, the existing data stays
+				contentStore.discard(staged);
+			}
+		} catch (IOException | RuntimeException e) {
+			contentStore.discard(staged);
+			log.error("could not publish content with digest: {}", digest, e);
+			throw new InternalException("Could not store content.");
+		}
+
+		if (created.get()) {
+			totalContentSize.addAndGet(contentSize);
+			totalStoredSize.addAndGet(staged.getSize());
+		}
+		originalBytes.increment(contentSize);
+		storedBytes.increment(staged.getSize());
+		if (codec != null && staged.getSize() > 0) {
+			DistributionSummary.builder("dms.content.compression.write.ratio").tag("codec", codecName)
+					.description("Original size divided by stored size of written content").register(meterRegistry)
+					.record((double) contentSize / staged.getSize());
+		}
+		log.debug("stored content with digest: {}, size: {}, stored size: {}, codec: {}, base: {}", digest, contentSize,
+				staged.getSize(), codecName, baseDigest);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public InputStream read(String digest) throws IOException {
+		DmsBlob blob = blobRepository.readByDigest(digest).orElse(null);
+		ContentCodec codec = blob == null ? null : compressionPolicy.getCodec(blob.getCodec());
+		InputStream inputStream = contentStore.read(digest);
+		InputStream decoded = codec == null ? inputStream : codec.decode(inputStream);
+		if (blob == null || blob.getBaseDigest() == null) {
+			return decoded;
+		}
+
+		// the chain length is bounded, reconstructing a version applies at most max-chain-length deltas
+		Path basePath;
+		try {
+			basePath = materialize(blob.getBaseDigest());
+		} catch (IOException | RuntimeException e) {
+			decoded.close();
+			throw e;
+		}
+		return new FilterInputStream(BinaryDelta.apply(basePath, decoded)) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					deleteQuietly(basePath);
+				}
+			}
+		};
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Resource getResource(String digest, String filename) throws IOException {
+		// content migrated from the legacy column is keyed by uuid and has no blob row, it is never encoded
+		DmsBlob blob = blobRepository.readByDigest(digest).orElse(null);
+		if (blob == null || (blob.getCodec() == null && blob.getBaseDigest() == null)) {
+			return contentStore.getResource(digest, filename);
+		}
+		return new DecodedResource(contentStore, digest, () -> read(digest), blob.getContentSize(), filename);
+	}
+
+	// base content of a delta is read at random positions, it is reconstructed into a temporary file
+	private Path materialize(String digest) throws IOException {
+		Path path = Files.createTempFile(workDirectory, "base", ".part");
+		try (InputStream inputStream = read(digest)) {
+			Files.copy(inputStream, path, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException | RuntimeException e) {
+			deleteQuietly(path);
+			throw e;
+		}
+		return path;
+	}
+
+	// blobs stored before delta storage existed have no chain length
+	private int chainLength(DmsBlob blob) {
+		return blob.getChainLength() == null ? 0 : blob.getChainLength();
+	}
+
+	private void deleteQuietly(Path path) {
+		if (path == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			log.warn("could not delete temporary file: {}", path, e);
+		}
+	}
+
+	@Override
+	public void addReference(String digest) {
+		if (blobRepository.incrementReferenceCount(digest) == 0) {
+			log.debug("content with key: {} is not reference counted", digest);
+		}
+	}
+
+	@Override
+	public void releaseReference(String digest) {
+		if (blobRepository.decrementReferenceCount(digest) == 0) {
+			log.debug("content with key: {} is not reference counted", digest);
+		}
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	@Scheduled(fixedDelayString = "${dms.content.gc.interval:PT1H}", initialDelayString = "${dms.content.gc.initial-delay:PT5M}")
+	public int collectGarbage() {
+		LocalDateTime threshold = LocalDateTime.now().minus(gracePeriod);
+		List<String> digests = blobRepository.findUnreferencedDigests(threshold);
+		int collected = 0;
+		for (String digest : digests) {
+			try {
+				if (Boolean.TRUE.equals(transactionTemplate.execute(status -> collect(digest, threshold)))) {
+					collected++;
+				}
+			} catch (RuntimeException e) {
+				log.error("could not collect content with digest: {}", digest, e);
+			}
+		}
+		if (collected > 0) {
+			log.info("content garbage collection removed {} unreferenced blobs", collected);
+			if (totalsLoaded) {
+				loadTotals();
+			}
+		}
+		return collected;
+	}
+
+	private boolean collect(String digest, LocalDateTime threshold) {
+		// the row lock keeps concurrent uploads of the same content waiting until the data is gone
+		DmsBlob blob = blobRepository.findByDigest(digest).orElse(null);
+		if (blob == null || blob.getReferenceCount() > 0 || blob.getLastUsed() == null || !blob.getLastUsed().isBefore(threshold)) {
+			return false;
+		}
+		try {
+			contentStore.delete(digest);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		blobRepository.delete(blob);
+		extractedTextRepository.deleteByStorageKey(digest);
+		if (blob.getBaseDigest() != null) {
+			blobRepository.decrementReferenceCount(blob.getBaseDigest());
+		}
+		return true;
+	}
+
+	private double storedCompressionRatio() {
+		if (!totalsLoaded) {
+			loadTotals();
+		}
+		long stored = totalStoredSize.get();
+		return stored == 0 ? 1.0 : (double) totalContentSize.get() / stored;
+	}
+
+	private synchronized void loadTotals() {
+		StorageTotals totals = blobRepository.getStorageTotals();
+		totalContentSize.set(totals.getContentSize());
+		totalStoredSize.set(totals.getStoredSize());
+		totalsLoaded = true;
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+
+		private long count = 0;
+
+		CountingInputStream(InputStream inputStream) {
+			super(inputStream);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) count++;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) count += read;
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+		long getCount() {
+			return count;
+		}
+	}
+}
@@ -4,13 +4,22 @@ import com.example.dms.domain.DmsContent;
 import com.example.dms.domain.DmsDocument;
 import com.example.dms.repositories.ContentRepository;
 import com.example.dms.repositories.DocumentRepository;
+import com.example.dms.services.BlobService;
 import com.example.dms.services.ContentService;
 import com.example.dms.services.DocumentService;
+import com.example.dms.services.TextExtractionService;
+import com.example.dms.services.search.fulltext.DocumentIndexEvent;
+import com.example.dms.services.storage.ContentMigrationService;
+import com.example.dms.utils.HttpCacheUtils;
 import com.example.dms.utils.exceptions.BadRequestException;
 import com.example.dms.utils.exceptions.DmsNotFoundException;
 import com.example.dms.utils.exceptions.InternalException;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -19,52 +28,149 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 @Service
-@RequiredArgsConstructor
 @Transactional
 public class ContentServiceImpl implements ContentService {
 
 	private final DocumentService documentService;
 	private final ContentRepository contentRepository;
 	private final DocumentRepository documentRepository;
+	private final BlobService blobService;
+	private final ContentMigrationService contentMigrationService;
+	private final Duration immutableMaxAge;
+	private final ApplicationEventPublisher eventPublisher;
+	private final TextExtractionService textExtractionService;
+
+	public ContentServiceImpl(DocumentService documentService, ContentRepository contentRepository,
+							  DocumentRepository documentRepository, BlobService blobService,
+							  ContentMigrationService contentMigrationService,
+							  @Value("${dms.content.cache.immutable-max-age:P365D}") Duration immutableMaxAge,
+							  ApplicationEventPublisher eventPublisher, TextExtractionService textExtractionService) {
+		this.documentService = documentService;
+		this.contentRepository = contentRepository;
+		this.documentRepository = documentRepository;
+		this.blobService = blobService;
+		this.contentMigrationService = contentMigrationService;
+		this.immutableMaxAge = immutableMaxAge;
+		this.eventPublisher = eventPublisher;
+		this.textExtractionService = textExtractionService;
+	}
 
 	@Override
 	@PreAuthorize("hasPermission(#id,'com.example.dms.domain.DmsDocument','WRITE') || hasAuthority('WRITE_PRIVILEGE')")
 	public void uploadFile(Integer id, MultipartFile file) {
+		try (InputStream inputStream = file.getInputStream()) {
+			storeContent(id, inputStream, file.getSize(), file.getContentType(), file.getOriginalFilename());
+		} catch (IOException e) {
+			throw new InternalException(
+					"Could not upload file for document: '" + id + "'.");
+		}
+	}
+
+	@Override
+	@PreAuthorize("hasPermission(#id,'com.example.dms.domain.DmsDocument','WRITE') || hasAuthority('WRITE_PRIVILEGE')")
+	public String storeContent(Integer id, InputStream inputStream, long contentSize, String contentType,
+							 String originalFileName) {
 		DmsDocument doc = documentRepository.findById(id).orElseThrow(DmsNotFoundException::new);
 		if (doc.isImmutable()) {
 			throw new BadRequestException("Object is immutable and you cannot add content to it.");
 		}
-		if (doc.getContent() != null) {
-			throw new BadRequestException("Object already has content.");
-			// TODO create new version?
-		}
 
-		try {
-			DmsContent content = DmsContent.builder().content(file.getBytes()).contentSize(file.getSize())
-					.contentType(file.getContentType()).originalFileName(file.getOriginalFilename()).document(doc)
-					.build();
-			contentRepository.save(content);
-			doc.setContent(content);
-		} catch (IOException e) {
-			throw new InternalException(
-					"Could not upload file for document: '" + id + "'.");
+		// replaced content (usually inherited from the previous version) is the base a delta is computed against
+		DmsContent content = doc.getContent();
+		String baseKey = content == null ? null : content.getStorageKey();
+		String storageKey = blobService.store(inputStream, contentType, baseKey);
+		blobService.addReference(storageKey);
+
+		if (content == null) {
+			content = DmsContent.builder().document(doc).build();
+		} else if (content.getStorageKey() != null) {
+			// content inherited from the previous version (or uploaded before) is replaced, the stored data
+			// stays as long as other versions reference it
+			blobService.releaseReference(content.getStorageKey());
 		}
+		content.setStorageKey(storageKey);
+		content.setContentSize(contentSize);
+		content.setContentType(contentType);
+		content.setOriginalFileName(originalFileName);
+		contentRepository.save(content);
+		doc.setContent(content);
 		documentService.save(doc);
+		eventPublisher.publishEvent(new DocumentIndexEvent(id));
+		// requested after the index event, the metadata is indexed before the extracted text is added
+		textExtractionService.request(storageKey, contentType);
+		return storageKey;
 	}
 
 	@Override
 	@PreAuthorize("hasPermission(#id,'com.example.dms.domain.DmsDocument','READ') || hasAuthority('READ_PRIVILEGE')")
-	public ResponseEntity<byte[]> downloadContent(Integer id) {
+	public ResponseEntity<Resource> downloadContent(Integer id, HttpHeaders requestHeaders) {
 		DmsDocument document = documentRepository.findById(id).orElseThrow(DmsNotFoundException::new);
 		checkIsDocumentValidForDownload(document);
-		return ResponseEntity.ok()
+		DmsContent content = document.getContent();
+		String storageKey = contentMigrationService.ensureMigrated(content);
+
+		// the storage key is the digest of the original content, so it is a valid strong validator
+		String eTag = HttpCacheUtils.toETag(storageKey);
+		long lastModified = HttpCacheUtils.toEpochMillis(content.getModifyDate());
+		String cacheControl = document.isImmutable() ? HttpCacheUtils.immutable(immutableMaxAge) : HttpCacheUtils.revalidate();
+
+		if (HttpCacheUtils.isNotModified(requestHeaders, eTag, lastModified)) {
+			// answered before the stored data is opened
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).lastModified(lastModified)
+					.header(HttpHeaders.CACHE_CONTROL, cacheControl).build();
+		}
+
+		Resource resource;
+		try {
+			resource = blobService.getResource(storageKey, content.getOriginalFileName());
+		} catch (IOException e) {
+			throw new InternalException("Could not read content of document: '" + id + "'.");
+		}
+
+		ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
 				.header(HttpHeaders.CONTENT_DISPOSITION,
-						"attachment; filename=\"" + document.getContent().getOriginalFileName() + "\"")
-				.contentType(MediaType.valueOf(document.getContent().getContentType()))
-				.header("File-Name", document.getContent().getOriginalFileName())
-				.body(document.getContent().getContent());
+						"attachment; filename=\"" + content.getOriginalFileName() + "\"")
+				.contentType(MediaType.valueOf(content.getContentType()))
+				.header("File-Name", content.getOriginalFileName())
+				.header(HttpHeaders.ACCEPT_RANGES, "bytes")
+				.header(HttpHeaders.CACHE_CONTROL, cacheControl)
+				.eTag(eTag)
+				.lastModified(lastModified);
+
+		if (requestHeaders.getFirst(HttpHeaders.RANGE) != null && !isIfRangeSatisfied(requestHeaders, eTag, lastModified)) {
+			// validator changed, the whole representation has to be sent. InputStreamResource is not range
+			// processed by spring, a plain resource body is (206 / 416 responses are built by the message converters)
+			try {
+				return builder.contentLength(resource.contentLength()).body(new InputStreamResource(resource.getInputStream()));
+			} catch (IOException e) {
+				throw new InternalException("Could not read content of document: '" + id + "'.");
+			}
+		}
+		return builder.body(resource);
+	}
+
+	private boolean isIfRangeSatisfied(HttpHeaders requestHeaders, String eTag, long lastModified) {
+		String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+		if (ifRange == null) {
+			return true;
+		}
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			// weak validators can't be used for ranges
+			return ifRange.equals(eTag);
+		}
+		try {
+			long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+			return date / 1000 == lastModified / 1000;
+		} catch (DateTimeParseException e) {
+			return false;
+		}
 	}
 
 	private void checkIsDocumentValidForDownload(DmsDocument document) {
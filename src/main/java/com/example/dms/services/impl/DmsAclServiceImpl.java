@@ -1,20 +1,25 @@
 package com.example.dms.services.impl;
 
 import com.example.dms.api.dtos.administration.GrantDTO;
+import com.example.dms.domain.DmsFolder;
 import com.example.dms.domain.security.AclAllowedClass;
-import com.example.dms.repositories.GroupRepository;
-import com.example.dms.security.DmsUserDetailsService;
+import com.example.dms.security.PrincipalAuthorityService;
+import com.example.dms.security.configuration.acl.AclBatchEvaluator;
+import com.example.dms.security.configuration.acl.AclBulkOperations;
 import com.example.dms.services.DmsAclService;
+import com.example.dms.services.search.AclSpecification;
+import com.example.dms.services.search.FolderHierarchy;
 import com.example.dms.utils.Permissions;
-import com.example.dms.utils.Roles;
+import com.example.dms.utils.Privileges;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.acls.domain.BasePermission;
 import org.springframework.security.acls.domain.ObjectIdentityImpl;
 import org.springframework.security.acls.domain.PrincipalSid;
 import org.springframework.security.acls.jdbc.JdbcMutableAclService;
 import org.springframework.security.acls.model.*;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -26,8 +31,11 @@ import java.util.stream.Collectors;
 public class DmsAclServiceImpl implements DmsAclService {
 
 	private final JdbcMutableAclService aclService;
-	private final DmsUserDetailsService userDetailsService;
-	private final GroupRepository groupRepository;
+	private final PrincipalAuthorityService principalAuthorityService;
+	private final AclBatchEvaluator aclBatchEvaluator;
+	private final AclBulkOperations aclBulkOperations;
+	private final SidRetrievalStrategy sidRetrievalStrategy;
+	private final FolderHierarchy folderHierarchy;
 
 	@Override
 	public <T extends AclAllowedClass> void grantRightsOnObject(T object, String username, Collection<Permission> permissions) {
@@ -38,31 +46,21 @@ public class DmsAclServiceImpl implements DmsAclService {
 	}
 
 	private boolean isUserAdmin(String username) {
-		if (groupRepository.existsByIdentifier(username)) return false;
 		// in order to reuse this whole service, I'm using the group identifier as a username
-		// since userDetailsService will throw an error for any group identifier, have to return here
-
-		UserDetails details = userDetailsService.loadUserByUsername(username);
-		return details.getAuthorities().stream().map(GrantedAuthority::getAuthority)
-				.collect(Collectors.toList()).contains(Roles.ROLE_ADMIN.name());
+		// groups have no authorities, so they are never admins
+		return principalAuthorityService.isAdmin(username);
 	}
 
 	@Override
 	public <T extends AclAllowedClass> void grantRightsOnObject(T object, Sid sid, Collection<Permission> permissions) {
 		String username = ((PrincipalSid) sid).getPrincipal();
 		if (isUserAdmin(username)) return;
-		ObjectIdentity oi = new ObjectIdentityImpl(object);
-		MutableAcl acl;
-		try {
-			acl = (MutableAcl) aclService.readAclById(oi);
-		} catch (NotFoundException nfe) {
-			acl = aclService.createAcl(oi);
-		}
+		MutableAcl acl = readOrCreateAcl(object);
 		log.debug("granting '{}' rights on object (" + object.getClass() + "): {}", username,
 				Permissions.getByMasks(permissions.stream().map(Permission::getMask).collect(Collectors.toList())));
 
 		for (Permission permission : permissions) {
-			if (checkGranted(acl, sid, permission)) {
+			if (hasEntry(acl, sid, permission)) {
 				log.warn("permission already granted, username: {}, permission: {}", username, Permissions.getByMask(permission.getMask()));
 				continue;
 			}
@@ -71,6 +69,42 @@ public class DmsAclServiceImpl implements DmsAclService {
 		aclService.updateAcl(acl);
 	}
 
+	// a missing acl is created linked to the acl of the parent of the object
+	private MutableAcl readOrCreateAcl(AclAllowedClass object) {
+		ObjectIdentity oi = new ObjectIdentityImpl(object);
+		try {
+			return (MutableAcl) aclService.readAclById(oi);
+		} catch (NotFoundException nfe) {
+			Map<ObjectIdentity, ObjectIdentity> parents = parents(List.of(object));
+			if (parents.isEmpty()) {
+				return aclService.createAcl(oi);
+			}
+			aclBulkOperations.grant(Map.of(), parents);
+			return (MutableAcl) aclService.readAclById(oi);
+		}
+	}
+
+	// every object linked to its parent and every parent to its own parent, up to the root folder
+	private Map<ObjectIdentity, ObjectIdentity> parents(Collection<? extends AclAllowedClass> objects) {
+		Map<ObjectIdentity, ObjectIdentity> parents = new LinkedHashMap<>();
+		for (AclAllowedClass object : objects) {
+			ObjectIdentity identity = new ObjectIdentityImpl(object);
+			AclAllowedClass parent = object.getAclParent();
+			while (parent != null && !parents.containsKey(identity)) {
+				ObjectIdentity parentIdentity = new ObjectIdentityImpl(parent);
+				parents.put(identity, parentIdentity);
+				identity = parentIdentity;
+				parent = parent.getAclParent();
+			}
+		}
+		return parents;
+	}
+
+	@Override
+	public <T extends AclAllowedClass> void linkToParents(Collection<T> objects) {
+		aclBulkOperations.grant(Map.of(), parents(objects));
+	}
+
 	@Override
 	public <T extends AclAllowedClass> void revokeRightsOnObject(T object, Sid sid, List<Permission> permissions) {
 		ObjectIdentity oi = new ObjectIdentityImpl(object);
@@ -133,8 +167,11 @@ public class DmsAclServiceImpl implements DmsAclService {
 		return checkGranted(acl, sid, permissions);
 	}
 
-	private boolean checkGranted(MutableAcl acl, Sid sid, Permission permission) {
-		return checkGranted(acl, sid, List.of(permission));
+	// only the entries of the object itself count, a right inherited from a parent folder would be lost on the object
+	// when it is revoked on the folder
+	private boolean hasEntry(MutableAcl acl, Sid sid, Permission permission) {
+		return acl.getEntries().stream().anyMatch(entry -> entry.isGranting() && entry.getSid().equals(sid)
+				&& entry.getPermission().getMask() == permission.getMask());
 	}
 
 	private boolean checkGranted(MutableAcl acl, Sid sid, Collection<Permission> permissions) {
@@ -169,30 +206,95 @@ public class DmsAclServiceImpl implements DmsAclService {
 	
 	@Override
 	public <T extends AclAllowedClass> void copyRightsToAnotherEntity(T original, T copy) {
-		ObjectIdentity originalOI = new ObjectIdentityImpl(original);
-		
-		MutableAcl acl;
-		try {
-			acl = (MutableAcl) aclService.readAclById(originalOI);
-		} catch (NotFoundException nfe) {
-			log.warn("object invalid, no acls found...");
-			return;
-		}
+		copyRightsToOtherEntities(Map.of(original, copy), Map.of());
+	}
 
-		Map<String, Set<Permission>> map = collectEntriesToPermissionsMap(acl.getEntries());
-		for (String sid : map.keySet()) {
-			grantRightsOnObject(copy, sid, map.get(sid));
-		}
+	@Override
+	public <T extends AclAllowedClass> void grantRightsOnObjects(Map<T, Map<String, Collection<Permission>>> grants) {
+		Map<ObjectIdentity, Map<String, Set<Permission>>> identities = new LinkedHashMap<>();
+		grants.forEach((object, granted) -> {
+			Map<String, Set<Permission>> permissions = new LinkedHashMap<>();
+			granted.forEach((username, permissionsOfUser) -> permissions.put(username, new LinkedHashSet<>(permissionsOfUser)));
+			identities.put(new ObjectIdentityImpl(object), permissions);
+		});
+		grant(identities, parents(grants.keySet()));
 	}
 
-	private Map<String, Set<String>> collectEntriesToMasksMap(List<AccessControlEntry> entries) {
-		return entries.stream().collect(Collectors.groupingBy(entry -> ((PrincipalSid) entry.getSid()).getPrincipal(),
-				Collectors.mapping(entry -> Permissions.getByMask(entry.getPermission().getMask()), Collectors.toSet())));
+	@Override
+	public <T extends AclAllowedClass> void copyRightsToOtherEntities(Map<T, T> copies,
+																	  Map<String, Collection<Permission>> additionalGrants) {
+		Map<ObjectIdentity, ObjectIdentity> identities = new LinkedHashMap<>();
+		copies.forEach((original, copy) -> identities.put(new ObjectIdentityImpl(original), new ObjectIdentityImpl(copy)));
+		Map<ObjectIdentity, Map<String, Set<Permission>>> rights = aclBulkOperations.readGrants(identities.keySet());
+
+		Map<ObjectIdentity, Map<String, Set<Permission>>> grants = new LinkedHashMap<>();
+		identities.forEach((original, copy) -> {
+			Map<String, Set<Permission>> permissions = new LinkedHashMap<>();
+			rights.getOrDefault(original, Map.of()).forEach((username, permissionsOfUser) ->
+					permissions.put(username, new LinkedHashSet<>(permissionsOfUser)));
+			additionalGrants.forEach((username, permissionsOfUser) ->
+					permissions.computeIfAbsent(username, sid -> new LinkedHashSet<>()).addAll(permissionsOfUser));
+			grants.put(copy, permissions);
+		});
+		grant(grants, parents(copies.values()));
+	}
+
+	// like grantRightsOnObject admins are not granted anything, objects left without grants still get an acl
+	// inheriting the entries of their parent
+	private void grant(Map<ObjectIdentity, Map<String, Set<Permission>>> grants,
+					   Map<ObjectIdentity, ObjectIdentity> parents) {
+		Map<ObjectIdentity, Map<String, Set<Permission>>> withoutAdmins = new LinkedHashMap<>();
+		grants.forEach((identity, permissions) -> {
+			Map<String, Set<Permission>> granted = new LinkedHashMap<>(permissions);
+			granted.keySet().removeIf(this::isUserAdmin);
+			granted.values().removeIf(Set::isEmpty);
+			withoutAdmins.put(identity, granted);
+		});
+		log.debug("granting rights on {} objects", withoutAdmins.size());
+		aclBulkOperations.grant(withoutAdmins, parents);
+	}
+
+	@Override
+	public Set<Integer> filterGranted(Class<? extends AclAllowedClass> type, Collection<Integer> ids,
+									  Authentication authentication, Permission permission) {
+		if (ids.isEmpty()) return Collections.emptySet();
+		if (PrincipalAuthorityService.isAdmin(authentication)) return new HashSet<>(ids);
+		return aclBatchEvaluator.filterGranted(type.getName(), ids, authentication, List.of(permission));
 	}
 
-	private Map<String, Set<Permission>> collectEntriesToPermissionsMap(List<AccessControlEntry> entries) {
+	@Override
+	public <T extends AclAllowedClass> AclSpecification<T> grantedSpecification(Class<T> type,
+																			 Authentication authentication,
+																			 Permission permission) {
+		if (PrincipalAuthorityService.isAdmin(authentication)) return null;
+		List<Sid> sids = sidRetrievalStrategy.getSids(authentication);
+		// the subfolders of granted folders and their contents inherit the entries
+		Set<Integer> grantingFolders = folderHierarchy.withInheritingDescendants(
+				folderHierarchy.folders(new AclSpecification<>(DmsFolder.class, sids, permission)));
+		return new AclSpecification<>(type, sids, permission, grantingFolders);
+	}
+
+	@Override
+	public Set<Integer> filterReadable(Class<? extends AclAllowedClass> type, Collection<Integer> ids,
+									   Authentication authentication) {
+		return hasReadPrivilege(authentication) ? new HashSet<>(ids)
+				: filterGranted(type, ids, authentication, BasePermission.READ);
+	}
+
+	@Override
+	public <T extends AclAllowedClass> AclSpecification<T> readableSpecification(Class<T> type,
+																				Authentication authentication) {
+		return hasReadPrivilege(authentication) ? null : grantedSpecification(type, authentication, BasePermission.READ);
+	}
+
+	private boolean hasReadPrivilege(Authentication authentication) {
+		return authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority)
+				.anyMatch(Privileges.READ_PRIVILEGE.name()::equals);
+	}
+
+	private Map<String, Set<String>> collectEntriesToMasksMap(List<AccessControlEntry> entries) {
 		return entries.stream().collect(Collectors.groupingBy(entry -> ((PrincipalSid) entry.getSid()).getPrincipal(),
-				Collectors.mapping(AccessControlEntry::getPermission, Collectors.toSet())));
+				Collectors.mapping(entry -> Permissions.getByMask(entry.getPermission().getMask()), Collectors.toSet())));
 	}
 
 	@Override
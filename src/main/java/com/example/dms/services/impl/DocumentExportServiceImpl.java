@@ -0,0 +1,133 @@
+package com.example.dms.services.impl;
+
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.services.AuthenticationUtil;
+import com.example.dms.services.DmsAclService;
+import com.example.dms.services.DocumentExportService;
+import com.example.dms.services.search.SpecificationBuilder;
+import com.example.dms.services.search.document.DocumentProjection;
+import com.example.dms.services.search.document.DocumentSpecProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@Service
+@Log4j2
+public class DocumentExportServiceImpl implements DocumentExportService {
+
+	public static final MediaType NDJSON = MediaType.valueOf("application/x-ndjson");
+
+	private final EntityManager entityManager;
+	private final DocumentProjection documentProjection;
+	private final DmsAclService aclService;
+	private final AuthenticationUtil authUtil;
+	private final ObjectMapper objectMapper;
+	private final TransactionTemplate readTemplate;
+	private final int fetchSize;
+
+	public DocumentExportServiceImpl(EntityManager entityManager, DocumentProjection documentProjection,
+									 DmsAclService aclService, AuthenticationUtil authUtil, ObjectMapper objectMapper,
+									 TransactionTemplate transactionTemplate,
+									 @Value("${dms.export.fetch-size:500}") int fetchSize) {
+		this.entityManager = entityManager;
+		this.documentProjection = documentProjection;
+		this.aclService = aclService;
+		this.authUtil = authUtil;
+		this.objectMapper = objectMapper;
+		// the response is written after the request handler returned, the rows are read in a transaction of their own
+		this.readTemplate = new TransactionTemplate(Objects.requireNonNull(transactionTemplate.getTransactionManager()));
+		this.readTemplate.setReadOnly(true);
+		this.fetchSize = fetchSize;
+	}
+
+	@Override
+	public ResponseEntity<StreamingResponseBody> exportDocuments(String search, List<String> fields) {
+		// the search and the fields are checked before the response is committed, errors are still a 400
+		Set<String> selected = DocumentProjection.fields(fields == null || fields.isEmpty()
+				? DocumentProjection.ALL_FIELDS : fields);
+		Specification<DmsDocument> specification = Specification.where(
+				aclService.readableSpecification(DmsDocument.class, authUtil.getCurrentAuthentication()));
+		if (search != null) {
+			specification = specification.and(new SpecificationBuilder<>(new DocumentSpecProvider()).parse(search));
+		}
+		Specification<DmsDocument> exported = specification;
+
+		return ResponseEntity.ok()
+				.contentType(NDJSON)
+				.header(HttpHeaders.CONTENT_DISPOSITION,
+						ContentDisposition.attachment().filename("documents.ndjson", StandardCharsets.UTF_8).build()
+								.toString())
+				.body(outputStream -> readTemplate.executeWithoutResult(status -> write(exported, selected, outputStream)));
+	}
+
+	private void write(Specification<DmsDocument> specification, Set<String> fields, OutputStream outputStream) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<DmsDocument> root = query.from(DmsDocument.class);
+		query.multiselect(documentProjection.columns(root, fields)).orderBy(builder.asc(root.get("id")));
+		Predicate predicate = specification.toPredicate(root, query, builder);
+		if (predicate != null) {
+			query.where(predicate);
+		}
+
+		long exported = 0;
+		List<Tuple> batch = new ArrayList<>(fetchSize);
+		// the rows are fetched fetchSize at a time from a forward only cursor (MySQL needs useCursorFetch=true)
+		try (Stream<Tuple> rows = entityManager.createQuery(query).setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+				.setHint(QueryHints.HINT_READONLY, true).getResultStream()) {
+			Iterator<Tuple> iterator = rows.iterator();
+			while (iterator.hasNext()) {
+				batch.add(iterator.next());
+				if (batch.size() == fetchSize) {
+					exported += writeBatch(batch, fields, outputStream);
+				}
+			}
+			exported += writeBatch(batch, fields, outputStream);
+		} catch (IOException e) {
+			// the response is already committed, the client sees a truncated export
+			log.error("document export aborted after {} documents", exported, e);
+			throw new UncheckedIOException(e);
+		}
+		log.debug("exported {} documents", exported);
+	}
+
+	private int writeBatch(List<Tuple> batch, Set<String> fields, OutputStream outputStream) throws IOException {
+		int size = batch.size();
+		for (Map<String, Object> row : DocumentProjection.narrow(documentProjection.toDtos(batch, fields), fields)) {
+			outputStream.write(objectMapper.writeValueAsBytes(row));
+			outputStream.write('\n');
+		}
+		outputStream.flush();
+		batch.clear();
+		// rows are not managed, anything the batch loaded is dropped before the next one
+		entityManager.clear();
+		return size;
+	}
+}
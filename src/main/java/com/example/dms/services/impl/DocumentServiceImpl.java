@@ -2,33 +2,55 @@ package com.example.dms.services.impl;
 
 import com.example.dms.api.dtos.SortDTO;
 import com.example.dms.api.dtos.document.DmsDocumentDTO;
+import com.example.dms.api.dtos.document.FacetCountDTO;
+import com.example.dms.api.dtos.document.KeywordCountDTO;
 import com.example.dms.api.dtos.document.ModifyDocumentDTO;
 import com.example.dms.api.dtos.document.NewDocumentDTO;
 import com.example.dms.api.mappers.DocumentMapper;
 import com.example.dms.domain.*;
 import com.example.dms.repositories.*;
+import com.example.dms.repositories.DocumentRepository.DocumentState;
 import com.example.dms.security.configuration.acl.CustomBasePermission;
 import com.example.dms.services.AuthenticationUtil;
+import com.example.dms.services.BlobService;
 import com.example.dms.services.DmsAclService;
 import com.example.dms.services.DocumentService;
 import com.example.dms.services.NotificationService;
+import com.example.dms.services.PreferenceService;
+import com.example.dms.services.search.AclSpecification;
+import com.example.dms.services.search.CursorPage;
+import com.example.dms.services.search.KeysetPaginator;
 import com.example.dms.services.search.SpecificationBuilder;
+import com.example.dms.services.search.document.DocumentFacets;
+import com.example.dms.services.search.document.DocumentProjection;
 import com.example.dms.services.search.document.DocumentSpecProvider;
+import com.example.dms.services.search.document.KeywordIndex;
+import com.example.dms.services.search.fulltext.DocumentIndexEvent;
+import com.example.dms.services.storage.ContentMigrationService;
 import com.example.dms.utils.ActionEnum;
-import com.example.dms.utils.Utils;
+import com.example.dms.utils.HttpCacheUtils;
 import com.example.dms.utils.VersionUtils;
 import com.example.dms.utils.exceptions.BadRequestException;
 import com.example.dms.utils.exceptions.DmsNotFoundException;
 import com.example.dms.utils.exceptions.NotPermitedException;
-import org.springframework.security.access.prepost.PostFilter;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.acls.domain.BasePermission;
+import org.springframework.security.acls.model.Permission;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -43,11 +65,23 @@ public class DocumentServiceImpl extends EntityCrudServiceImpl<DmsDocument, DmsD
 	private final FolderRepository folderRepository;
 	private final NotificationService notificationService;
 	private final AuthenticationUtil authUtil;
+	private final BlobService blobService;
+	private final ContentMigrationService contentMigrationService;
+	private final KeysetPaginator keysetPaginator;
+	private final KeywordIndex keywordIndex;
+	private final DocumentFacets documentFacets;
+	private final DocumentProjection documentProjection;
+	private final PreferenceService preferenceService;
+	private final ApplicationEventPublisher eventPublisher;
 
 	public DocumentServiceImpl(UserRepository userRepository, DocumentRepository documentRepository,
 							   DocumentMapper documentMapper, TypeRepository typeRepository, DmsAclService aclService,
 							   ContentRepository contentRepository, FolderRepository folderRepository,
-							   NotificationService notificationService, AuthenticationUtil authUtil) {
+							   NotificationService notificationService, AuthenticationUtil authUtil,
+							   BlobService blobService, ContentMigrationService contentMigrationService,
+							   KeysetPaginator keysetPaginator, KeywordIndex keywordIndex,
+							   DocumentFacets documentFacets, DocumentProjection documentProjection,
+							   PreferenceService preferenceService, ApplicationEventPublisher eventPublisher) {
 		super(documentRepository, documentMapper, aclService);
 		this.userRepository = userRepository;
 		this.documentRepository = documentRepository;
@@ -57,12 +91,37 @@ public class DocumentServiceImpl extends EntityCrudServiceImpl<DmsDocument, DmsD
 		this.folderRepository = folderRepository;
 		this.notificationService = notificationService;
 		this.authUtil = authUtil;
+		this.blobService = blobService;
+		this.contentMigrationService = contentMigrationService;
+		this.keysetPaginator = keysetPaginator;
+		this.keywordIndex = keywordIndex;
+		this.documentFacets = documentFacets;
+		this.documentProjection = documentProjection;
+		this.preferenceService = preferenceService;
+		this.eventPublisher = eventPublisher;
 	}
 
 	@Override
-	@PostFilter("hasAuthority('READ_PRIVILEGE') || hasPermission(filterObject.id,'com.example.dms.domain.DmsDocument','READ')")
 	public List<DmsDocumentDTO> findAll() {
-		return documentMapper.entityListToDtoList(documentRepository.findAll());
+		return documentProjection.findAll(readable());
+	}
+
+	@Override
+	@PreAuthorize("hasAuthority('READ_PRIVILEGE') || hasPermission(#id,'com.example.dms.domain.DmsDocument','READ')")
+	public ResponseEntity<DmsDocumentDTO> findById(Integer id, HttpHeaders requestHeaders) {
+		DocumentState state = documentRepository.findStateById(id).orElseThrow(DmsNotFoundException::new);
+		// uploads change the content row only, both dates are part of the representation
+		long lastModified = Math.max(HttpCacheUtils.toEpochMillis(state.getModifyDate()),
+				HttpCacheUtils.toEpochMillis(state.getContentModifyDate()));
+		String eTag = HttpCacheUtils.toETag(id + "-" + lastModified);
+		// immutable versions still get branched, so metadata is always revalidated
+		if (HttpCacheUtils.isNotModified(requestHeaders, eTag, lastModified)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).lastModified(lastModified)
+					.header(HttpHeaders.CACHE_CONTROL, HttpCacheUtils.revalidate()).build();
+		}
+		return ResponseEntity.ok().eTag(eTag).lastModified(lastModified)
+				.header(HttpHeaders.CACHE_CONTROL, HttpCacheUtils.revalidate())
+				.body(documentMapper.entityToDto(checkPresent(id)));
 	}
 
 	@Override
@@ -93,17 +152,22 @@ public class DocumentServiceImpl extends EntityCrudServiceImpl<DmsDocument, DmsD
 		grantCreatorRights(newDocumentObject, creator.getUsername());
 
 		notificationService.createAclNotification(newDocumentObject, ActionEnum.CREATE);
+		eventPublisher.publishEvent(new DocumentIndexEvent(newDocumentObject.getId()));
 		return save(newDocumentObject);
 	}
 
 	private void grantCreatorRights(DmsDocument newDocumentObject, String username) {
-		super.aclService.grantRightsOnObject(newDocumentObject, username, Arrays.asList(
+		super.aclService.grantRightsOnObjects(Map.of(newDocumentObject, Map.of(username, creatorPermissions())));
+	}
+
+	private static Collection<Permission> creatorPermissions() {
+		return Arrays.asList(
 				BasePermission.READ,
 				BasePermission.WRITE,
 				BasePermission.DELETE,
 				BasePermission.CREATE,
 				BasePermission.ADMINISTRATION,
-				CustomBasePermission.VERSION));
+				CustomBasePermission.VERSION);
 	}
 
 	@Override
@@ -125,6 +189,7 @@ public class DocumentServiceImpl extends EntityCrudServiceImpl<DmsDocument, DmsD
 			doc.addType(newType);
 		}
 		notificationService.createAclNotification(doc, ActionEnum.UPDATE);
+		eventPublisher.publishEvent(new DocumentIndexEvent(id));
 		return save(doc);
 	}
 
@@ -146,6 +211,9 @@ public class DocumentServiceImpl extends EntityCrudServiceImpl<DmsDocument, DmsD
 		save(doc);
 		newVersion = documentRepository.save(newVersion);
 		aclService.copyRightsToAnotherEntity(doc, newVersion);
+		// the new version shares the content of its predecessor until a new file is uploaded to it
+		shareContent(doc, newVersion);
+		eventPublisher.publishEvent(new DocumentIndexEvent(newVersion.getId()));
 
 		return documentMapper.entityToDto(newVersion);
 	}
@@ -167,14 +235,17 @@ public class DocumentServiceImpl extends EntityCrudServiceImpl<DmsDocument, DmsD
 		save(doc);
 		newVersion = documentRepository.save(newVersion);
 		aclService.copyRightsToAnotherEntity(doc, newVersion);
+		// the new version shares the content of its predecessor until a new file is uploaded to it
+		shareContent(doc, newVersion);
+		eventPublisher.publishEvent(new DocumentIndexEvent(newVersion.getId()));
 
 		return documentMapper.entityToDto(newVersion);
 	}
 
 	@Override
-	@PostFilter("hasAuthority('READ_PRIVILEGE') || hasPermission(filterObject.id,'com.example.dms.domain.DmsDocument','READ')")
 	public List<DmsDocumentDTO> getAllVersions(Integer id) {
-		return documentMapper.entityListToDtoList(documentRepository.findAllByRootId(id));
+		Specification<DmsDocument> versions = (root, query, builder) -> builder.equal(root.get("rootId"), id);
+		return documentProjection.findAll(versions.and(readable()));
 	}
 
 	private DmsDocument copyDocument(DmsDocument original) {
@@ -184,20 +255,67 @@ public class DocumentServiceImpl extends EntityCrudServiceImpl<DmsDocument, DmsD
 				.keywords(new ArrayList<>(original.getKeywords())).build();
 	}
 
+	// content is stored once per digest, a copy only adds a reference to the same stored data
 	private DmsContent copyContent(DmsContent original) {
-		return DmsContent.builder().content(original.getContent()).contentSize(original.getContentSize())
+		String storageKey = contentMigrationService.ensureMigrated(original);
+		blobService.addReference(storageKey);
+		return DmsContent.builder().storageKey(storageKey).contentSize(original.getContentSize())
 				.contentType(original.getContentType()).originalFileName(original.getOriginalFileName()).build();
 	}
 
+	private void shareContent(DmsDocument source, DmsDocument target) {
+		if (source.getContent() == null) {
+			return;
+		}
+		DmsContent content = copyContent(source.getContent());
+		content.setDocument(target);
+		target.setContent(contentRepository.save(content));
+	}
+
+	@Override
+	public CursorPage<DmsDocumentDTO> searchAll(String search, SortDTO sort, String cursor, Integer size) {
+		return keysetPaginator.findProjectedPage(DmsDocument.class, readable(search), sort, cursor, size,
+				documentProjection::columns).map(documentProjection::toDtos);
+	}
+
 	@Override
-	@PostFilter("hasAuthority('READ_PRIVILEGE') || hasPermission(filterObject.id,'com.example.dms.domain.DmsDocument','READ')")
-	public List<DmsDocumentDTO> searchAll(String search, SortDTO sort) {
+	public CursorPage<Map<String, Object>> searchFields(String search, SortDTO sort, String cursor, Integer size,
+														List<String> fields) {
+		Set<String> selected = fields == null || fields.isEmpty()
+				? DocumentProjection.fields(preferenceService.getDisplayedDocColumns(authUtil.getUserName()).stream()
+						.filter(DocumentProjection::isField).collect(Collectors.toList()))
+				: DocumentProjection.fields(fields);
+		return keysetPaginator.findProjectedPage(DmsDocument.class, readable(search), sort, cursor, size,
+				root -> documentProjection.columns(root, selected))
+				.map(rows -> DocumentProjection.narrow(documentProjection.toDtos(rows, selected), selected));
+	}
+
+	@Override
+	public Map<String, List<FacetCountDTO>> getFacets(String search, List<String> facets, Integer size) {
+		Map<String, List<FacetCountDTO>> result = new LinkedHashMap<>();
+		documentFacets.count(readable(search), facets, size).forEach((facet, counts) -> result.put(facet,
+				counts.entrySet().stream().map(entry -> new FacetCountDTO(entry.getKey(), entry.getValue()))
+						.collect(Collectors.toList())));
+		return result;
+	}
+
+	@Override
+	public List<KeywordCountDTO> getKeywordCounts(String prefix, Integer size) {
+		return keywordIndex.countKeywords(readable(), prefix, size).entrySet().stream()
+				.map(entry -> new KeywordCountDTO(entry.getKey(), entry.getValue())).collect(Collectors.toList());
+	}
+
+	private Specification<DmsDocument> readable(String search) {
+		Specification<DmsDocument> specification = Specification.where(readable());
 		if (search != null) {
-			SpecificationBuilder<DmsDocument> builder = new SpecificationBuilder<>(new DocumentSpecProvider());
-			return documentMapper
-					.entityListToDtoList(documentRepository.findAll(builder.parse(search), Utils.toSort(sort)));
+			specification = specification.and(new SpecificationBuilder<>(new DocumentSpecProvider()).parse(search));
 		}
-		return documentMapper.entityListToDtoList(documentRepository.findAll(Utils.toSort(sort)));
+		return specification;
+	}
+
+	// the read check is part of the query, only visible documents are loaded and mapped
+	private AclSpecification<DmsDocument> readable() {
+		return super.aclService.readableSpecification(DmsDocument.class, authUtil.getCurrentAuthentication());
 	}
 
 	@Override
@@ -211,6 +329,7 @@ public class DocumentServiceImpl extends EntityCrudServiceImpl<DmsDocument, DmsD
 
 		List<DmsDocument> documents = documentRepository.findAllById(documentIdList);
 		List<DmsDocument> retVal = new ArrayList<>();
+		Map<DmsDocument, DmsDocument> copies = new LinkedHashMap<>();
 
 		for (DmsDocument doc : documents) {
 			DmsDocument copy = copyDocument(doc);
@@ -223,17 +342,14 @@ public class DocumentServiceImpl extends EntityCrudServiceImpl<DmsDocument, DmsD
 			copy.setPredecessorId(copy.getId());
 			copy.setRootId(copy.getId());
 			copy = documentRepository.save(copy);
-			aclService.copyRightsToAnotherEntity(doc, copy);
-			grantCreatorRights(copy, authUtil.getUserName());
-
-			if (doc.getContent() != null) {
-				DmsContent copyContent = copyContent(doc.getContent());
-				copyContent.setDocument(copy);
-				copyContent = contentRepository.save(copyContent);
-				copy.setContent(copyContent);
-			}
+			copies.put(doc, copy);
+
+			shareContent(doc, copy);
+			eventPublisher.publishEvent(new DocumentIndexEvent(copy.getId()));
 			retVal.add(copy);
 		}
+		// the rights of all copies are written at once
+		aclService.copyRightsToOtherEntities(copies, Map.of(authUtil.getUserName(), creatorPermissions()));
 
 		return mapper.entityListToDtoList(retVal);
 	}
@@ -253,6 +369,8 @@ public class DocumentServiceImpl extends EntityCrudServiceImpl<DmsDocument, DmsD
 			doc.setParentFolder(folder);
 			retVal.add(documentRepository.save(doc));
 		}
+		// moved documents inherit the entries of their new folder
+		aclService.linkToParents(retVal);
 
 		return mapper.entityListToDtoList(retVal);
 	}
@@ -278,6 +396,10 @@ public class DocumentServiceImpl extends EntityCrudServiceImpl<DmsDocument, DmsD
 			}
 		}
 		notificationService.createAclNotification(toDelete, ActionEnum.DELETE);
+		if (toDelete.getContent() != null && toDelete.getContent().getStorageKey() != null) {
+			blobService.releaseReference(toDelete.getContent().getStorageKey());
+		}
 		super.deleteById(id);
+		eventPublisher.publishEvent(new DocumentIndexEvent(id));
 	}
 }
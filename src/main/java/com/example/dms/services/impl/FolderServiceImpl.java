@@ -8,21 +8,32 @@ import com.example.dms.domain.DmsDocument;
 import com.example.dms.domain.DmsFolder;
 import com.example.dms.repositories.DocumentRepository;
 import com.example.dms.repositories.FolderRepository;
+import com.example.dms.repositories.ModificationSummary;
+import com.example.dms.security.AccessVersion;
 import com.example.dms.services.*;
+import com.example.dms.services.search.AclSpecification;
+import com.example.dms.services.search.FolderHierarchy;
 import com.example.dms.utils.ActionEnum;
+import com.example.dms.utils.HttpCacheUtils;
+import com.example.dms.utils.StorageUtils;
 import com.example.dms.utils.StringUtils;
 import com.example.dms.utils.exceptions.BadRequestException;
 import com.example.dms.utils.exceptions.DmsNotFoundException;
 import com.example.dms.utils.exceptions.NotPermitedException;
 import com.example.dms.utils.exceptions.UniqueConstraintViolatedException;
-import org.springframework.security.access.prepost.PostFilter;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.acls.domain.BasePermission;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -34,10 +45,13 @@ public class FolderServiceImpl extends EntityCrudServiceImpl<DmsFolder, DmsFolde
 	private final DocumentService documentService;
 	private final NotificationService notificationService;
 	private final AuthenticationUtil authUtil;
+	private final FolderHierarchy folderHierarchy;
+	private final AccessVersion accessVersion;
 
 	public FolderServiceImpl(FolderRepository folderRepository, FolderMapper folderMapper,
 			DocumentRepository documentRepository, DmsAclService aclService, DocumentService documentService,
-			NotificationService notificationService, AuthenticationUtil authUtil) {
+			NotificationService notificationService, AuthenticationUtil authUtil, FolderHierarchy folderHierarchy,
+			AccessVersion accessVersion) {
 		super(folderRepository, folderMapper, aclService);
 		this.folderRepository = folderRepository;
 		this.folderMapper = folderMapper;
@@ -45,18 +59,49 @@ public class FolderServiceImpl extends EntityCrudServiceImpl<DmsFolder, DmsFolde
 		this.documentService = documentService;
 		this.notificationService = notificationService;
 		this.authUtil = authUtil;
+		this.folderHierarchy = folderHierarchy;
+		this.accessVersion = accessVersion;
 	}
 
 	@Override
-	@PostFilter("hasAuthority('READ_PRIVILEGE') || filterObject.name == '/' || hasPermission(filterObject.id,'com.example.dms.domain.DmsFolder','READ')")
 	public List<DmsFolderDTO> findAll() {
-		return folderMapper.entityListToDtoList(folderRepository.findAll());
+		return folderMapper.entityListToDtoList(readableFolders());
 	}
 
 	@Override
-	@PostFilter("hasAuthority('READ_PRIVILEGE') || filterObject.name == '/' || hasPermission(filterObject.id,'com.example.dms.domain.DmsFolder','READ')")
 	public List<FolderTreeDTO> getFolderTreeNew() {
-		return folderMapper.dmsFolderListToFolderTreeList(folderRepository.findAll());
+		return folderMapper.dmsFolderListToFolderTreeList(readableFolders());
+	}
+
+	// the root folder is visible to everyone, the acls of the other folders are read and checked at once (following
+	// the acls of their parents), folders above readable folders and documents are listed to navigate to them
+	private List<DmsFolder> readableFolders() {
+		List<DmsFolder> folders = folderRepository.findAll();
+		Authentication authentication = authUtil.getCurrentAuthentication();
+		AclSpecification<DmsDocument> readableDocuments = super.aclService.readableSpecification(DmsDocument.class,
+				authentication);
+		if (readableDocuments == null) {
+			return folders;
+		}
+		Set<Integer> granted = new HashSet<>(super.aclService.filterGranted(DmsFolder.class,
+				folders.stream().map(DmsFolder::getId).collect(Collectors.toList()), authentication, BasePermission.READ));
+		granted.addAll(folderHierarchy.parentFolders(readableDocuments));
+		Set<Integer> visible = folderHierarchy.withAncestors(granted);
+		return folders.stream().filter(folder -> folder.getName().equals("/") || visible.contains(folder.getId()))
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public String getListingETag() {
+		// listings are filtered by acl entries and group memberships, the access version changes with both
+		ModificationSummary folders = folderRepository.getModificationSummary();
+		ModificationSummary documents = documentRepository.getModificationSummary();
+		String state = authUtil.getUserName() + ":" + folders.getCount() + ":"
+				+ HttpCacheUtils.toEpochMillis(folders.getLastModified()) + ":" + documents.getCount() + ":"
+				+ HttpCacheUtils.toEpochMillis(documents.getLastModified()) + ":" + accessVersion.current();
+		byte[] digest = StorageUtils.newDigest().digest(state.getBytes(StandardCharsets.UTF_8));
+		return HttpCacheUtils.toETag(StorageUtils.toHex(digest).substring(0, 32));
 	}
 
 	@Override
@@ -75,7 +120,10 @@ public class FolderServiceImpl extends EntityCrudServiceImpl<DmsFolder, DmsFolde
 		DmsFolder newFolder = DmsFolder.builder().name(newFolderDTO.getName()).build();
 		newFolder.addParentFolder(parentFolder);
 		newFolder = folderRepository.save(newFolder);
+		folderHierarchy.evict();
 
+		// the acl inherits the entries of the parent folder, even when the creator is not granted anything
+		super.aclService.linkToParents(List.of(newFolder));
 		super.aclService.grantRightsOnObject(newFolder, authUtil.getUserName(), Arrays.asList(BasePermission.READ,
 				BasePermission.WRITE, BasePermission.CREATE, BasePermission.DELETE, BasePermission.ADMINISTRATION));
 		this.notificationService.createAclNotification(newFolder, ActionEnum.CREATE);
@@ -112,6 +160,7 @@ public class FolderServiceImpl extends EntityCrudServiceImpl<DmsFolder, DmsFolde
 		folder.getDocuments().forEach(doc -> documentService.deleteById(doc.getId()));
 		this.notificationService.createAclNotification(folder, ActionEnum.DELETE);
 		this.deleteById(id);
+		folderHierarchy.evict();
 	}
 
 	// TODO: still not used, needs a check
@@ -122,12 +171,15 @@ public class FolderServiceImpl extends EntityCrudServiceImpl<DmsFolder, DmsFolde
 	public DmsFolderDTO moveFilesToFolder(Integer folderId, List<Integer> documentIdList) {
 		DmsFolder folder = folderRepository.findById(folderId).orElseThrow(
 				() -> new DmsNotFoundException("Folder with specified id: " + folderId + " could not be found."));
+		List<DmsDocument> moved = new ArrayList<>();
 		for (Integer documentId : documentIdList) {
 			DmsDocument doc = documentRepository.findById(documentId)
 					.orElseThrow(() -> new BadRequestException("Invalid document id: " + documentId + "."));
 			folder.addDocument(doc);
 			folder = folderRepository.save(folder);
+			moved.add(doc);
 		}
+		super.aclService.linkToParents(moved);
 		return folderMapper.entityToDto(folder);
 	}
 
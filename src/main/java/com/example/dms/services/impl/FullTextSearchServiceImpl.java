@@ -0,0 +1,62 @@
+package com.example.dms.services.impl;
+
+import com.example.dms.api.dtos.document.DmsDocumentDTO;
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.services.AuthenticationUtil;
+import com.example.dms.services.DmsAclService;
+import com.example.dms.services.FullTextSearchService;
+import com.example.dms.services.search.document.DocumentProjection;
+import com.example.dms.services.search.fulltext.DocumentIndex;
+import com.example.dms.utils.exceptions.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional(readOnly = true)
+public class FullTextSearchServiceImpl implements FullTextSearchService {
+
+	private final DocumentIndex documentIndex;
+	private final DocumentProjection documentProjection;
+	private final DmsAclService aclService;
+	private final AuthenticationUtil authUtil;
+	private final int defaultSize;
+	private final int maxSize;
+
+	public FullTextSearchServiceImpl(DocumentIndex documentIndex, DocumentProjection documentProjection,
+									 DmsAclService aclService, AuthenticationUtil authUtil,
+									 @Value("${dms.search.page-size.default:100}") int defaultSize,
+									 @Value("${dms.search.page-size.max:1000}") int maxSize) {
+		this.documentIndex = documentIndex;
+		this.documentProjection = documentProjection;
+		this.aclService = aclService;
+		this.authUtil = authUtil;
+		this.defaultSize = defaultSize;
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	public List<DmsDocumentDTO> search(String query, Integer size) {
+		if (query == null || query.isBlank()) {
+			throw new BadRequestException("The full text query is empty.");
+		}
+		int limit = size == null ? defaultSize : Math.max(1, Math.min(size, maxSize));
+		Authentication authentication = authUtil.getCurrentAuthentication();
+
+		// hits are checked against the acls in batches, the index knows nothing about permissions
+		Map<Integer, Float> hits = documentIndex.search(query, limit,
+				ids -> aclService.filterReadable(DmsDocument.class, ids, authentication));
+
+		Map<Integer, DmsDocumentDTO> documents = documentProjection.findAllById(hits.keySet()).stream()
+				.collect(Collectors.toMap(DmsDocumentDTO::getId, Function.identity()));
+		// documents deleted after the index was searched are skipped
+		return hits.keySet().stream().map(documents::get).filter(Objects::nonNull).collect(Collectors.toList());
+	}
+}
@@ -8,13 +8,16 @@ import com.example.dms.domain.DmsGroup;
 import com.example.dms.domain.DmsUser;
 import com.example.dms.repositories.GroupRepository;
 import com.example.dms.repositories.UserRepository;
+import com.example.dms.security.PrincipalAuthorityService;
 import com.example.dms.services.DmsAclService;
 import com.example.dms.services.GroupService;
+import com.example.dms.services.search.CursorPage;
+import com.example.dms.services.search.KeysetPaginator;
 import com.example.dms.services.search.SpecificationBuilder;
 import com.example.dms.services.search.group.GroupSpecProvider;
-import com.example.dms.utils.Utils;
 import com.example.dms.utils.exceptions.DmsNotFoundException;
 import com.example.dms.utils.exceptions.UniqueConstraintViolatedException;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -31,12 +34,18 @@ public class GroupServiceImpl extends EntityCrudServiceImpl<DmsGroup, DmsGroupDT
 	private final GroupRepository groupRepository;
 	private final UserRepository userRepository;
 	private final GroupMapper groupMapper;
+	private final KeysetPaginator keysetPaginator;
+	private final PrincipalAuthorityService principalAuthorityService;
 
-	public GroupServiceImpl(GroupRepository groupRepository, UserRepository userRepository, GroupMapper groupMapper, DmsAclService aclService) {
+	public GroupServiceImpl(GroupRepository groupRepository, UserRepository userRepository, GroupMapper groupMapper,
+							DmsAclService aclService, KeysetPaginator keysetPaginator,
+							PrincipalAuthorityService principalAuthorityService) {
 		super(groupRepository, groupMapper, aclService);
 		this.groupMapper = groupMapper;
 		this.groupRepository = groupRepository;
 		this.userRepository = userRepository;
+		this.keysetPaginator = keysetPaginator;
+		this.principalAuthorityService = principalAuthorityService;
 	}
 
 	@Override
@@ -69,6 +78,7 @@ public class GroupServiceImpl extends EntityCrudServiceImpl<DmsGroup, DmsGroupDT
 	@Override
 	public DmsGroupDTO createGroup(NewGroupDTO groupDTO) {
 		checkGroup(groupDTO.getGroupName(), groupDTO.getIdentifier(), null);
+		principalAuthorityService.evict(groupDTO.getIdentifier());
 		return save(groupMapper.newGroupDtoToGroup(groupDTO));
 	}
 
@@ -78,6 +88,7 @@ public class GroupServiceImpl extends EntityCrudServiceImpl<DmsGroup, DmsGroupDT
 		checkGroup(groupDTO.getGroupName(), groupDTO.getIdentifier(), existingGroup.getId());
 		if (!existingGroup.getIdentifier().equals(groupDTO.getIdentifier())) {
 			this.groupRepository.updateIdentifier(existingGroup.getIdentifier(), groupDTO.getIdentifier());
+			principalAuthorityService.evict(existingGroup.getIdentifier(), groupDTO.getIdentifier());
 		}
 		groupMapper.updateGroupPut(groupDTO, existingGroup);
 		return save(existingGroup);
@@ -99,19 +110,21 @@ public class GroupServiceImpl extends EntityCrudServiceImpl<DmsGroup, DmsGroupDT
 	}
 
 	@Override
-	public List<DmsGroupDTO> searchAll(String search, SortDTO sort) {
+	public CursorPage<DmsGroupDTO> searchAll(String search, SortDTO sort, String cursor, Integer size) {
+		Specification<DmsGroup> specification = null;
 		if (search != null) {
 			SpecificationBuilder<DmsGroup> builder = new SpecificationBuilder<>(new GroupSpecProvider());
-			return groupMapper
-					.entityListToDtoList(groupRepository.findAll(builder.parse(search), Utils.toSort(sort)));
+			specification = builder.parse(search);
 		}
-		return groupMapper.entityListToDtoList(groupRepository.findAll(Utils.toSort(sort)));
+		return keysetPaginator.findPage(DmsGroup.class, specification, sort, cursor, size)
+				.map(groupMapper::entityListToDtoList);
 	}
 
 	@Override
 	public void deleteById(Integer id) {
 		DmsGroup group = checkPresent(id);
 		groupRepository.removeAclEntries(group.getIdentifier());
+		principalAuthorityService.evict(group.getIdentifier());
 		super.deleteById(id);
 	}
 }
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -55,6 +56,15 @@ public class PreferenceServiceImpl implements PreferenceService {
 		return documentColumnPreferencesRepository.save(pref);
 	}
 
+	@Override
+	public List<String> getDisplayedDocColumns(String username) {
+		Map<String, Boolean> displayed = documentColumnPreferencesRepository.findAllByUserUsername(username).stream()
+				.collect(Collectors.toMap(DmsDocumentColumnPreference::getIdentifier,
+						DmsDocumentColumnPreference::isDisplayed, (first, second) -> first));
+		return docColIdentifiers.stream().filter(identifier -> displayed.getOrDefault(identifier, true))
+				.collect(Collectors.toList());
+	}
+
 	@Override
 	public List<DmsDocumentColumnPreference> saveDocColPref(String username,
 			List<DmsDocumentColumnPreference> preferences) {
@@ -0,0 +1,287 @@
+package com.example.dms.services.impl;
+
+import com.example.dms.domain.DmsExtractedText;
+import com.example.dms.domain.DmsExtractedText.Status;
+import com.example.dms.repositories.ContentRepository;
+import com.example.dms.repositories.ContentRepository.StoredContent;
+import com.example.dms.repositories.ExtractedTextRepository;
+import com.example.dms.repositories.ExtractedTextRepository.Backlog;
+import com.example.dms.services.BlobService;
+import com.example.dms.services.TextExtractionService;
+import com.example.dms.services.search.fulltext.DocumentIndexer;
+import com.example.dms.services.search.fulltext.TextExtractionEvent;
+import com.example.dms.services.search.fulltext.TextExtractor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Extracts the text of stored content on a bounded pool of workers so uploads never wait for it. Jobs live in the
+ * dms_extracted_text table, the in memory queue only holds the keys handed to the workers: jobs that don't fit into
+ * the queue, failed jobs waiting for their retry and jobs left over by a restart are picked up by the poller.
+ * Documents with the content are indexed again once their text was extracted.
+ */
+@Service
+@Log4j2
+public class TextExtractionServiceImpl implements TextExtractionService {
+
+	private static final int REQUEST_BATCH_SIZE = 100;
+	private static final List<Status> BACKLOG = List.of(Status.PENDING, Status.RUNNING);
+
+	private final ExtractedTextRepository extractedTextRepository;
+	private final ContentRepository contentRepository;
+	private final BlobService blobService;
+	private final TextExtractor textExtractor;
+	private final DocumentIndexer documentIndexer;
+	private final ApplicationEventPublisher eventPublisher;
+	private final TransactionTemplate transactionTemplate;
+	private final ThreadPoolExecutor executor;
+	private final Set<String> queued = ConcurrentHashMap.newKeySet();
+	private final int maxAttempts;
+	private final Duration retryDelay;
+	private final AtomicLong backlogSize = new AtomicLong();
+	private final AtomicReference<LocalDateTime> oldestRequest = new AtomicReference<>();
+	private final Timer lag;
+	private final Counter extracted;
+	private final Counter retried;
+	private final Counter failed;
+
+	public TextExtractionServiceImpl(ExtractedTextRepository extractedTextRepository, ContentRepository contentRepository,
+									 BlobService blobService, TextExtractor textExtractor, DocumentIndexer documentIndexer,
+									 ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate,
+									 MeterRegistry meterRegistry,
+									 @Value("${dms.content.extraction.workers:2}") int workers,
+									 @Value("${dms.content.extraction.queue-capacity:1000}") int queueCapacity,
+									 @Value("${dms.content.extraction.max-attempts:5}") int maxAttempts,
+									 @Value("${dms.content.extraction.retry-delay:PT1M}") Duration retryDelay) {
+		this.extractedTextRepository = extractedTextRepository;
+		this.contentRepository = contentRepository;
+		this.blobService = blobService;
+		this.textExtractor = textExtractor;
+		this.documentIndexer = documentIndexer;
+		this.eventPublisher = eventPublisher;
+		this.transactionTemplate = transactionTemplate;
+		this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("text-extraction-"));
+		this.maxAttempts = maxAttempts;
+		this.retryDelay = retryDelay;
+
+		Gauge.builder("dms.extraction.queue.depth", executor, pool -> pool.getQueue().size())
+				.description("Extraction jobs waiting for a worker").register(meterRegistry);
+		Gauge.builder("dms.extraction.active", executor, ThreadPoolExecutor::getActiveCount)
+				.description("Extraction jobs being processed").register(meterRegistry);
+		Gauge.builder("dms.extraction.backlog", backlogSize, AtomicLong::get)
+				.description("Requested extractions that did not finish yet, as of the last poll").register(meterRegistry);
+		Gauge.builder("dms.extraction.backlog.age", oldestRequest, TextExtractionServiceImpl::secondsSince).baseUnit("seconds")
+				.description("Time since the oldest unfinished extraction was requested, as of the last poll")
+				.register(meterRegistry);
+		this.lag = Timer.builder("dms.extraction.lag")
+				.description("Time from the extraction request to the stored text").register(meterRegistry);
+		this.extracted = Counter.builder("dms.extraction.jobs").tag("result", "extracted")
+				.description("Finished extraction attempts").register(meterRegistry);
+		this.retried = Counter.builder("dms.extraction.jobs").tag("result", "retried")
+				.description("Finished extraction attempts").register(meterRegistry);
+		this.failed = Counter.builder("dms.extraction.jobs").tag("result", "failed")
+				.description("Finished extraction attempts").register(meterRegistry);
+	}
+
+	@Override
+	@Transactional
+	public void request(String storageKey, String contentType) {
+		if (storageKey == null || !textExtractor.supports(contentType)) {
+			return;
+		}
+		extractedTextRepository.request(storageKey, contentType, LocalDateTime.now());
+		eventPublisher.publishEvent(new TextExtractionEvent(storageKey));
+	}
+
+	@Override
+	@PreAuthorize("hasAuthority('ADMINISTRATION_PRIVILEGE')")
+	public int requestAll(boolean all) {
+		List<Status> statuses = all ? List.of(Status.FAILED, Status.DONE) : List.of(Status.FAILED);
+		int requested = 0;
+		String lastKey = "";
+		List<StoredContent> page;
+		do {
+			page = contentRepository.findStoredContentAfter(lastKey, PageRequest.of(0, REQUEST_BATCH_SIZE));
+			List<StoredContent> supported = page.stream().filter(content -> textExtractor.supports(content.getContentType()))
+					.collect(Collectors.toList());
+			if (!supported.isEmpty()) {
+				// one transaction per batch, a bulk run over the whole repository never holds locks for long
+				LocalDateTime now = LocalDateTime.now();
+				transactionTemplate.executeWithoutResult(status -> {
+					supported.forEach(content -> extractedTextRepository.request(content.getStorageKey(),
+							content.getContentType(), now));
+					extractedTextRepository.requestAgain(supported.stream().map(StoredContent::getStorageKey)
+							.collect(Collectors.toList()), statuses, Status.PENDING, now);
+				});
+				requested += supported.size();
+			}
+			if (!page.isEmpty()) {
+				lastKey = page.get(page.size() - 1).getStorageKey();
+			}
+		} while (page.size() == REQUEST_BATCH_SIZE);
+		log.info("requested text extraction of stored content: {}", requested);
+		dispatchDueJobs();
+		return requested;
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onExtractionRequested(TextExtractionEvent event) {
+		dispatch(event.getStorageKey());
+	}
+
+	@Scheduled(fixedDelayString = "${dms.content.extraction.poll-interval:PT30S}",
+			initialDelayString = "${dms.content.extraction.poll-interval:PT30S}")
+	public void dispatchDueJobs() {
+		Backlog backlog = extractedTextRepository.getBacklog(BACKLOG);
+		backlogSize.set(backlog.getCount());
+		oldestRequest.set(backlog.getOldestRequest());
+
+		int capacity = executor.getQueue().remainingCapacity();
+		if (capacity > 0) {
+			extractedTextRepository.findDueStorageKeys(Status.PENDING, LocalDateTime.now(), PageRequest.of(0, capacity))
+					.forEach(this::dispatch);
+		}
+	}
+
+	@Async
+	@EventListener(ApplicationReadyEvent.class)
+	public void resumeExtraction() {
+		// jobs that were running when the application stopped, a single application instance is assumed
+		Integer interrupted = transactionTemplate.execute(status ->
+				extractedTextRepository.updateStatus(Status.RUNNING, Status.PENDING));
+		if (interrupted != null && interrupted > 0) {
+			log.info("resuming interrupted text extractions: {}", interrupted);
+		}
+		if (extractedTextRepository.count() == 0 && contentRepository.count() > 0) {
+			// content stored before text extraction was introduced
+			requestAll(false);
+		} else {
+			dispatchDueJobs();
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		// running jobs are interrupted and resumed on the next start
+		executor.shutdownNow();
+	}
+
+	private void dispatch(String storageKey) {
+		if (!queued.add(storageKey)) {
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				try {
+					extract(storageKey);
+				} catch (RuntimeException e) {
+					log.error("text extraction of content: {} failed", storageKey, e);
+				} finally {
+					queued.remove(storageKey);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// the job stays pending, the poller hands it over once the queue has room again
+			queued.remove(storageKey);
+		}
+	}
+
+	private void extract(String storageKey) {
+		DmsExtractedText job = transactionTemplate.execute(status -> claim(storageKey));
+		if (job == null) {
+			// extracted, failed for good or taken by another worker in the meantime
+			return;
+		}
+		String text;
+		try (InputStream inputStream = blobService.read(storageKey)) {
+			text = textExtractor.extract(inputStream, job.getContentType());
+		} catch (IOException | RuntimeException e) {
+			transactionTemplate.executeWithoutResult(status -> fail(storageKey, e));
+			return;
+		}
+		transactionTemplate.executeWithoutResult(status -> complete(storageKey, text));
+		for (Integer documentId : contentRepository.findDocumentIdsByStorageKey(storageKey)) {
+			documentIndexer.reindex(documentId);
+		}
+	}
+
+	private DmsExtractedText claim(String storageKey) {
+		DmsExtractedText job = extractedTextRepository.findByStorageKey(storageKey).orElse(null);
+		if (job == null || job.getStatus() != Status.PENDING) {
+			return null;
+		}
+		job.setStatus(Status.RUNNING);
+		job.setAttempts(job.getAttempts() + 1);
+		return job;
+	}
+
+	private void complete(String storageKey, String text) {
+		extractedTextRepository.findByStorageKey(storageKey).ifPresent(job -> {
+			job.setStatus(Status.DONE);
+			job.setText(text);
+			job.setError(null);
+			if (job.getRequestedAt() != null) {
+				lag.record(Duration.between(job.getRequestedAt(), LocalDateTime.now()));
+			}
+		});
+		extracted.increment();
+		log.debug("extracted text of content: {}, characters: {}", storageKey, text.length());
+	}
+
+	private void fail(String storageKey, Exception e) {
+		extractedTextRepository.findByStorageKey(storageKey).ifPresent(job -> {
+			String message = String.valueOf(e.getMessage());
+			job.setError(message.length() > 1000 ? message.substring(0, 1000) : message);
+			if (job.getAttempts() >= maxAttempts) {
+				job.setStatus(Status.FAILED);
+				failed.increment();
+				log.warn("text extraction of content: {} failed after {} attempts", storageKey, job.getAttempts(), e);
+			} else {
+				// exponential backoff, the first retry waits for the retry delay
+				Duration delay = retryDelay.multipliedBy(1L << Math.min(job.getAttempts() - 1, 16));
+				job.setStatus(Status.PENDING);
+				job.setNextAttempt(LocalDateTime.now().plus(delay));
+				retried.increment();
+				log.debug("text extraction of content: {} failed, retrying in {}", storageKey, delay, e);
+			}
+		});
+	}
+
+	private static double secondsSince(AtomicReference<LocalDateTime> time) {
+		LocalDateTime value = time.get();
+		return value == null ? 0 : Duration.between(value, LocalDateTime.now()).toMillis() / 1000.0;
+	}
+}
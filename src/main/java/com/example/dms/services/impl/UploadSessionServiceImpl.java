@@ -0,0 +1,320 @@
+package com.example.dms.services.impl;
+
+import com.example.dms.api.dtos.content.NewUploadSessionDTO;
+import com.example.dms.api.dtos.content.UploadSessionDTO;
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.domain.DmsUploadSession;
+import com.example.dms.repositories.DocumentRepository;
+import com.example.dms.repositories.UploadSessionRepository;
+import com.example.dms.services.AuthenticationUtil;
+import com.example.dms.services.ContentService;
+import com.example.dms.services.UploadSessionService;
+import com.example.dms.utils.StorageUtils;
+import com.example.dms.utils.exceptions.BadRequestException;
+import com.example.dms.utils.exceptions.DmsNotFoundException;
+import com.example.dms.utils.exceptions.InternalException;
+import com.example.dms.utils.exceptions.NotPermitedException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+@Service
+@Log4j2
+@Transactional
+public class UploadSessionServiceImpl implements UploadSessionService {
+
+	private static final String CHUNK_SUFFIX = ".chunk";
+
+	private final UploadSessionRepository uploadSessionRepository;
+	private final DocumentRepository documentRepository;
+	private final ContentService contentService;
+	private final AuthenticationUtil authUtil;
+	private final Path root;
+	private final long maxChunkSize;
+	private final Duration expiration;
+
+	public UploadSessionServiceImpl(UploadSessionRepository uploadSessionRepository, DocumentRepository documentRepository,
+									ContentService contentService, AuthenticationUtil authUtil,
+									@Value("${dms.content.upload.location:upload-sessions}") String location,
+									@Value("${dms.content.upload.max-chunk-size:16MB}") DataSize maxChunkSize,
+									@Value("${dms.content.upload.expiration:PT24H}") Duration expiration) throws IOException {
+		this.uploadSessionRepository = uploadSessionRepository;
+		this.documentRepository = documentRepository;
+		this.contentService = contentService;
+		this.authUtil = authUtil;
+		this.root = Paths.get(location).toAbsolutePath().normalize();
+		this.maxChunkSize = maxChunkSize.toBytes();
+		this.expiration = expiration;
+		Files.createDirectories(root);
+	}
+
+	@Override
+	public UploadSessionDTO createSession(Integer documentId, NewUploadSessionDTO dto) {
+		DmsDocument doc = documentRepository.findById(documentId).orElseThrow(DmsNotFoundException::new);
+		if (doc.isImmutable()) {
+			throw new BadRequestException("Object is immutable and you cannot add content to it.");
+		}
+		if (dto.getChunkSize() > maxChunkSize) {
+			throw new BadRequestException("Chunk size can't be larger than " + maxChunkSize + " bytes.");
+		}
+		long chunkCount = (dto.getTotalSize() + dto.getChunkSize() - 1) / dto.getChunkSize();
+		if (chunkCount > Integer.MAX_VALUE) {
+			throw new BadRequestException("Chunk size is too small for the given total size.");
+		}
+
+		DmsUploadSession session = DmsUploadSession.builder().sessionKey(UUID.randomUUID().toString()).document(doc)
+				.username(authUtil.getUserName()).originalFileName(dto.getOriginalFileName())
+				.contentType(dto.getContentType()).totalSize(dto.getTotalSize()).chunkSize(dto.getChunkSize())
+				.chunkCount((int) chunkCount).checksum(dto.getChecksum()).build();
+		session = uploadSessionRepository.save(session);
+		try {
+			Files.createDirectories(sessionDirectory(session));
+		} catch (IOException e) {
+			throw new InternalException("Could not create upload session for document: '" + documentId + "'.");
+		}
+		log.debug("created upload session: {} for document: {}, chunks: {}", session.getSessionKey(), documentId, chunkCount);
+		return toDto(session);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public UploadSessionDTO getSession(String sessionKey) {
+		return toDto(findOwnSession(sessionKey));
+	}
+
+	// no transaction while the chunk is transferred, the connection would be held for the whole request
+	@Override
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public UploadSessionDTO uploadChunk(String sessionKey, int chunkNumber, String checksum, InputStream inputStream) {
+		DmsUploadSession session = findOwnSession(sessionKey);
+		if (chunkNumber < 0 || chunkNumber >= session.getChunkCount()) {
+			throw new BadRequestException("Invalid chunk number: " + chunkNumber + ", session has "
+					+ session.getChunkCount() + " chunks.");
+		}
+		if (checksum == null || checksum.isBlank()) {
+			throw new BadRequestException("Chunk checksum is missing.");
+		}
+		long expectedSize = chunkNumber == session.getChunkCount() - 1
+				? session.getTotalSize() - (long) chunkNumber * session.getChunkSize()
+				: session.getChunkSize();
+
+		Path directory = sessionDirectory(session);
+		Path partFile = directory.resolve(chunkNumber + ".part");
+		try {
+			MessageDigest digest = StorageUtils.newDigest();
+			long written = copyLimited(inputStream, partFile, digest, expectedSize);
+			if (written != expectedSize) {
+				throw new BadRequestException("Chunk " + chunkNumber + " has " + written + " bytes, expected "
+						+ expectedSize + ".");
+			}
+			if (!StorageUtils.toHex(digest.digest()).equalsIgnoreCase(checksum.trim())) {
+				throw new BadRequestException("Checksum of chunk " + chunkNumber + " does not match.");
+			}
+			Files.move(partFile, chunkFile(directory, chunkNumber), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new InternalException("Could not store chunk " + chunkNumber + " of upload session: '" + sessionKey + "'.");
+		} finally {
+			deleteQuietly(partFile);
+		}
+
+		// keeps the session from expiring while the upload is progressing
+		session.setModifyDate(LocalDateTime.now());
+		return toDto(uploadSessionRepository.save(session));
+	}
+
+	@Override
+	public UploadSessionDTO commit(String sessionKey) {
+		DmsUploadSession session = findOwnSession(sessionKey);
+		Path directory = sessionDirectory(session);
+		List<Integer> missing = new ArrayList<>();
+		for (int i = 0; i < session.getChunkCount(); i++) {
+			if (!Files.exists(chunkFile(directory, i))) missing.add(i);
+		}
+		if (!missing.isEmpty()) {
+			throw new BadRequestException("Upload session is missing chunks: " + missing);
+		}
+
+		String storageKey;
+		try (InputStream inputStream = new SequenceInputStream(new ChunkEnumeration(directory, session.getChunkCount()))) {
+			storageKey = contentService.storeContent(session.getDocument().getId(), inputStream, session.getTotalSize(),
+					session.getContentType(), session.getOriginalFileName());
+		} catch (IOException | UncheckedIOException e) {
+			throw new InternalException("Could not assemble upload session: '" + sessionKey + "'.");
+		}
+		if (session.getChecksum() != null && !session.getChecksum().trim().equalsIgnoreCase(storageKey)) {
+			// rolls back the content, the stored data is left for the garbage collector
+			throw new BadRequestException("Checksum of the uploaded file does not match.");
+		}
+
+		UploadSessionDTO dto = toDto(session);
+		uploadSessionRepository.delete(session);
+		deleteDirectoryAfterCommit(directory);
+		log.debug("committed upload session: {} for document: {}", sessionKey, session.getDocument().getId());
+		return dto;
+	}
+
+	@Override
+	public void abort(String sessionKey) {
+		DmsUploadSession session = findOwnSession(sessionKey);
+		uploadSessionRepository.delete(session);
+		deleteDirectoryAfterCommit(sessionDirectory(session));
+	}
+
+	@Override
+	@Scheduled(fixedDelayString = "${dms.content.upload.cleanup-interval:PT1H}")
+	public void removeExpiredSessions() {
+		LocalDateTime threshold = LocalDateTime.now().minus(expiration);
+		for (DmsUploadSession session : uploadSessionRepository.findAllByModifyDateBefore(threshold)) {
+			log.info("removing expired upload session: {}", session.getSessionKey());
+			uploadSessionRepository.delete(session);
+			deleteDirectoryAfterCommit(sessionDirectory(session));
+		}
+		// directories of sessions that were removed together with their document
+		try (DirectoryStream<Path> directories = Files.newDirectoryStream(root)) {
+			for (Path directory : directories) {
+				boolean expired = Files.getLastModifiedTime(directory).toInstant()
+						.isBefore(threshold.atZone(ZoneId.systemDefault()).toInstant());
+				if (expired && uploadSessionRepository.findBySessionKey(directory.getFileName().toString()).isEmpty()) {
+					deleteDirectoryAfterCommit(directory);
+				}
+			}
+		} catch (IOException e) {
+			log.error("could not clean up upload directory: {}", root, e);
+		}
+	}
+
+	private DmsUploadSession findOwnSession(String sessionKey) {
+		DmsUploadSession session = uploadSessionRepository.findBySessionKey(sessionKey)
+				.orElseThrow(() -> new DmsNotFoundException("Upload session: '" + sessionKey + "' does not exist."));
+		if (!session.getUsername().equals(authUtil.getUserName())) {
+			throw new NotPermitedException("Upload session belongs to another user.");
+		}
+		return session;
+	}
+
+	private UploadSessionDTO toDto(DmsUploadSession session) {
+		return UploadSessionDTO.builder().sessionKey(session.getSessionKey()).documentId(session.getDocument().getId())
+				.originalFileName(session.getOriginalFileName()).contentType(session.getContentType())
+				.totalSize(session.getTotalSize()).chunkSize(session.getChunkSize()).chunkCount(session.getChunkCount())
+				.receivedChunks(receivedChunks(session)).modifyDate(session.getModifyDate()).build();
+	}
+
+	private List<Integer> receivedChunks(DmsUploadSession session) {
+		Path directory = sessionDirectory(session);
+		List<Integer> received = new ArrayList<>();
+		for (int i = 0; i < session.getChunkCount(); i++) {
+			if (Files.exists(chunkFile(directory, i))) received.add(i);
+		}
+		return received;
+	}
+
+	private Path sessionDirectory(DmsUploadSession session) {
+		return root.resolve(session.getSessionKey());
+	}
+
+	private static Path chunkFile(Path directory, int chunkNumber) {
+		return directory.resolve(chunkNumber + CHUNK_SUFFIX);
+	}
+
+	// reads at most one byte more than expected so oversized chunks are rejected without reading them whole
+	private static long copyLimited(InputStream inputStream, Path target, MessageDigest digest, long expectedSize)
+			throws IOException {
+		byte[] buffer = new byte[8192];
+		long written = 0;
+		try (OutputStream outputStream = Files.newOutputStream(target)) {
+			int read;
+			while (written <= expectedSize
+					&& (read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, expectedSize - written + 1))) != -1) {
+				outputStream.write(buffer, 0, read);
+				digest.update(buffer, 0, read);
+				written += read;
+			}
+		}
+		return written;
+	}
+
+	private static void deleteDirectoryAfterCommit(Path directory) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			deleteDirectory(directory);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				deleteDirectory(directory);
+			}
+		});
+	}
+
+	private static void deleteDirectory(Path directory) {
+		try {
+			FileSystemUtils.deleteRecursively(directory);
+		} catch (IOException e) {
+			log.warn("could not delete upload directory: {}", directory, e);
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			log.warn("could not delete file: {}", file, e);
+		}
+	}
+
+	// opens the chunk files one at a time while the assembled stream is consumed
+	private static class ChunkEnumeration implements Enumeration<InputStream> {
+
+		private final Path directory;
+		private final int chunkCount;
+		private int next = 0;
+
+		ChunkEnumeration(Path directory, int chunkCount) {
+			this.directory = directory;
+			this.chunkCount = chunkCount;
+		}
+
+		@Override
+		public boolean hasMoreElements() {
+			return next < chunkCount;
+		}
+
+		@Override
+		public InputStream nextElement() {
+			if (!hasMoreElements()) throw new NoSuchElementException();
+			try {
+				return Files.newInputStream(chunkFile(directory, next++));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
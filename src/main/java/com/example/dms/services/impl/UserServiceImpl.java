@@ -10,16 +10,19 @@ import com.example.dms.domain.security.DmsPrivilege;
 import com.example.dms.domain.security.DmsRole;
 import com.example.dms.repositories.GroupRepository;
 import com.example.dms.repositories.UserRepository;
+import com.example.dms.security.PrincipalAuthorityService;
 import com.example.dms.services.DmsAclService;
 import com.example.dms.services.RolePrivilegeService;
 import com.example.dms.services.UserService;
+import com.example.dms.services.search.CursorPage;
+import com.example.dms.services.search.KeysetPaginator;
 import com.example.dms.services.search.SpecificationBuilder;
 import com.example.dms.services.search.user.UserSpecProvider;
-import com.example.dms.utils.Utils;
 import com.example.dms.utils.exceptions.BadRequestException;
 import com.example.dms.utils.exceptions.DmsNotFoundException;
 import com.example.dms.utils.exceptions.UniqueConstraintViolatedException;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -40,16 +43,21 @@ public class UserServiceImpl extends EntityCrudServiceImpl<DmsUser, DmsUserDTO>
 
 	BCryptPasswordEncoder passwordEncoder;
 	GroupRepository groupRepository;
+	KeysetPaginator keysetPaginator;
+	PrincipalAuthorityService principalAuthorityService;
 
 	public UserServiceImpl(UserRepository userRepository, UserMapper userMapper, DmsAclService aclService,
 						   RolePrivilegeService rolePrivilegeService, BCryptPasswordEncoder passwordEncoder,
-						   GroupRepository groupRepository) {
+						   GroupRepository groupRepository, KeysetPaginator keysetPaginator,
+						   PrincipalAuthorityService principalAuthorityService) {
 		super(userRepository, userMapper, aclService);
 		this.userRepository = userRepository;
 		this.userMapper = userMapper;
 		this.rolePrivilegeService = rolePrivilegeService;
 		this.passwordEncoder = passwordEncoder;
 		this.groupRepository = groupRepository;
+		this.keysetPaginator = keysetPaginator;
+		this.principalAuthorityService = principalAuthorityService;
 	}
 	
 	@Override
@@ -121,6 +129,7 @@ public class UserServiceImpl extends EntityCrudServiceImpl<DmsUser, DmsUserDTO>
 			userRepository.updateUsername(oldUsername, userDTO.getUsername());
 		}
 		mapRolesPrivilegesToUser(user, userDTO.getRole(), userDTO.getPrivileges());
+		principalAuthorityService.evict(oldUsername, user.getUsername());
 		return userMapper.entityToDto(userRepository.save(user));
 	}
 
@@ -140,19 +149,21 @@ public class UserServiceImpl extends EntityCrudServiceImpl<DmsUser, DmsUserDTO>
 	}
 
 	@Override
-	public List<DmsUserDTO> searchAll(String search, SortDTO sort) {
+	public CursorPage<DmsUserDTO> searchAll(String search, SortDTO sort, String cursor, Integer size) {
+		Specification<DmsUser> specification = null;
 		if (search != null) {
 			SpecificationBuilder<DmsUser> builder = new SpecificationBuilder<>(new UserSpecProvider());
-			return userMapper
-					.entityListToDtoList(userRepository.findAll(builder.parse(search), Utils.toSort(sort)));
+			specification = builder.parse(search);
 		}
-		return userMapper.entityListToDtoList(userRepository.findAll(Utils.toSort(sort)));
+		return keysetPaginator.findPage(DmsUser.class, specification, sort, cursor, size)
+				.map(userMapper::entityListToDtoList);
 	}
 
 	@Override
 	public void deleteById(Integer id) {
 		DmsUser user = checkPresent(id);
 		userRepository.removeAclEntries(user.getUsername());
+		principalAuthorityService.evict(user.getUsername());
 		super.deleteById(id);
 	}
 }
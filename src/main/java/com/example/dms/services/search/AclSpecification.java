@@ -0,0 +1,103 @@
+package com.example.dms.services.search;
+
+import com.example.dms.domain.security.AclAllowedClass;
+import com.example.dms.domain.security.AclGrant;
+import com.example.dms.domain.security.AclObject;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.Sid;
+
+import javax.persistence.criteria.AbstractQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Restricts a query to objects on which one of the sids holds a granting entry for the permission, the database
+ * evaluates the acl entries instead of checking every loaded row with the permission evaluator. Objects inherit the
+ * entries of their parent folder, objects in one of the granting folders match without entries of their own unless
+ * their acl does not inherit entries (acls migrated from before inheritance that keep only their own entries).
+ */
+public class AclSpecification<T extends AclAllowedClass> implements Specification<T> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String objectClass;
+	private final List<String> principals = new ArrayList<>();
+	private final List<String> authorities = new ArrayList<>();
+	private final int mask;
+	private final Set<Integer> grantingFolders;
+
+	public AclSpecification(Class<T> type, List<Sid> sids, Permission permission) {
+		this(type, sids, permission, Set.of());
+	}
+
+	/**
+	 * Granting folders are the folders whose own or inherited entries grant the permission to one of the sids.
+	 */
+	public AclSpecification(Class<T> type, List<Sid> sids, Permission permission, Collection<Integer> grantingFolders) {
+		this.objectClass = type.getName();
+		this.mask = permission.getMask();
+		this.grantingFolders = Set.copyOf(grantingFolders);
+		for (Sid sid : sids) {
+			if (sid instanceof PrincipalSid) {
+				principals.add(((PrincipalSid) sid).getPrincipal());
+			} else if (sid instanceof GrantedAuthoritySid) {
+				authorities.add(((GrantedAuthoritySid) sid).getGrantedAuthority());
+			}
+		}
+	}
+
+	@Override
+	public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
+		return toPredicate((Path<?>) root, query, builder);
+	}
+
+	/**
+	 * Same restriction for an object reached through a path, e.g. the document referenced by the rows of an
+	 * aggregate query.
+	 */
+	public Predicate toPredicate(Path<?> object, AbstractQuery<?> query, CriteriaBuilder builder) {
+		Subquery<Long> subquery = query.subquery(Long.class);
+		Root<AclGrant> grant = subquery.from(AclGrant.class);
+
+		List<Predicate> sidPredicates = new ArrayList<>();
+		if (!principals.isEmpty()) {
+			sidPredicates.add(builder.and(builder.isTrue(grant.get("principal")), grant.get("sid").in(principals)));
+		}
+		if (!authorities.isEmpty()) {
+			sidPredicates.add(builder.and(builder.isFalse(grant.get("principal")), grant.get("sid").in(authorities)));
+		}
+		if (sidPredicates.isEmpty()) {
+			return builder.disjunction();
+		}
+
+		subquery.select(grant.get("id")).where(
+				builder.equal(grant.get("objectClass"), objectClass),
+				// the cast is on the document side, the (class, identity) key of acl_object_identity stays usable
+				builder.equal(grant.get("objectIdentity"), object.get("id").as(String.class)),
+				builder.equal(grant.get("mask"), mask),
+				builder.or(sidPredicates.toArray(new Predicate[0])));
+		if (grantingFolders.isEmpty()) {
+			return builder.exists(subquery);
+		}
+
+		Subquery<Long> notInheriting = query.subquery(Long.class);
+		Root<AclObject> acl = notInheriting.from(AclObject.class);
+		notInheriting.select(acl.get("id")).where(
+				builder.equal(acl.get("objectClass"), objectClass),
+				builder.equal(acl.get("objectIdentity"), object.get("id").as(String.class)),
+				builder.isFalse(acl.get("entriesInheriting")));
+		return builder.or(builder.exists(subquery), builder.and(
+				object.get("parentFolder").get("id").in(grantingFolders), builder.not(builder.exists(notInheriting))));
+	}
+}
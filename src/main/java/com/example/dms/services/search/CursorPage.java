@@ -0,0 +1,27 @@
+package com.example.dms.services.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset paginated query, next is the opaque cursor of the following page (null on the last page).
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+
+	private final List<T> content;
+	private final String next;
+	private final int size;
+
+	public <R> CursorPage<R> map(Function<List<T>, List<R>> mapper) {
+		return new CursorPage<>(mapper.apply(content), next, size);
+	}
+
+	public boolean hasNext() {
+		return next != null;
+	}
+}
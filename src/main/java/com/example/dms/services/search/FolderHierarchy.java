@@ -0,0 +1,149 @@
+package com.example.dms.services.search;
+
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.domain.DmsFolder;
+import com.example.dms.repositories.FolderRepository;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parent of every folder, kept in memory so acl restrictions can extend the folders a user is granted to their
+ * subfolders (folders and documents inherit the entries of their parent folder) without walking the folder tree in
+ * the database on every query. Folders whose acl does not inherit entries are remembered too, the entries of the
+ * folders above them stop there. Services creating or deleting folders evict it. Every eviction moves the version on,
+ * a tree is only reused while it was loaded at the current version, so a lookup loading the folders concurrently with
+ * an eviction cannot leave the old folders cached.
+ */
+@Component
+public class FolderHierarchy {
+
+	private final FolderRepository folderRepository;
+	private final EntityManager entityManager;
+
+	private final AtomicLong version = new AtomicLong();
+	private volatile Tree tree;
+
+	public FolderHierarchy(FolderRepository folderRepository, EntityManager entityManager) {
+		this.folderRepository = folderRepository;
+		this.entityManager = entityManager;
+	}
+
+	/**
+	 * Ids of the folders matching the restriction.
+	 */
+	public Set<Integer> folders(Specification<DmsFolder> restriction) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Integer> query = builder.createQuery(Integer.class);
+		Root<DmsFolder> folder = query.from(DmsFolder.class);
+		query.select(folder.get("id")).where(restriction.toPredicate(folder, query, builder));
+		return new HashSet<>(entityManager.createQuery(query).getResultList());
+	}
+
+	/**
+	 * Ids of the folders containing a document matching the restriction.
+	 */
+	public Set<Integer> parentFolders(Specification<DmsDocument> restriction) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Integer> query = builder.createQuery(Integer.class);
+		Root<DmsDocument> document = query.from(DmsDocument.class);
+		query.select(document.get("parentFolder").get("id")).distinct(true)
+				.where(restriction.toPredicate(document, query, builder));
+		return new HashSet<>(entityManager.createQuery(query).getResultList());
+	}
+
+	/**
+	 * The folders and all folders below them inheriting their entries, a folder not inheriting entries is left out
+	 * together with the folders below it.
+	 */
+	public Set<Integer> withInheritingDescendants(Collection<Integer> folderIds) {
+		Tree current = tree();
+		Set<Integer> folders = new HashSet<>();
+		Deque<Integer> pending = new ArrayDeque<>(folderIds);
+		while (!pending.isEmpty()) {
+			Integer folderId = pending.pop();
+			if (folders.add(folderId)) {
+				for (Integer child : current.children.getOrDefault(folderId, List.of())) {
+					if (!current.notInheriting.contains(child)) pending.add(child);
+				}
+			}
+		}
+		return folders;
+	}
+
+	/**
+	 * The folders and all folders above them.
+	 */
+	public Set<Integer> withAncestors(Collection<Integer> folderIds) {
+		Tree current = tree();
+		Set<Integer> folders = new HashSet<>();
+		for (Integer folderId : folderIds) {
+			while (folderId != null && folders.add(folderId)) {
+				folderId = current.parents.get(folderId);
+			}
+		}
+		return folders;
+	}
+
+	/**
+	 * Evicts the hierarchy now and once more when the current transaction completes, a lookup running before the
+	 * change is committed would cache the old folders again.
+	 */
+	public void evict() {
+		version.incrementAndGet();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					version.incrementAndGet();
+				}
+			});
+		}
+	}
+
+	private Tree tree() {
+		Tree current = tree;
+		// read before loading, an eviction while loading leaves the tree outdated
+		long loadedVersion = version.get();
+		if (current == null || current.version != loadedVersion) {
+			current = new Tree(folderRepository.findParents(), folderRepository.findNotInheritingIds(), loadedVersion);
+			tree = current;
+		}
+		return current;
+	}
+
+	private static final class Tree {
+
+		private final Map<Integer, Integer> parents = new HashMap<>();
+		private final Map<Integer, List<Integer>> children = new HashMap<>();
+		private final Set<Integer> notInheriting;
+		private final long version;
+
+		private Tree(List<FolderRepository.FolderParent> folders, Collection<Integer> notInheriting, long version) {
+			this.notInheriting = new HashSet<>(notInheriting);
+			this.version = version;
+			for (FolderRepository.FolderParent folder : folders) {
+				if (folder.getParentId() != null) {
+					parents.put(folder.getId(), folder.getParentId());
+					children.computeIfAbsent(folder.getParentId(), parent -> new ArrayList<>()).add(folder.getId());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.dms.services.search;
+
+import com.example.dms.utils.exceptions.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position of a keyset page: the sort column and direction plus the sort value and id of the last row returned.
+ * Clients only pass the encoded form back, the next page continues after that row instead of skipping an offset.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+
+	private static final String SEPARATOR = "\n";
+
+	private final String property;
+	private final boolean ascending;
+	// string form of the sort value, null when the last row had no value
+	private final String value;
+	private final Integer id;
+
+	public String encode() {
+		String raw = property + SEPARATOR + (ascending ? "asc" : "desc") + SEPARATOR + id + SEPARATOR
+				+ (value == null ? "" : "v" + value);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static KeysetCursor decode(String cursor) {
+		try {
+			String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+					.split(SEPARATOR, 4);
+			if (parts.length != 4 || !(parts[1].equals("asc") || parts[1].equals("desc"))) {
+				throw new BadRequestException("Invalid cursor.");
+			}
+			String value = parts[3].isEmpty() ? null : parts[3].substring(1);
+			return new KeysetCursor(parts[0], parts[1].equals("asc"), value, Integer.valueOf(parts[2]));
+		} catch (IllegalArgumentException e) {
+			throw new BadRequestException("Invalid cursor.");
+		}
+	}
+
+	/**
+	 * The sort value converted back to the type of the sorted attribute.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public Comparable<?> valueAs(Class<?> type) {
+		if (value == null) return null;
+		try {
+			if (type == String.class) return value;
+			if (type == Integer.class || type == int.class) return Integer.valueOf(value);
+			if (type == Long.class || type == long.class) return Long.valueOf(value);
+			if (type == Boolean.class || type == boolean.class) return Boolean.valueOf(value);
+			if (type == LocalDateTime.class) return LocalDateTime.parse(value);
+			if (type == LocalDate.class) return LocalDate.parse(value);
+			if (type.isEnum()) return Enum.valueOf((Class<Enum>) type, value);
+		} catch (RuntimeException e) {
+			throw new BadRequestException("Invalid cursor.");
+		}
+		throw new BadRequestException("Sorting by column '" + property + "' is not supported.");
+	}
+}
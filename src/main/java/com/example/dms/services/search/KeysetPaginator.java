@@ -0,0 +1,234 @@
+package com.example.dms.services.search;
+
+import com.example.dms.api.dtos.SortDTO;
+import com.example.dms.domain.BaseEntity;
+import com.example.dms.utils.Utils;
+import com.example.dms.utils.exceptions.BadRequestException;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.NullValueInNestedPathException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.EntityType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset (seek) pagination over specification queries. Rows are ordered by the requested column with the id as tie
+ * breaker and every page starts after the last row of the previous one, so the database reads the same number of
+ * rows for the thousandth page as for the first. No count query is issued.
+ * <p>
+ * Pages requested without a size have the default size, the rest of the results is reached through the cursor of the
+ * next page. Returning all results of requests without a size and without a cursor, as before pagination existed, is
+ * only a transition for old clients and has to be switched on with dms.search.page-size.unpaged-without-size.
+ * <p>
+ * Null sort values are ordered before all other values, as both MySQL and H2 do.
+ */
+@Component
+public class KeysetPaginator {
+
+	private static final String ID = "id";
+
+	private final EntityManager entityManager;
+	private final int defaultSize;
+	private final int maxSize;
+	private final boolean unpagedWithoutSize;
+
+	public KeysetPaginator(EntityManager entityManager,
+						   @Value("${dms.search.page-size.default:100}") int defaultSize,
+						   @Value("${dms.search.page-size.max:1000}") int maxSize,
+						   @Value("${dms.search.page-size.unpaged-without-size:false}") boolean unpagedWithoutSize) {
+		this.entityManager = entityManager;
+		this.defaultSize = defaultSize;
+		this.maxSize = maxSize;
+		this.unpagedWithoutSize = unpagedWithoutSize;
+	}
+
+	/**
+	 * Page of entities matching the specification. Without a cursor the first page in the order of the sort
+	 * is returned, with one the sort stored in the cursor is used. fetch lists associations loaded in the same query.
+	 */
+	public <T extends BaseEntity> CursorPage<T> findPage(Class<T> type, Specification<T> specification, SortDTO sort,
+														 String cursor, Integer size, String... fetch) {
+		Keyset keyset = keyset(sort, cursor, size);
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<T> query = builder.createQuery(type);
+		Root<T> root = query.from(type);
+		Path<Comparable<Object>> sortPath = resolve(root, keyset.property);
+		query.select(root);
+		restrict(query, root, sortPath, specification, keyset, builder);
+
+		TypedQuery<T> typedQuery = keyset.limit(entityManager.createQuery(query));
+		if (fetch.length > 0) {
+			EntityGraph<T> graph = entityManager.createEntityGraph(type);
+			graph.addAttributeNodes(fetch);
+			typedQuery.setHint("javax.persistence.fetchgraph", graph);
+		}
+		List<T> rows = typedQuery.getResultList();
+		if (keyset.isUnbounded()) {
+			return new CursorPage<>(rows, null, rows.size());
+		}
+		if (rows.size() <= keyset.limit) {
+			return new CursorPage<>(rows, null, keyset.limit);
+		}
+
+		rows = rows.subList(0, keyset.limit);
+		T last = rows.get(keyset.limit - 1);
+		return new CursorPage<>(new ArrayList<>(rows), keyset.next(sortValue(last, keyset.property), last.getId()),
+				keyset.limit);
+	}
+
+	/**
+	 * Same page as findPage, but of the columns selected from the root instead of entities. The sort value and id
+	 * are selected after the columns, the rows of the page only hold the columns.
+	 */
+	public <T extends BaseEntity> CursorPage<Tuple> findProjectedPage(Class<T> type, Specification<T> specification,
+																	  SortDTO sort, String cursor, Integer size,
+																	  Function<Root<T>, List<Selection<?>>> columns) {
+		Keyset keyset = keyset(sort, cursor, size);
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<T> root = query.from(type);
+		Path<Comparable<Object>> sortPath = resolve(root, keyset.property);
+		List<Selection<?>> selections = new ArrayList<>(columns.apply(root));
+		int columnCount = selections.size();
+		selections.add(sortPath);
+		selections.add(root.get(ID));
+		query.multiselect(selections);
+		restrict(query, root, sortPath, specification, keyset, builder);
+
+		List<Tuple> rows = keyset.limit(entityManager.createQuery(query)).getResultList();
+		if (keyset.isUnbounded()) {
+			return new CursorPage<>(rows, null, rows.size());
+		}
+		if (rows.size() <= keyset.limit) {
+			return new CursorPage<>(rows, null, keyset.limit);
+		}
+
+		rows = rows.subList(0, keyset.limit);
+		Tuple last = rows.get(keyset.limit - 1);
+		return new CursorPage<>(new ArrayList<>(rows),
+				keyset.next(last.get(columnCount), last.get(columnCount + 1, Integer.class)), keyset.limit);
+	}
+
+	private Keyset keyset(SortDTO sort, String cursor, Integer size) {
+		int limit = size == null ? defaultSize : Math.max(1, Math.min(size, maxSize));
+		KeysetCursor position = cursor == null ? null : KeysetCursor.decode(cursor);
+		if (position != null) {
+			return new Keyset(position.getProperty(), position.isAscending(), position, limit);
+		}
+		Sort.Order order = Utils.toSort(sort).iterator().next();
+		return new Keyset(order.getProperty(), order.isAscending(), null,
+				size == null && unpagedWithoutSize ? null : limit);
+	}
+
+	// the specification, the position after the cursor and the order of the page
+	private <T> void restrict(CriteriaQuery<?> query, Root<T> root, Path<Comparable<Object>> sortPath,
+							  Specification<T> specification, Keyset keyset, CriteriaBuilder builder) {
+		Path<Integer> idPath = root.get(ID);
+		List<Predicate> predicates = new ArrayList<>();
+		if (specification != null) {
+			Predicate predicate = specification.toPredicate(root, query, builder);
+			if (predicate != null) predicates.add(predicate);
+		}
+		if (keyset.position != null) {
+			predicates.add(after(builder, sortPath, idPath, keyset.position, keyset.ascending));
+		}
+		query.where(predicates.toArray(new Predicate[0]));
+		query.orderBy(keyset.ascending ? builder.asc(sortPath) : builder.desc(sortPath),
+				keyset.ascending ? builder.asc(idPath) : builder.desc(idPath));
+	}
+
+	// dotted properties are reached through left joins, sorting by an association sorts by its id
+	@SuppressWarnings("unchecked")
+	private <T> Path<Comparable<Object>> resolve(Root<T> root, String property) {
+		try {
+			String[] segments = property.split("\\.");
+			From<?, ?> from = root;
+			for (int i = 0; i < segments.length - 1; i++) {
+				from = from.join(segments[i], JoinType.LEFT);
+			}
+			Path<?> path = from.get(segments[segments.length - 1]);
+			if (isEntity(path.getJavaType())) {
+				path = from.join(segments[segments.length - 1], JoinType.LEFT).get(ID);
+			}
+			return (Path<Comparable<Object>>) path;
+		} catch (IllegalArgumentException e) {
+			throw new BadRequestException("Sorting by column '" + property + "' is not supported.");
+		}
+	}
+
+	private Object sortValue(Object row, String property) {
+		BeanWrapperImpl wrapper = new BeanWrapperImpl(row);
+		try {
+			Object value = wrapper.getPropertyValue(property);
+			return value instanceof BaseEntity ? ((BaseEntity) value).getId() : value;
+		} catch (NullValueInNestedPathException e) {
+			return null;
+		}
+	}
+
+	private boolean isEntity(Class<?> javaType) {
+		return entityManager.getMetamodel().getEntities().stream().map(EntityType::getJavaType)
+				.anyMatch(javaType::equals);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Predicate after(CriteriaBuilder builder, Path<Comparable<Object>> sortPath, Path<Integer> idPath,
+							KeysetCursor position, boolean ascending) {
+		Comparable<Object> value = (Comparable<Object>) position.valueAs(sortPath.getJavaType());
+		Predicate idAfter = ascending ? builder.greaterThan(idPath, position.getId())
+				: builder.lessThan(idPath, position.getId());
+		if (value == null) {
+			// nulls come first: ascending continues with the remaining nulls and then every value,
+			// descending only has nulls left
+			Predicate remainingNulls = builder.and(builder.isNull(sortPath), idAfter);
+			return ascending ? builder.or(remainingNulls, builder.isNotNull(sortPath)) : remainingNulls;
+		}
+		Predicate sameValue = builder.and(builder.equal(sortPath, value), idAfter);
+		if (ascending) {
+			return builder.or(builder.greaterThan(sortPath, value), sameValue);
+		}
+		return builder.or(builder.lessThan(sortPath, value), sameValue, builder.isNull(sortPath));
+	}
+
+	@AllArgsConstructor
+	private static class Keyset {
+
+		private final String property;
+		private final boolean ascending;
+		private final KeysetCursor position;
+		// null when all rows are read at once
+		private final Integer limit;
+
+		private boolean isUnbounded() {
+			return limit == null;
+		}
+
+		// one row more than the page holds is read to find out if there is a following page
+		private <R> TypedQuery<R> limit(TypedQuery<R> query) {
+			return isUnbounded() ? query : query.setMaxResults(limit + 1);
+		}
+
+		private String next(Object value, Integer id) {
+			String stored = value == null ? null : value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+			return new KeysetCursor(property, ascending, stored, id).encode();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.example.dms.services.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable syntax tree of a search string, built by {@link SearchExpressionParser}. Trees are shared between
+ * requests through the parser cache, they never hold query state.
+ */
+public abstract class SearchExpression {
+
+	private SearchExpression() {
+	}
+
+	/**
+	 * key~operation~value, a single condition on an attribute.
+	 */
+	@Getter
+	@AllArgsConstructor
+	public static final class Criterion extends SearchExpression {
+
+		private final String key;
+		private final String operation;
+		private final String value;
+
+		// specifications may rewrite the criteria they get, every query gets its own copy
+		public SearchCriteria toCriteria() {
+			return new SearchCriteria(key, operation, value);
+		}
+
+		@Override
+		public String toString() {
+			return key + "~" + operation + "~" + value;
+		}
+	}
+
+	/**
+	 * Two expressions joined by and / or.
+	 */
+	@Getter
+	@AllArgsConstructor
+	public static final class Combination extends SearchExpression {
+
+		private final boolean conjunction;
+		private final SearchExpression left;
+		private final SearchExpression right;
+
+		@Override
+		public String toString() {
+			return "(" + left + (conjunction ? "~and~" : "~or~") + right + ")";
+		}
+	}
+}
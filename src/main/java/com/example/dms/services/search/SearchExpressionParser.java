@@ -0,0 +1,178 @@
+package com.example.dms.services.search;
+
+import com.example.dms.utils.exceptions.BadRequestException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single pass parser of the search syntax: criteria key~operation~value joined by ~and~ / ~or~ and grouped with
+ * parentheses. Operators have equal precedence and are applied left to right, a~or~b~and~c is (a~or~b)~and~c.
+ * <p>
+ * Grammar:
+ * <pre>
+ * expression = term { "~" ("and" | "or") "~" term }
+ * term       = "(" expression ")" | word "~" word "~" word
+ * </pre>
+ * Words containing whitespace, parentheses or tildes are written in double quotes: objectName~eq~"annual report".
+ * Inside quotes a backslash escapes the next character, \" for a quote and \\ for a backslash.
+ * <p>
+ * Parsed expressions are kept in a bounded cache, repeated searches (dashboards, saved queries) are not parsed again.
+ */
+public class SearchExpressionParser {
+
+	private static final int CACHE_SIZE = 1024;
+
+	private static final Map<String, SearchExpression> cache = Collections.synchronizedMap(
+			new LinkedHashMap<>(64, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, SearchExpression> eldest) {
+					return size() > CACHE_SIZE;
+				}
+			});
+
+	private final List<Token> tokens;
+	private final String search;
+	private int position = 0;
+
+	private SearchExpressionParser(String search) {
+		this.search = search;
+		this.tokens = tokenize(search);
+	}
+
+	/**
+	 * Parsed expression of the search string, taken from the cache when the same search was parsed before.
+	 */
+	public static SearchExpression parse(String search) {
+		String normalized = search.trim();
+		SearchExpression expression = cache.get(normalized);
+		if (expression == null) {
+			expression = parseUncached(normalized);
+			cache.put(normalized, expression);
+		}
+		return expression;
+	}
+
+	public static SearchExpression parseUncached(String search) {
+		SearchExpressionParser parser = new SearchExpressionParser(search);
+		SearchExpression expression = parser.expression();
+		if (parser.position < parser.tokens.size()) {
+			throw parser.error("unexpected '" + parser.tokens.get(parser.position).text + "'");
+		}
+		return expression;
+	}
+
+	private SearchExpression expression() {
+		SearchExpression expression = term();
+		while (isNext("~")) {
+			position++;
+			String operator = word("and / or");
+			boolean conjunction;
+			if (operator.equalsIgnoreCase("and")) {
+				conjunction = true;
+			} else if (operator.equalsIgnoreCase("or")) {
+				conjunction = false;
+			} else {
+				throw error("expected and / or instead of '" + operator + "'");
+			}
+			expect("~");
+			expression = new SearchExpression.Combination(conjunction, expression, term());
+		}
+		return expression;
+	}
+
+	private SearchExpression term() {
+		if (isNext("(")) {
+			position++;
+			SearchExpression expression = expression();
+			expect(")");
+			return expression;
+		}
+		String key = word("search key");
+		expect("~");
+		String operation = word("search operation");
+		expect("~");
+		return new SearchExpression.Criterion(key, operation, word("search value"));
+	}
+
+	private String word(String expected) {
+		if (position >= tokens.size() || tokens.get(position).symbol) {
+			throw error("expected " + expected);
+		}
+		return tokens.get(position++).text;
+	}
+
+	private void expect(String symbol) {
+		if (!isNext(symbol)) {
+			throw error("expected '" + symbol + "'");
+		}
+		position++;
+	}
+
+	private boolean isNext(String symbol) {
+		return position < tokens.size() && tokens.get(position).symbol && tokens.get(position).text.equals(symbol);
+	}
+
+	private BadRequestException error(String message) {
+		return new BadRequestException("Invalid search string: " + message + " at token " + (position + 1)
+				+ " of '" + search + "'.");
+	}
+
+	private static boolean isSymbol(char c) {
+		return c == '(' || c == ')' || c == '~';
+	}
+
+	private List<Token> tokenize(String search) {
+		List<Token> tokens = new ArrayList<>();
+		int length = search.length();
+		int i = 0;
+		while (i < length) {
+			char c = search.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (isSymbol(c)) {
+				tokens.add(new Token(String.valueOf(c), true));
+				i++;
+			} else if (c == '"') {
+				StringBuilder word = new StringBuilder();
+				i++;
+				while (i < length && search.charAt(i) != '"') {
+					if (search.charAt(i) == '\\' && i + 1 < length) {
+						i++;
+					}
+					word.append(search.charAt(i++));
+				}
+				if (i >= length) {
+					position = tokens.size();
+					throw error("unterminated quote");
+				}
+				tokens.add(new Token(word.toString(), false));
+				i++;
+			} else {
+				int start = i;
+				while (i < length && !isSymbol(search.charAt(i)) && !Character.isWhitespace(search.charAt(i))) {
+					i++;
+				}
+				tokens.add(new Token(search.substring(start, i), false));
+			}
+		}
+		return tokens;
+	}
+
+	// quoted words are never symbols, a quoted "~" is a value
+	private static final class Token {
+
+		private final String text;
+		private final boolean symbol;
+
+		private Token(String text, boolean symbol) {
+			this.text = text;
+			this.symbol = symbol;
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.example.dms.services.search.document;
+
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.utils.exceptions.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Document counts grouped by a facet, one GROUP BY query per facet over the documents matching a specification.
+ * Categorical facets (type, creator, folder) are ordered by count, creation date buckets (month, year) by date, newest
+ * first.
+ */
+@Component
+public class DocumentFacets {
+
+	public static final String TYPE = "type";
+	public static final String CREATOR = "creator";
+	public static final String FOLDER = "folder";
+	public static final String MONTH = "month";
+	public static final String YEAR = "year";
+	public static final List<String> DEFAULT_FACETS = List.of(TYPE, CREATOR, FOLDER, MONTH);
+
+	private final EntityManager entityManager;
+	private final int defaultSize;
+	private final int maxSize;
+
+	public DocumentFacets(EntityManager entityManager,
+						  @Value("${dms.search.page-size.default:100}") int defaultSize,
+						  @Value("${dms.search.page-size.max:1000}") int maxSize) {
+		this.entityManager = entityManager;
+		this.defaultSize = defaultSize;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Counts per value of every facet (in the order of the facets), at most size values per facet.
+	 */
+	public Map<String, Map<String, Long>> count(Specification<DmsDocument> specification, List<String> facets,
+												 Integer size) {
+		int limit = size == null ? defaultSize : Math.max(1, Math.min(size, maxSize));
+		Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+		for (String facet : facets == null || facets.isEmpty() ? DEFAULT_FACETS : facets) {
+			counts.put(facet, count(specification, facet, limit));
+		}
+		return counts;
+	}
+
+	private Map<String, Long> count(Specification<DmsDocument> specification, String facet, int limit) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<DmsDocument> root = query.from(DmsDocument.class);
+		List<Expression<?>> groups = groupBy(facet, root, builder);
+		Expression<Long> count = builder.count(root);
+
+		List<Selection<?>> selections = new ArrayList<>(groups);
+		selections.add(count);
+		query.multiselect(selections).groupBy(groups);
+		Predicate predicate = specification == null ? null : specification.toPredicate(root, query, builder);
+		if (predicate != null) {
+			query.where(predicate);
+		}
+		List<Order> orders = new ArrayList<>();
+		if (isDateBucket(facet)) {
+			// the size limit keeps the most recent buckets
+			groups.forEach(group -> orders.add(builder.desc(group)));
+		} else {
+			orders.add(builder.desc(count));
+			orders.add(builder.asc(groups.get(0)));
+		}
+		query.orderBy(orders);
+
+		Map<String, Long> counts = new LinkedHashMap<>();
+		for (Tuple tuple : entityManager.createQuery(query).setMaxResults(limit).getResultList()) {
+			if (tuple.get(0) != null) {
+				counts.put(label(facet, tuple), tuple.get(groups.size(), Long.class));
+			}
+		}
+		return counts;
+	}
+
+	private List<Expression<?>> groupBy(String facet, Root<DmsDocument> root, CriteriaBuilder builder) {
+		Expression<LocalDateTime> creationDate = root.get("creationDate");
+		switch (facet) {
+			case TYPE:
+				return List.of(root.get("type").get("typeName"));
+			case CREATOR:
+				return List.of(root.get("creator").get("username"));
+			case FOLDER:
+				return List.of(root.get("parentFolder").get("id"));
+			case MONTH:
+				return List.of(builder.function("year", Integer.class, creationDate),
+						builder.function("month", Integer.class, creationDate));
+			case YEAR:
+				return List.of(builder.function("year", Integer.class, creationDate));
+			default:
+				throw new BadRequestException("Unknown facet: '" + facet + "', supported facets are: "
+						+ String.join(", ", TYPE, CREATOR, FOLDER, MONTH, YEAR) + ".");
+		}
+	}
+
+	private String label(String facet, Tuple tuple) {
+		if (MONTH.equals(facet)) {
+			return String.format("%04d-%02d", tuple.get(0, Integer.class), tuple.get(1, Integer.class));
+		}
+		return String.valueOf(tuple.get(0));
+	}
+
+	private boolean isDateBucket(String facet) {
+		return MONTH.equals(facet) || YEAR.equals(facet);
+	}
+}
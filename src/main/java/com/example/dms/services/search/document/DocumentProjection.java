@@ -0,0 +1,309 @@
+package com.example.dms.services.search.document;
+
+import com.example.dms.api.dtos.content.DmsContentDTO;
+import com.example.dms.api.dtos.document.DmsDocumentDTO;
+import com.example.dms.api.dtos.user.DmsUserSummaryDTO;
+import com.example.dms.domain.DmsContent;
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.domain.DmsUser;
+import com.example.dms.utils.StringUtils;
+import com.example.dms.utils.exceptions.BadRequestException;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Document list views read the columns of DmsDocumentDTO instead of loading DmsDocument entities, which pull their
+ * type, folder and creator (with the groups, roles, privileges and notifications of the creator) in further selects
+ * per distinct row. The creator is reduced to a summary, keywords are read with one more query for the whole list,
+ * so listing takes two statements whatever the number of documents.
+ * <p>
+ * Lists can be narrowed to a subset of the fields (by their JSON names): only their columns and joins are selected
+ * and the keywords are only read when they are listed.
+ */
+@Component
+public class DocumentProjection {
+
+	private static final String ID = "id";
+	private static final String TYPE = "type";
+	private static final String CREATOR = "creator";
+	private static final String KEYWORDS = "keywords";
+	private static final String PARENT_FOLDER_ID = "parent_folder_id";
+	private static final String CONTENT = "content";
+
+	// fields by their JSON names in the order of DmsDocumentDTO, with the value of each in a listed document
+	private static final Map<String, Function<DmsDocumentDTO, Object>> FIELDS = new LinkedHashMap<>();
+
+	static {
+		FIELDS.put(ID, DmsDocumentDTO::getId);
+		FIELDS.put("creation_date", DmsDocumentDTO::getCreationDate);
+		FIELDS.put("modify_date", DmsDocumentDTO::getModifyDate);
+		FIELDS.put("object_name", DmsDocumentDTO::getObjectName);
+		FIELDS.put("description", DmsDocumentDTO::getDescription);
+		FIELDS.put(CREATOR, DmsDocumentDTO::getCreator);
+		FIELDS.put(TYPE, DmsDocumentDTO::getType);
+		FIELDS.put(KEYWORDS, DmsDocumentDTO::getKeywords);
+		FIELDS.put(PARENT_FOLDER_ID, DmsDocumentDTO::getParentFolderId);
+		FIELDS.put(CONTENT, DmsDocumentDTO::getContent);
+		FIELDS.put("root_id", DmsDocumentDTO::getRootId);
+		FIELDS.put("predecessor_id", DmsDocumentDTO::getPredecessorId);
+		FIELDS.put("immutable", DmsDocumentDTO::isImmutable);
+		FIELDS.put("version", DmsDocumentDTO::getVersion);
+		FIELDS.put("branched", DmsDocumentDTO::isBranched);
+	}
+
+	public static final Set<String> ALL_FIELDS = Collections.unmodifiableSet(FIELDS.keySet());
+
+	private final EntityManager entityManager;
+
+	public DocumentProjection(EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	public static boolean isField(String field) {
+		return FIELDS.containsKey(field);
+	}
+
+	/**
+	 * The requested fields in the order of the representation, the id is always part of it.
+	 */
+	public static Set<String> fields(Collection<String> requested) {
+		Set<String> fields = new LinkedHashSet<>();
+		fields.add(ID);
+		for (String field : requested) {
+			if (!isField(field)) {
+				throw new BadRequestException("Unknown document field: '" + field + "', supported fields are: "
+						+ String.join(", ", FIELDS.keySet()) + ".");
+			}
+		}
+		FIELDS.keySet().stream().filter(requested::contains).forEach(fields::add);
+		return fields;
+	}
+
+	/**
+	 * Columns of a listed document, in the order toDtos reads them. Queries may select more columns after these.
+	 */
+	public List<Selection<?>> columns(Root<DmsDocument> root) {
+		return columns(root, ALL_FIELDS);
+	}
+
+	/**
+	 * Columns of the given fields only, in the order toDtos reads them.
+	 */
+	public List<Selection<?>> columns(Root<DmsDocument> root, Collection<String> fields) {
+		List<Selection<?>> columns = new ArrayList<>();
+		columns.add(root.get(ID));
+		for (String field : FIELDS.keySet()) {
+			if (fields.contains(field)) {
+				columns.addAll(columns(root, field));
+			}
+		}
+		return columns;
+	}
+
+	/**
+	 * Documents of the rows selected with columns, in the order of the rows.
+	 */
+	public List<DmsDocumentDTO> toDtos(List<Tuple> rows) {
+		return toDtos(rows, ALL_FIELDS);
+	}
+
+	/**
+	 * Documents of the rows selected with the columns of the fields, the other fields are left empty.
+	 */
+	public List<DmsDocumentDTO> toDtos(List<Tuple> rows, Collection<String> fields) {
+		if (rows.isEmpty()) {
+			return new ArrayList<>();
+		}
+		Map<Integer, List<String>> keywords = Map.of();
+		if (fields.contains(KEYWORDS)) {
+			List<Integer> ids = rows.stream().map(row -> row.get(0, Integer.class)).collect(Collectors.toList());
+			keywords = keywords((root, query, builder) -> root.get(ID).in(ids));
+		}
+		Map<Integer, List<String>> rowKeywords = keywords;
+		return rows.stream().map(row -> toDto(row, fields, rowKeywords)).collect(Collectors.toList());
+	}
+
+	/**
+	 * The given fields of the documents by their JSON names, the representation of a narrowed list.
+	 */
+	public static List<Map<String, Object>> narrow(List<DmsDocumentDTO> documents, Collection<String> fields) {
+		return documents.stream().map(document -> {
+			Map<String, Object> values = new LinkedHashMap<>();
+			FIELDS.forEach((field, value) -> {
+				if (fields.contains(field)) {
+					values.put(field, value.apply(document));
+				}
+			});
+			return values;
+		}).collect(Collectors.toList());
+	}
+
+	/**
+	 * Documents matching the specification (all documents if it is null), ordered by id.
+	 */
+	public List<DmsDocumentDTO> findAll(Specification<DmsDocument> specification) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<DmsDocument> root = query.from(DmsDocument.class);
+		query.multiselect(columns(root)).orderBy(builder.asc(root.get(ID)));
+		Predicate predicate = specification == null ? null : specification.toPredicate(root, query, builder);
+		if (predicate != null) {
+			query.where(predicate);
+		}
+		List<Tuple> rows = entityManager.createQuery(query).getResultList();
+		if (rows.isEmpty()) {
+			return new ArrayList<>();
+		}
+		// the keywords are read with the same restriction, an IN list of every id could grow without bounds
+		Map<Integer, List<String>> keywords = keywords(specification);
+		return rows.stream().map(row -> toDto(row, ALL_FIELDS, keywords)).collect(Collectors.toList());
+	}
+
+	/**
+	 * Documents with the given ids, ordered by id. Ids of missing documents are skipped.
+	 */
+	public List<DmsDocumentDTO> findAllById(Collection<Integer> ids) {
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		return findAll((root, query, builder) -> root.get(ID).in(ids));
+	}
+
+	private List<Selection<?>> columns(Root<DmsDocument> root, String field) {
+		switch (field) {
+			case ID:
+			case KEYWORDS:
+				return List.of();
+			case TYPE:
+				return List.of(root.join(TYPE).get("typeName"));
+			case PARENT_FOLDER_ID:
+				return List.of(root.get("parentFolder").get(ID));
+			case CREATOR:
+				Join<DmsDocument, DmsUser> creator = root.join(CREATOR);
+				return List.of(creator.get(ID), creator.get("username"), creator.get("firstName"),
+						creator.get("lastName"));
+			case CONTENT:
+				Join<DmsDocument, DmsContent> content = root.join(CONTENT, JoinType.LEFT);
+				return List.of(content.get(ID), content.get("contentSize"), content.get("contentType"),
+						content.get("originalFileName"));
+			default:
+				return List.of(root.get(StringUtils.snakeToCamel(field)));
+		}
+	}
+
+	private Map<Integer, List<String>> keywords(Specification<DmsDocument> specification) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<DmsDocument> root = query.from(DmsDocument.class);
+		Join<DmsDocument, String> keyword = root.join(KEYWORDS);
+		query.multiselect(root.get(ID), keyword);
+		Predicate predicate = specification == null ? null : specification.toPredicate(root, query, builder);
+		if (predicate != null) {
+			query.where(predicate);
+		}
+
+		Map<Integer, List<String>> keywords = new HashMap<>();
+		for (Tuple row : entityManager.createQuery(query).getResultList()) {
+			keywords.computeIfAbsent(row.get(0, Integer.class), id -> new ArrayList<>()).add(row.get(1, String.class));
+		}
+		return keywords;
+	}
+
+	// the columns are read in the order columns selected them
+	private DmsDocumentDTO toDto(Tuple row, Collection<String> fields, Map<Integer, List<String>> keywords) {
+		Integer id = row.get(0, Integer.class);
+		DmsDocumentDTO document = DmsDocumentDTO.builder().id(id).keywords(null).build();
+		int column = 1;
+		for (String field : FIELDS.keySet()) {
+			if (!fields.contains(field)) {
+				continue;
+			}
+			switch (field) {
+				case ID:
+					break;
+				case KEYWORDS:
+					document.setKeywords(keywords.getOrDefault(id, new ArrayList<>()));
+					break;
+				case CREATOR:
+					document.setCreator(new DmsUserSummaryDTO(row.get(column, Integer.class),
+							row.get(column + 1, String.class), row.get(column + 2, String.class),
+							row.get(column + 3, String.class)));
+					column += 4;
+					break;
+				case CONTENT:
+					if (row.get(column) != null) {
+						document.setContent(DmsContentDTO.builder().contentSize(row.get(column + 1, Long.class))
+								.contentType(row.get(column + 2, String.class))
+								.originalFileName(row.get(column + 3, String.class)).build());
+					}
+					column += 4;
+					break;
+				default:
+					set(document, field, row.get(column++));
+			}
+		}
+		return document;
+	}
+
+	private void set(DmsDocumentDTO document, String field, Object value) {
+		switch (field) {
+			case "creation_date":
+				document.setCreationDate((LocalDateTime) value);
+				break;
+			case "modify_date":
+				document.setModifyDate((LocalDateTime) value);
+				break;
+			case "object_name":
+				document.setObjectName((String) value);
+				break;
+			case "description":
+				document.setDescription((String) value);
+				break;
+			case TYPE:
+				document.setType((String) value);
+				break;
+			case PARENT_FOLDER_ID:
+				document.setParentFolderId((Integer) value);
+				break;
+			case "root_id":
+				document.setRootId((Integer) value);
+				break;
+			case "predecessor_id":
+				document.setPredecessorId((Integer) value);
+				break;
+			case "immutable":
+				document.setImmutable(Boolean.TRUE.equals(value));
+				break;
+			case "version":
+				document.setVersion((String) value);
+				break;
+			case "branched":
+				document.setBranched(Boolean.TRUE.equals(value));
+				break;
+			default:
+				throw new IllegalArgumentException("Not a column of a document: " + field);
+		}
+	}
+}
@@ -2,10 +2,12 @@ package com.example.dms.services.search.document;
 
 import com.example.dms.domain.DmsDocument;
 import com.example.dms.domain.DmsFolder;
+import com.example.dms.domain.DmsKeyword;
 import com.example.dms.domain.DmsType;
 import com.example.dms.domain.DmsUser;
 import com.example.dms.services.search.BasicSearchSpecification;
 import com.example.dms.services.search.SearchCriteria;
+import com.example.dms.utils.exceptions.BadRequestException;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
@@ -13,8 +15,13 @@ import org.springframework.data.jpa.domain.Specification;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -22,20 +29,59 @@ import javax.persistence.criteria.Root;
 public class DocumentSpecification extends BasicSearchSpecification implements Specification<DmsDocument>  {
 
 	private static final long serialVersionUID = -3047798995945178009L;
+	private static final String KEYWORDS = "keywords";
 	private SearchCriteria criteria;
 
     @Override
     public Predicate toPredicate
       (Root<DmsDocument> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
 
-		if (root.get(criteria.getKey()).getJavaType() == DmsUser.class) {
-			criteria.setKey("creator.username");
-		} else if (root.get(criteria.getKey()).getJavaType() == DmsType.class) {
-			criteria.setKey("type.typeName");
-		} else if (root.get(criteria.getKey()).getJavaType() == DmsFolder.class) {
-			criteria.setKey("parentFolder.id");
+		if (KEYWORDS.equals(criteria.getKey())) {
+			return withKeywords(root, query, builder);
+		}
+		// the criteria is left as is, the specification can be applied to more than one query
+		String key = criteria.getKey();
+		if (root.get(key).getJavaType() == DmsUser.class) {
+			key = "creator.username";
+		} else if (root.get(key).getJavaType() == DmsType.class) {
+			key = "type.typeName";
+		} else if (root.get(key).getJavaType() == DmsFolder.class) {
+			key = "parentFolder.id";
 		}
 
-        return super.toPredicateBasic(root, query, builder, criteria);
+        return super.toPredicateBasic(root, query, builder,
+				new SearchCriteria(key, criteria.getOperation(), criteria.getValue()));
     }
+
+	// keywords are looked up in the normalized keyword table: EQ and IN match exactly, LIKE matches a prefix
+	private Predicate withKeywords(Root<DmsDocument> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
+		List<String> values = Arrays.stream(criteria.getValue().split(",")).map(KeywordIndex::normalize)
+				.filter(normalized -> !normalized.isEmpty()).collect(Collectors.toList());
+		if (values.isEmpty()) {
+			throw new BadRequestException("Keyword search without a keyword.");
+		}
+		Subquery<Integer> subquery = query.subquery(Integer.class);
+		Root<DmsKeyword> keyword = subquery.from(DmsKeyword.class);
+		Path<String> value = keyword.get("keyword");
+
+		String operation = criteria.getOperation().toUpperCase();
+		Predicate match;
+		switch (operation) {
+			case EQUALS:
+			case NOT_EQUALS:
+			case IN:
+			case NOT_IN:
+				match = value.in(values);
+				break;
+			case LIKE:
+				match = builder.or(values.stream().map(prefix -> builder.like(value, KeywordIndex.prefixPattern(prefix), '\\'))
+						.toArray(Predicate[]::new));
+				break;
+			default:
+				throw new RuntimeException("Unsupported search operation for keywords: " + operation);
+		}
+		subquery.select(keyword.get("id")).where(builder.equal(keyword.get("document").get("id"), root.get("id")), match);
+		Predicate exists = builder.exists(subquery);
+		return operation.equals(NOT_EQUALS) || operation.equals(NOT_IN) ? builder.not(exists) : exists;
+	}
 }
@@ -0,0 +1,160 @@
+package com.example.dms.services.search.document;
+
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.domain.DmsKeyword;
+import com.example.dms.repositories.DocumentRepository;
+import com.example.dms.repositories.KeywordRepository;
+import com.example.dms.services.search.AclSpecification;
+import com.example.dms.services.search.fulltext.DocumentIndexEvent;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the normalized keyword table in sync with DmsDocument.keywords and answers keyword counts with an aggregate
+ * query. Keywords of a changed document are updated in the transaction that changed it (documents publish a
+ * DocumentIndexEvent on every change), the table is filled from the documents on startup when it is empty.
+ */
+@Component
+@Log4j2
+public class KeywordIndex {
+
+	private static final int REBUILD_BATCH_SIZE = 100;
+
+	private final KeywordRepository keywordRepository;
+	private final DocumentRepository documentRepository;
+	private final EntityManager entityManager;
+	private final TransactionTemplate transactionTemplate;
+	private final int defaultSize;
+	private final int maxSize;
+
+	public KeywordIndex(KeywordRepository keywordRepository, DocumentRepository documentRepository,
+						EntityManager entityManager, TransactionTemplate transactionTemplate,
+						@Value("${dms.search.page-size.default:100}") int defaultSize,
+						@Value("${dms.search.page-size.max:1000}") int maxSize) {
+		this.keywordRepository = keywordRepository;
+		this.documentRepository = documentRepository;
+		this.entityManager = entityManager;
+		this.transactionTemplate = transactionTemplate;
+		this.defaultSize = defaultSize;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Keywords are compared trimmed, with single spaces between words and in lower case.
+	 */
+	public static String normalize(String keyword) {
+		return keyword == null ? "" : keyword.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * LIKE pattern matching every keyword starting with the (normalized) prefix, \ is the escape character.
+	 */
+	public static String prefixPattern(String prefix) {
+		return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+	}
+
+	@Transactional
+	@TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+	public void onDocumentChanged(DocumentIndexEvent event) {
+		update(event.getDocumentId());
+	}
+
+	/**
+	 * Number of documents per keyword, most used keywords first. Only documents matching the acl restriction (none
+	 * if it is null) are counted, a prefix limits the counts to keywords starting with it.
+	 */
+	public Map<String, Long> countKeywords(AclSpecification<DmsDocument> restriction, String prefix, Integer size) {
+		int limit = size == null ? defaultSize : Math.max(1, Math.min(size, maxSize));
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<DmsKeyword> keyword = query.from(DmsKeyword.class);
+		Expression<String> value = keyword.get("keyword");
+		Expression<Long> count = builder.count(keyword);
+
+		List<Predicate> predicates = new ArrayList<>();
+		if (restriction != null) {
+			predicates.add(restriction.toPredicate(keyword.get("document"), query, builder));
+		}
+		String normalizedPrefix = normalize(prefix);
+		if (!normalizedPrefix.isEmpty()) {
+			predicates.add(builder.like(value, prefixPattern(normalizedPrefix), '\\'));
+		}
+		query.multiselect(value, count).where(predicates.toArray(new Predicate[0])).groupBy(value)
+				.orderBy(builder.desc(count), builder.asc(value));
+
+		Map<String, Long> counts = new LinkedHashMap<>();
+		for (Tuple tuple : entityManager.createQuery(query).setMaxResults(limit).getResultList()) {
+			counts.put(tuple.get(0, String.class), tuple.get(1, Long.class));
+		}
+		return counts;
+	}
+
+	@Async
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildEmptyIndex() {
+		if (keywordRepository.count() > 0) {
+			return;
+		}
+		int indexed = 0;
+		List<Integer> ids;
+		int pageNumber = 0;
+		do {
+			ids = documentRepository.findIdsWithKeywords(PageRequest.of(pageNumber++, REBUILD_BATCH_SIZE));
+			List<Integer> batch = ids;
+			transactionTemplate.executeWithoutResult(status -> batch.forEach(this::update));
+			indexed += ids.size();
+		} while (ids.size() == REBUILD_BATCH_SIZE);
+		if (indexed > 0) {
+			log.info("keyword index rebuilt, indexed documents: {}", indexed);
+		}
+	}
+
+	private void update(Integer documentId) {
+		Set<String> keywords = documentRepository.findById(documentId).map(DmsDocument::getKeywords)
+				.map(KeywordIndex::normalizeAll).orElse(Set.of());
+		Set<String> existing = new HashSet<>(keywordRepository.findKeywordsByDocumentId(documentId));
+
+		Set<String> removed = new HashSet<>(existing);
+		removed.removeAll(keywords);
+		if (!removed.isEmpty()) {
+			keywordRepository.deleteByDocumentIdAndKeywordIn(documentId, removed);
+		}
+		List<DmsKeyword> added = keywords.stream().filter(keyword -> !existing.contains(keyword))
+				.map(keyword -> DmsKeyword.builder().keyword(keyword)
+						.document(entityManager.getReference(DmsDocument.class, documentId)).build())
+				.collect(Collectors.toList());
+		keywordRepository.saveAll(added);
+	}
+
+	private static Set<String> normalizeAll(Collection<String> keywords) {
+		return keywords.stream().filter(Objects::nonNull).map(KeywordIndex::normalize).filter(keyword -> !keyword.isEmpty())
+				.collect(Collectors.toSet());
+	}
+}
@@ -0,0 +1,184 @@
+package com.example.dms.services.search.fulltext;
+
+import com.example.dms.utils.exceptions.BadRequestException;
+import com.example.dms.utils.exceptions.InternalException;
+import lombok.extern.log4j.Log4j2;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * On disk Lucene index of document metadata and extracted content text, one index document per DmsDocument keyed
+ * by its id. Only the id is stored, everything else is indexed for searching and loaded from the database.
+ * <p>
+ * Searches read near real-time from the writer and see changes right away. Changes are committed (synced to disk) on
+ * an interval instead of once per document, changes of the last interval before a crash are missing from the index
+ * until the documents change again.
+ */
+@Component
+@Log4j2
+public class DocumentIndex {
+
+	static final String ID = "id";
+	static final String OBJECT_NAME = "objectName";
+	static final String DESCRIPTION = "description";
+	static final String KEYWORDS = "keywords";
+	static final String CONTENT = "content";
+
+	private static final String[] FIELDS = {OBJECT_NAME, KEYWORDS, DESCRIPTION, CONTENT};
+	private static final Map<String, Float> BOOSTS = Map.of(OBJECT_NAME, 4f, KEYWORDS, 3f, DESCRIPTION, 2f, CONTENT, 1f);
+
+	private final Analyzer analyzer = new StandardAnalyzer();
+	private final FSDirectory directory;
+	private final IndexWriter writer;
+	private final SearcherManager searcherManager;
+
+	public DocumentIndex(@Value("${dms.search.index.location:search-index}") String location) throws IOException {
+		Path path = Paths.get(location).toAbsolutePath().normalize();
+		Files.createDirectories(path);
+		this.directory = FSDirectory.open(path);
+		this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+				.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+		this.searcherManager = new SearcherManager(writer, null);
+	}
+
+	public void update(IndexedDocument document) {
+		Document indexed = new Document();
+		indexed.add(new StringField(ID, String.valueOf(document.getId()), Field.Store.YES));
+		addText(indexed, OBJECT_NAME, document.getObjectName());
+		addText(indexed, DESCRIPTION, document.getDescription());
+		for (String keyword : document.getKeywords()) {
+			addText(indexed, KEYWORDS, keyword);
+		}
+		addText(indexed, CONTENT, document.getContent());
+		try {
+			writer.updateDocument(new Term(ID, String.valueOf(document.getId())), indexed);
+		} catch (IOException e) {
+			throw new InternalException("Could not index document: '" + document.getId() + "'.");
+		}
+	}
+
+	public void delete(Integer id) {
+		try {
+			writer.deleteDocuments(new Term(ID, String.valueOf(id)));
+		} catch (IOException e) {
+			throw new InternalException("Could not remove document: '" + id + "' from the search index.");
+		}
+	}
+
+	public int size() {
+		return writer.getDocStats().numDocs;
+	}
+
+	/**
+	 * Ids of the best matching documents in order of relevance. Hits are read in batches and passed through the
+	 * visibility filter, so the result holds up to limit documents the caller may see however many hits they can't.
+	 */
+	public Map<Integer, Float> search(String text, int limit, Function<List<Integer>, Set<Integer>> visible) {
+		Query query = parse(text);
+		Map<Integer, Float> result = new LinkedHashMap<>();
+		int batchSize = Math.max(limit * 2, 50);
+		IndexSearcher searcher;
+		try {
+			searcherManager.maybeRefresh();
+			searcher = searcherManager.acquire();
+		} catch (IOException e) {
+			throw new InternalException("Could not open the search index.");
+		}
+		try {
+			ScoreDoc after = null;
+			while (result.size() < limit) {
+				TopDocs top = searcher.searchAfter(after, query, batchSize);
+				if (top.scoreDocs.length == 0) break;
+				Map<Integer, Float> batch = new LinkedHashMap<>();
+				for (ScoreDoc scoreDoc : top.scoreDocs) {
+					batch.put(Integer.valueOf(searcher.doc(scoreDoc.doc).get(ID)), scoreDoc.score);
+				}
+				Set<Integer> granted = visible.apply(new ArrayList<>(batch.keySet()));
+				batch.forEach((id, score) -> {
+					if (result.size() < limit && granted.contains(id)) result.put(id, score);
+				});
+				after = top.scoreDocs[top.scoreDocs.length - 1];
+			}
+		} catch (IOException e) {
+			throw new InternalException("Could not search the search index.");
+		} finally {
+			release(searcher);
+		}
+		return result;
+	}
+
+	private Query parse(String text) {
+		QueryParser parser = new MultiFieldQueryParser(FIELDS, analyzer, BOOSTS);
+		parser.setDefaultOperator(QueryParser.Operator.AND);
+		try {
+			return parser.parse(text);
+		} catch (ParseException e) {
+			throw new BadRequestException("Invalid full text query: " + e.getMessage());
+		}
+	}
+
+	private void addText(Document document, String field, String value) {
+		if (value != null && !value.isBlank()) {
+			document.add(new TextField(field, value, Field.Store.NO));
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${dms.search.index.commit-interval:PT30S}")
+	public void commit() {
+		if (!writer.hasUncommittedChanges()) {
+			return;
+		}
+		try {
+			writer.commit();
+		} catch (IOException e) {
+			log.error("could not commit the search index", e);
+		}
+	}
+
+	private void release(IndexSearcher searcher) {
+		try {
+			searcherManager.release(searcher);
+		} catch (IOException e) {
+			log.warn("could not release index searcher", e);
+		}
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		// closing the writer commits the pending changes
+		searcherManager.close();
+		writer.close();
+		directory.close();
+	}
+}
@@ -0,0 +1,15 @@
+package com.example.dms.services.search.fulltext;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a document, its metadata or its content changes (or the document is deleted), the index is
+ * updated once the transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class DocumentIndexEvent {
+
+	private final Integer documentId;
+}
@@ -0,0 +1,105 @@
+package com.example.dms.services.search.fulltext;
+
+import com.example.dms.domain.DmsContent;
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.repositories.DocumentRepository;
+import com.example.dms.repositories.ExtractedTextRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Keeps the DocumentIndex in sync with the database: changed documents are indexed after their transaction
+ * commits, an empty index (new installation or deleted index directory) is rebuilt in the background on startup.
+ */
+@Component
+@Log4j2
+public class DocumentIndexer {
+
+	private static final int REBUILD_BATCH_SIZE = 100;
+
+	private final DocumentIndex documentIndex;
+	private final DocumentRepository documentRepository;
+	private final ExtractedTextRepository extractedTextRepository;
+	private final TransactionTemplate readTemplate;
+
+	public DocumentIndexer(DocumentIndex documentIndex, DocumentRepository documentRepository,
+						   ExtractedTextRepository extractedTextRepository, TransactionTemplate transactionTemplate) {
+		this.documentIndex = documentIndex;
+		this.documentRepository = documentRepository;
+		this.extractedTextRepository = extractedTextRepository;
+		// runs after the publishing transaction committed, reads happen in a transaction of their own
+		this.readTemplate = new TransactionTemplate(Objects.requireNonNull(transactionTemplate.getTransactionManager()));
+		this.readTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.readTemplate.setReadOnly(true);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onDocumentChanged(DocumentIndexEvent event) {
+		try {
+			reindex(event.getDocumentId());
+		} catch (RuntimeException e) {
+			// the change itself is committed, a stale index entry is fixed by the next change or a rebuild
+			log.error("could not index document: {}", event.getDocumentId(), e);
+		}
+	}
+
+	public void reindex(Integer id) {
+		Optional<IndexedDocument> document = readTemplate.execute(status ->
+				documentRepository.findById(id).map(this::toIndexed));
+		if (document != null && document.isPresent()) {
+			documentIndex.update(document.get());
+		} else {
+			documentIndex.delete(id);
+		}
+	}
+
+	@Async
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuildEmptyIndex() {
+		if (documentIndex.size() > 0 || documentRepository.count() == 0) {
+			return;
+		}
+		log.info("search index is empty, indexing all documents...");
+		int indexed = 0;
+		int pageNumber = 0;
+		boolean hasNext;
+		do {
+			PageRequest pageRequest = PageRequest.of(pageNumber++, REBUILD_BATCH_SIZE, Sort.by("id"));
+			Page<IndexedDocument> page = readTemplate.execute(status ->
+					documentRepository.findAll(pageRequest).map(this::toIndexed));
+			if (page == null) break;
+			page.forEach(documentIndex::update);
+			indexed += page.getNumberOfElements();
+			hasNext = page.hasNext();
+		} while (hasNext);
+		documentIndex.commit();
+		log.info("search index rebuilt, indexed documents: {}", indexed);
+	}
+
+	private IndexedDocument toIndexed(DmsDocument document) {
+		return new IndexedDocument(document.getId(), document.getObjectName(), document.getDescription(),
+				new ArrayList<>(document.getKeywords()), contentText(document.getContent()));
+	}
+
+	// content is indexed with the text extracted by the TextExtractionService, documents are indexed again once the
+	// extraction of new content finished
+	private String contentText(DmsContent content) {
+		if (content == null || content.getStorageKey() == null) {
+			return null;
+		}
+		return extractedTextRepository.findTextByStorageKey(content.getStorageKey()).orElse(null);
+	}
+}
@@ -0,0 +1,20 @@
+package com.example.dms.services.search.fulltext;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The searchable text of a document, detached from the persistence context.
+ */
+@Getter
+@AllArgsConstructor
+public class IndexedDocument {
+
+	private final Integer id;
+	private final String objectName;
+	private final String description;
+	private final List<String> keywords;
+	private final String content;
+}
@@ -0,0 +1,15 @@
+package com.example.dms.services.search.fulltext;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when the extraction of stored content is requested, the job is handed to the extraction workers once
+ * the transaction commits.
+ */
+@Getter
+@AllArgsConstructor
+public class TextExtractionEvent {
+
+	private final String storageKey;
+}
@@ -0,0 +1,55 @@
+package com.example.dms.services.search.fulltext;
+
+import com.example.dms.utils.StorageUtils;
+import org.apache.tika.Tika;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Extracts the plain text of stored content with Apache Tika (plain text, PDF, Microsoft Office and OpenDocument
+ * formats by default). Text beyond max-length characters is dropped.
+ */
+@Component
+public class TextExtractor {
+
+	private static final String DEFAULT_CONTENT_TYPES = "text/*,application/json,application/xml,application/rtf,"
+			+ "application/pdf,application/msword,application/vnd.ms-excel,application/vnd.ms-powerpoint,"
+			+ "application/vnd.openxmlformats-officedocument.*,application/vnd.oasis.opendocument.*";
+
+	private final Tika tika = new Tika();
+	private final List<String> contentTypes;
+
+	public TextExtractor(@Value("${dms.content.extraction.content-types:" + DEFAULT_CONTENT_TYPES + "}") List<String> contentTypes,
+						 @Value("${dms.content.extraction.max-length:1000000}") int maxLength) {
+		this.contentTypes = contentTypes.stream().map(type -> type.trim().toLowerCase(Locale.ROOT))
+				.filter(type -> !type.isEmpty()).collect(Collectors.toList());
+		this.tika.setMaxStringLength(maxLength);
+	}
+
+	public boolean supports(String contentType) {
+		return StorageUtils.matchesContentType(contentType, contentTypes);
+	}
+
+	/**
+	 * Text of the content, the declared content type is a hint for the format detection. The stream is closed.
+	 */
+	public String extract(InputStream inputStream, String contentType) throws IOException {
+		Metadata metadata = new Metadata();
+		if (contentType != null) {
+			metadata.set(Metadata.CONTENT_TYPE, contentType);
+		}
+		try {
+			return tika.parseToString(inputStream, metadata);
+		} catch (TikaException e) {
+			throw new IOException("Could not extract text: " + e.getMessage(), e);
+		}
+	}
+}
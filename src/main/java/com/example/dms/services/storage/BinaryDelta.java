@@ -0,0 +1,253 @@
+package com.example.dms.services.storage;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary diff between two files in the style of rsync: the base is split into fixed size blocks indexed by a rolling
+ * checksum, the target is scanned byte by byte and every block found in the base is written as a copy instruction,
+ * everything else as literal data. Both files are only read through small page buffers, so neither has to fit
+ * into memory (the block index holds one entry per block of the base).
+ * <p>
+ * Format: a sequence of instructions, COPY (offset: long, length: int), INSERT (length: int, data) terminated by END.
+ */
+public class BinaryDelta {
+
+	public static final int BLOCK_SIZE = 2048;
+
+	private static final int COPY = 1;
+	private static final int INSERT = 2;
+	private static final int END = 0;
+	private static final int MAX_INSERT = 64 * 1024;
+	private static final int MOD = 1 << 16;
+
+	private BinaryDelta() {
+		throw new IllegalStateException("Utility class");
+	}
+
+	/**
+	 * Writes the delta turning base into target to the output stream, the stream is not closed.
+	 */
+	public static void encode(Path base, Path target, OutputStream outputStream) throws IOException {
+		DataOutputStream out = new DataOutputStream(outputStream);
+		try (PagedFile baseFile = new PagedFile(base); PagedFile targetFile = new PagedFile(target)) {
+			Map<Integer, Long> index = indexBlocks(baseFile);
+			long targetSize = targetFile.size();
+			long literalStart = 0;
+			long pos = 0;
+			int a = 0;
+			int b = 0;
+			boolean hashValid = false;
+
+			while (pos + BLOCK_SIZE <= targetSize) {
+				if (!hashValid) {
+					int[] checksum = checksum(targetFile, pos);
+					a = checksum[0];
+					b = checksum[1];
+					hashValid = true;
+				}
+				Long offset = index.get(b << 16 | a);
+				if (offset != null && matches(baseFile, offset, targetFile, pos)) {
+					long length = BLOCK_SIZE;
+					while (offset + length < baseFile.size() && pos + length < targetSize && length < Integer.MAX_VALUE
+							&& baseFile.byteAt(offset + length) == targetFile.byteAt(pos + length)) {
+						length++;
+					}
+					writeInsert(out, targetFile, literalStart, pos);
+					out.writeByte(COPY);
+					out.writeLong(offset);
+					out.writeInt((int) length);
+					pos += length;
+					literalStart = pos;
+					hashValid = false;
+					continue;
+				}
+				if (pos + BLOCK_SIZE < targetSize) {
+					// roll the checksum one byte forward
+					int out0 = targetFile.byteAt(pos);
+					int in = targetFile.byteAt(pos + BLOCK_SIZE);
+					a = Math.floorMod(a - out0 + in, MOD);
+					b = Math.floorMod(b - BLOCK_SIZE * out0 + a, MOD);
+				}
+				pos++;
+				if (pos - literalStart >= MAX_INSERT) {
+					writeInsert(out, targetFile, literalStart, pos);
+					literalStart = pos;
+				}
+			}
+			writeInsert(out, targetFile, literalStart, targetSize);
+		}
+		out.writeByte(END);
+		out.flush();
+	}
+
+	/**
+	 * Stream over the content reconstructed from the base file and the delta. Closing it closes the delta stream,
+	 * the base file is left as is.
+	 */
+	public static InputStream apply(Path base, InputStream delta) throws IOException {
+		return new DeltaInputStream(new RandomAccessFile(base.toFile(), "r"), delta);
+	}
+
+	private static Map<Integer, Long> indexBlocks(PagedFile base) throws IOException {
+		Map<Integer, Long> index = new HashMap<>();
+		for (long offset = 0; offset + BLOCK_SIZE <= base.size(); offset += BLOCK_SIZE) {
+			int[] checksum = checksum(base, offset);
+			index.putIfAbsent(checksum[1] << 16 | checksum[0], offset);
+		}
+		return index;
+	}
+
+	private static int[] checksum(PagedFile file, long offset) throws IOException {
+		int a = 0;
+		int b = 0;
+		for (int i = 0; i < BLOCK_SIZE; i++) {
+			a = (a + file.byteAt(offset + i)) % MOD;
+			b = (b + a) % MOD;
+		}
+		return new int[] {a, b};
+	}
+
+	private static boolean matches(PagedFile base, long baseOffset, PagedFile target, long targetOffset) throws IOException {
+		for (int i = 0; i < BLOCK_SIZE; i++) {
+			if (base.byteAt(baseOffset + i) != target.byteAt(targetOffset + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void writeInsert(DataOutputStream out, PagedFile file, long from, long to) throws IOException {
+		byte[] buffer = new byte[(int) Math.min(MAX_INSERT, to - from)];
+		while (from < to) {
+			int length = (int) Math.min(buffer.length, to - from);
+			file.read(from, buffer, length);
+			out.writeByte(INSERT);
+			out.writeInt(length);
+			out.write(buffer, 0, length);
+			from += length;
+		}
+	}
+
+	private static class PagedFile implements AutoCloseable {
+
+		private static final int PAGE_SIZE = 64 * 1024;
+
+		private final RandomAccessFile file;
+		private final long size;
+		private final byte[] page = new byte[PAGE_SIZE];
+		private long pageStart = -1;
+		private int pageLength = 0;
+
+		PagedFile(Path path) throws IOException {
+			this.file = new RandomAccessFile(path.toFile(), "r");
+			this.size = file.length();
+		}
+
+		long size() {
+			return size;
+		}
+
+		int byteAt(long position) throws IOException {
+			if (position < pageStart || position >= pageStart + pageLength) {
+				// keep a bit of the preceding data in the page, the checksum rolls over the block behind the position
+				pageStart = Math.max(0, position - BLOCK_SIZE);
+				file.seek(pageStart);
+				pageLength = Math.max(0, file.read(page, 0, PAGE_SIZE));
+				if (position >= pageStart + pageLength) {
+					throw new EOFException();
+				}
+			}
+			return page[(int) (position - pageStart)] & 0xff;
+		}
+
+		void read(long position, byte[] buffer, int length) throws IOException {
+			file.seek(position);
+			file.readFully(buffer, 0, length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			file.close();
+		}
+	}
+
+	private static class DeltaInputStream extends InputStream {
+
+		private final RandomAccessFile base;
+		private final DataInputStream delta;
+		private int operation = -1;
+		private long offset;
+		private int remaining = 0;
+		private boolean finished = false;
+
+		DeltaInputStream(RandomAccessFile base, InputStream delta) {
+			this.base = base;
+			this.delta = new DataInputStream(delta);
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			int read = read(single, 0, 1);
+			return read == -1 ? -1 : single[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			while (remaining == 0) {
+				if (finished || !nextOperation()) {
+					return -1;
+				}
+			}
+			int length = Math.min(len, remaining);
+			if (operation == COPY) {
+				base.seek(offset);
+				base.readFully(b, off, length);
+				offset += length;
+			} else {
+				delta.readFully(b, off, length);
+			}
+			remaining -= length;
+			return length;
+		}
+
+		private boolean nextOperation() throws IOException {
+			operation = delta.readUnsignedByte();
+			switch (operation) {
+				case COPY:
+					offset = delta.readLong();
+					remaining = delta.readInt();
+					return true;
+				case INSERT:
+					remaining = delta.readInt();
+					return true;
+				case END:
+					finished = true;
+					return false;
+				default:
+					throw new IOException("Corrupted delta, unknown instruction: " + operation);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				delta.close();
+			} finally {
+				base.close();
+			}
+		}
+	}
+}
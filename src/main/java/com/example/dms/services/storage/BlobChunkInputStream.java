@@ -0,0 +1,83 @@
+package com.example.dms.services.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a blob from dms_content_blob in fixed size chunks, each chunk is a separate query so neither the whole blob
+ * nor an open connection is held while the response is written.
+ */
+class BlobChunkInputStream extends InputStream {
+
+	private static final String CHUNK_QUERY = "SELECT SUBSTRING(data, ?, ?) FROM dms_content_blob WHERE storage_key = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final String key;
+	private final long length;
+	private final int chunkSize;
+
+	private long position = 0;
+	private byte[] chunk = new byte[0];
+	private int chunkPosition = 0;
+
+	BlobChunkInputStream(JdbcTemplate jdbcTemplate, String key, long length, int chunkSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.key = key;
+		this.length = length;
+		this.chunkSize = chunkSize;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) return -1;
+		position++;
+		return chunk[chunkPosition++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) return 0;
+		if (!fill()) return -1;
+		int read = Math.min(len, chunk.length - chunkPosition);
+		System.arraycopy(chunk, chunkPosition, b, off, read);
+		chunkPosition += read;
+		position += read;
+		return read;
+	}
+
+	@Override
+	public long skip(long n) {
+		if (n <= 0) return 0;
+		long skipped = Math.min(n, length - position);
+		long inChunk = chunk.length - chunkPosition;
+		if (skipped < inChunk) {
+			chunkPosition += (int) skipped;
+		} else {
+			chunk = new byte[0];
+			chunkPosition = 0;
+		}
+		position += skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return chunk.length - chunkPosition;
+	}
+
+	private boolean fill() throws IOException {
+		if (chunkPosition < chunk.length) return true;
+		if (position >= length) return false;
+		int size = (int) Math.min(chunkSize, length - position);
+		// SUBSTRING is 1-based
+		byte[] data = jdbcTemplate.queryForObject(CHUNK_QUERY, byte[].class, position + 1, size, key);
+		if (data == null || data.length == 0) {
+			throw new IOException("Stored content with key: '" + key + "' ended unexpectedly at: " + position);
+		}
+		chunk = data;
+		chunkPosition = 0;
+		return true;
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.dms.services.storage;
+
+import com.example.dms.utils.StorageUtils;
+import com.example.dms.utils.exceptions.InternalException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Chooses the codec new content is stored with. Content types that are already compressed (images, archives,
+ * office open xml...) are stored as is since compressing them again only costs cpu time.
+ */
+@Component
+public class CompressionPolicy {
+
+	private static final String DEFAULT_SKIP_TYPES = "image/jpeg,image/png,image/gif,image/webp,video/*,audio/*,"
+			+ "application/zip,application/gzip,application/x-7z-compressed,application/x-rar-compressed,"
+			+ "application/pdf,application/vnd.openxmlformats-officedocument.*,application/vnd.oasis.opendocument.*";
+
+	private final Map<String, ContentCodec> codecs;
+	private final boolean enabled;
+	private final String codecName;
+	private final List<String> skipTypes;
+
+	public CompressionPolicy(List<ContentCodec> codecs,
+							 @Value("${dms.content.compression.enabled:true}") boolean enabled,
+							 @Value("${dms.content.compression.codec:deflate}") String codecName,
+							 @Value("${dms.content.compression.skip-types:" + DEFAULT_SKIP_TYPES + "}") List<String> skipTypes) {
+		this.codecs = codecs.stream().collect(Collectors.toMap(ContentCodec::getName, Function.identity()));
+		this.enabled = enabled;
+		this.codecName = codecName;
+		this.skipTypes = skipTypes.stream().map(type -> type.trim().toLowerCase(Locale.ROOT))
+				.filter(type -> !type.isEmpty()).collect(Collectors.toList());
+		if (enabled) {
+			getCodec(codecName);
+		}
+	}
+
+	/**
+	 * Codec for content of the given type, null if the content should be stored unencoded.
+	 */
+	public ContentCodec select(String contentType) {
+		if (!enabled || isSkipped(contentType)) {
+			return null;
+		}
+		return getCodec(codecName);
+	}
+
+	/**
+	 * Codec a blob was stored with, null name stands for unencoded content.
+	 */
+	public ContentCodec getCodec(String name) {
+		if (name == null) {
+			return null;
+		}
+		ContentCodec codec = codecs.get(name);
+		if (codec == null) {
+			throw new InternalException("Unknown content codec: '" + name + "'.");
+		}
+		return codec;
+	}
+
+	/**
+	 * True for content types that are compressed by their format, small changes to such content change most of
+	 * its bytes.
+	 */
+	public boolean isPrecompressed(String contentType) {
+		return isSkipped(contentType);
+	}
+
+	private boolean isSkipped(String contentType) {
+		return StorageUtils.matchesContentType(contentType, skipTypes);
+	}
+}
@@ -0,0 +1,20 @@
+package com.example.dms.services.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Encoding applied to content before it is written to the ContentStore. Both directions work on streams so content
+ * is encoded while it is uploaded and decoded while it is downloaded.
+ */
+public interface ContentCodec {
+
+	/**
+	 * Name persisted with every blob encoded by this codec, it must never change.
+	 */
+	String getName();
+
+	InputStream encode(InputStream inputStream);
+
+	InputStream decode(InputStream inputStream) throws IOException;
+}
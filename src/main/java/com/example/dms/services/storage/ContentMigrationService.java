@@ -0,0 +1,125 @@
+package com.example.dms.services.storage;
+
+import com.example.dms.domain.DmsContent;
+import com.example.dms.services.BlobService;
+import com.example.dms.utils.exceptions.InternalException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Moves content that was stored in the legacy dms_content.content LOB column into the configured ContentStore.
+ * Runs once in the background after startup, rows that are accessed before the background run reaches them
+ * are migrated on demand.
+ */
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class ContentMigrationService {
+
+	private final JdbcTemplate jdbcTemplate;
+	private final BlobService blobService;
+
+	@Value("${dms.content.migration.enabled:true}")
+	private boolean enabled;
+
+	@Value("${dms.content.migration.batch-size:50}")
+	private int batchSize;
+
+	private volatile boolean legacyColumnPresent = true;
+
+	@Async
+	@EventListener(ApplicationReadyEvent.class)
+	public void migrateLegacyContent() {
+		if (!enabled || !hasLegacyContent()) {
+			return;
+		}
+		log.info("migrating legacy content to the content store...");
+		int migrated = 0;
+		int failed = 0;
+		int lastId = 0;
+		List<Integer> ids;
+		do {
+			// rows that failed keep their legacy content, paging by id skips past them instead of selecting them again
+			ids = jdbcTemplate.queryForList("SELECT id FROM dms_content WHERE storage_key IS NULL AND content IS NOT NULL "
+					+ "AND id > ? ORDER BY id LIMIT ?", Integer.class, lastId, batchSize);
+			for (Integer id : ids) {
+				lastId = id;
+				try {
+					migrate(id);
+					migrated++;
+				} catch (Exception e) {
+					log.error("could not migrate content with id: {}", id, e);
+					failed++;
+				}
+			}
+		} while (!ids.isEmpty());
+		log.info("legacy content migration finished, migrated rows: {}, failed rows: {}", migrated, failed);
+	}
+
+	/**
+	 * Returns the storage key of the content, migrating the legacy blob first if the row was not migrated yet.
+	 */
+	public String ensureMigrated(DmsContent content) {
+		if (content.getStorageKey() == null) {
+			content.setStorageKey(migrate(content.getId()));
+		}
+		return content.getStorageKey();
+	}
+
+	private String migrate(Integer contentId) {
+		if (!legacyColumnPresent) {
+			throw new InternalException("Content with id: '" + contentId + "' has no stored data.");
+		}
+		String key = jdbcTemplate.query("SELECT content, content_type FROM dms_content WHERE id = ?", rs -> {
+			if (!rs.next()) return null;
+			try (InputStream inputStream = rs.getBinaryStream(1)) {
+				return inputStream == null ? null : blobService.store(inputStream, rs.getString(2));
+			} catch (IOException e) {
+				throw new InternalException("Could not migrate content with id: '" + contentId + "'.");
+			}
+		}, contentId);
+		// only the migration updating the row adds the reference, the background migration and a download can
+		// migrate the same row at the same time
+		if (key == null || jdbcTemplate.update("UPDATE dms_content SET storage_key = ?, content = NULL "
+				+ "WHERE id = ? AND storage_key IS NULL", key, contentId) == 0) {
+			String storedKey = storedKey(contentId);
+			if (storedKey == null) {
+				throw new InternalException("Content with id: '" + contentId + "' has no stored data.");
+			}
+			log.debug("content with id: {} was migrated concurrently to storage key: {}", contentId, storedKey);
+			return storedKey;
+		}
+		blobService.addReference(key);
+		log.debug("migrated content with id: {} to storage key: {}", contentId, key);
+		return key;
+	}
+
+	private String storedKey(Integer contentId) {
+		List<String> keys = jdbcTemplate.queryForList("SELECT storage_key FROM dms_content WHERE id = ?", String.class,
+				contentId);
+		return keys.isEmpty() ? null : keys.get(0);
+	}
+
+	private boolean hasLegacyContent() {
+		try {
+			Integer count = jdbcTemplate.queryForObject(
+					"SELECT COUNT(*) FROM dms_content WHERE storage_key IS NULL AND content IS NOT NULL", Integer.class);
+			return count != null && count > 0;
+		} catch (DataAccessException e) {
+			// databases created after the switch to content stores don't have the column at all
+			legacyColumnPresent = false;
+			return false;
+		}
+	}
+}
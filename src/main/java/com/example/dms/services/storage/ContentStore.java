@@ -0,0 +1,45 @@
+package com.example.dms.services.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content addressable storage backend for binary document content, data is stored under the hex encoded SHA-256
+ * digest of the original content. The stored bytes may be encoded (compressed) by the caller, the store itself
+ * never interprets them. Implementations must stream the data, content is never expected to fit into memory.
+ */
+public interface ContentStore {
+
+	/**
+	 * Writes the whole stream to a temporary location while computing the digest of the written bytes.
+	 * The stream is not closed by the store.
+	 */
+	StagedContent stage(InputStream inputStream) throws IOException;
+
+	/**
+	 * Makes staged content readable under the given key. Publishing a key that already exists replaces its data,
+	 * callers only do so with equivalent content.
+	 */
+	void publish(StagedContent content, String key) throws IOException;
+
+	void discard(StagedContent content);
+
+	/**
+	 * Opens a stream over the stored data, the caller is responsible for closing it.
+	 */
+	InputStream read(String key) throws IOException;
+
+	/**
+	 * Resource over the stored data used for serving downloads, it has to support cheap skipping
+	 * so byte ranges can be served without reading the preceding data.
+	 */
+	Resource getResource(String key, String filename) throws IOException;
+
+	long size(String key) throws IOException;
+
+	boolean exists(String key);
+
+	void delete(String key) throws IOException;
+}
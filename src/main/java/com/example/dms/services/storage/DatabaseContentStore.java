@@ -0,0 +1,110 @@
+package com.example.dms.services.storage;
+
+import com.example.dms.utils.StorageUtils;
+import com.example.dms.utils.exceptions.DmsNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.util.UUID;
+
+/**
+ * Keeps content as blobs in the dms_content_blob table, kept for installations that can't use a file system store.
+ */
+@Service
+@ConditionalOnProperty(name = "dms.content.store", havingValue = "database")
+public class DatabaseContentStore implements ContentStore {
+
+	private final JdbcTemplate jdbcTemplate;
+	private final int chunkSize;
+
+	public DatabaseContentStore(JdbcTemplate jdbcTemplate, @Value("${dms.content.store.chunk-size:1048576}") int chunkSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.chunkSize = chunkSize;
+	}
+
+	@Override
+	public StagedContent stage(InputStream inputStream) {
+		String tempKey = "tmp-" + UUID.randomUUID();
+		DigestInputStream digestInputStream = new DigestInputStream(inputStream, StorageUtils.newDigest());
+		jdbcTemplate.update("INSERT INTO dms_content_blob (storage_key, data) VALUES (?, ?)", ps -> {
+			ps.setString(1, tempKey);
+			ps.setBinaryStream(2, digestInputStream);
+		});
+		return new StagedContent(StorageUtils.toHex(digestInputStream.getMessageDigest().digest()), size(tempKey), tempKey);
+	}
+
+	@Override
+	public void publish(StagedContent content, String key) {
+		try {
+			jdbcTemplate.update("UPDATE dms_content_blob SET storage_key = ? WHERE storage_key = ?",
+					key, content.getLocation());
+		} catch (DuplicateKeyException e) {
+			// identical content was published before, or concurrently by another upload
+			discard(content);
+		}
+	}
+
+	@Override
+	public void discard(StagedContent content) {
+		delete(content.getLocation());
+	}
+
+	@Override
+	public InputStream read(String key) {
+		return new BlobChunkInputStream(jdbcTemplate, key, size(key), chunkSize);
+	}
+
+	@Override
+	public Resource getResource(String key, String filename) {
+		long size = size(key);
+		return new AbstractResource() {
+			@Override
+			public long contentLength() {
+				return size;
+			}
+
+			@Override
+			public InputStream getInputStream() {
+				return new BlobChunkInputStream(jdbcTemplate, key, size, chunkSize);
+			}
+
+			@Override
+			public String getFilename() {
+				return filename;
+			}
+
+			@Override
+			public String getDescription() {
+				return "stored content [" + key + "]";
+			}
+		};
+	}
+
+	@Override
+	public long size(String key) {
+		return jdbcTemplate.query("SELECT LENGTH(data) FROM dms_content_blob WHERE storage_key = ?",
+				rs -> {
+					if (!rs.next()) throw new DmsNotFoundException("Content with key: '" + key + "' does not exist.");
+					return rs.getLong(1);
+				}, key);
+	}
+
+	@Override
+	public boolean exists(String key) {
+		Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dms_content_blob WHERE storage_key = ?",
+				Integer.class, key);
+		return count != null && count > 0;
+	}
+
+	@Override
+	public void delete(String key) {
+		jdbcTemplate.update("DELETE FROM dms_content_blob WHERE storage_key = ?", key);
+	}
+}
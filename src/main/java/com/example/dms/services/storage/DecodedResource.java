@@ -0,0 +1,54 @@
+package com.example.dms.services.storage;
+
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Resource over encoded (compressed or delta) content that is decoded while it is read. Encoded data can't be
+ * seeked, byte ranges are served by skipping over the decoded stream.
+ */
+public class DecodedResource extends AbstractResource {
+
+	private final ContentStore contentStore;
+	private final String key;
+	private final InputStreamSource decoded;
+	private final long contentSize;
+	private final String filename;
+
+	public DecodedResource(ContentStore contentStore, String key, InputStreamSource decoded, long contentSize,
+						   String filename) {
+		this.contentStore = contentStore;
+		this.key = key;
+		this.decoded = decoded;
+		this.contentSize = contentSize;
+		this.filename = filename;
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		return decoded.getInputStream();
+	}
+
+	@Override
+	public boolean exists() {
+		return contentStore.exists(key);
+	}
+
+	@Override
+	public long contentLength() {
+		return contentSize;
+	}
+
+	@Override
+	public String getFilename() {
+		return filename;
+	}
+
+	@Override
+	public String getDescription() {
+		return "decoded content [" + key + "]";
+	}
+}
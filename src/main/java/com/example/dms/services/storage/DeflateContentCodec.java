@@ -0,0 +1,59 @@
+package com.example.dms.services.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+@Component
+public class DeflateContentCodec implements ContentCodec {
+
+	public static final String NAME = "deflate";
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final int level;
+
+	public DeflateContentCodec(@Value("${dms.content.compression.level:6}") int level) {
+		this.level = level;
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	// the streams own their deflater / inflater, native memory is released on close instead of on finalization
+	@Override
+	public InputStream encode(InputStream inputStream) {
+		return new DeflaterInputStream(inputStream, new Deflater(level), BUFFER_SIZE) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					def.end();
+				}
+			}
+		};
+	}
+
+	@Override
+	public InputStream decode(InputStream inputStream) {
+		return new InflaterInputStream(inputStream, new Inflater(), BUFFER_SIZE) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					inf.end();
+				}
+			}
+		};
+	}
+}
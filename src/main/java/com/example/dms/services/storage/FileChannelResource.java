@@ -0,0 +1,108 @@
+package com.example.dms.services.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Resource over a stored file that reads straight from a FileChannel. Skipping (used when serving byte ranges)
+ * only moves the channel position, so the bytes before a range are never read.
+ */
+public class FileChannelResource extends AbstractResource {
+
+	private final Path path;
+	private final String filename;
+
+	public FileChannelResource(Path path, String filename) {
+		this.path = path;
+		this.filename = filename;
+	}
+
+	@Override
+	public boolean exists() {
+		return Files.exists(path);
+	}
+
+	@Override
+	public boolean isFile() {
+		return true;
+	}
+
+	@Override
+	public long contentLength() throws IOException {
+		return Files.size(path);
+	}
+
+	@Override
+	public long lastModified() throws IOException {
+		return Files.getLastModifiedTime(path).toMillis();
+	}
+
+	@Override
+	public ReadableByteChannel readableChannel() throws IOException {
+		return FileChannel.open(path, StandardOpenOption.READ);
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		return new FileChannelInputStream(FileChannel.open(path, StandardOpenOption.READ));
+	}
+
+	@Override
+	public String getFilename() {
+		return filename;
+	}
+
+	@Override
+	public String getDescription() {
+		return "stored content [" + path + "]";
+	}
+
+	private static class FileChannelInputStream extends InputStream {
+
+		private final FileChannel channel;
+		private final ByteBuffer single = ByteBuffer.allocate(1);
+
+		FileChannelInputStream(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public int read() throws IOException {
+			single.clear();
+			int read = channel.read(single);
+			return read <= 0 ? -1 : single.get(0) & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return channel.read(ByteBuffer.wrap(b, off, len));
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			if (n <= 0) return 0;
+			long position = channel.position();
+			long skipped = Math.min(n, Math.max(0, channel.size() - position));
+			channel.position(position + skipped);
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(Integer.MAX_VALUE, Math.max(0, channel.size() - channel.position()));
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+}
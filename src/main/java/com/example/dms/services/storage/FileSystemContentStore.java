@@ -0,0 +1,96 @@
+package com.example.dms.services.storage;
+
+import com.example.dms.utils.StorageUtils;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+
+@Service
+@Log4j2
+@ConditionalOnProperty(name = "dms.content.store", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemContentStore implements ContentStore {
+
+	private final Path root;
+	private final Path tmp;
+
+	public FileSystemContentStore(@Value("${dms.content.store.location:content-store}") String location) throws IOException {
+		this.root = Paths.get(location).toAbsolutePath().normalize();
+		this.tmp = root.resolve("tmp");
+		Files.createDirectories(tmp);
+		log.info("using file system content store at: {}", root);
+	}
+
+	@Override
+	public StagedContent stage(InputStream inputStream) throws IOException {
+		Path tempFile = Files.createTempFile(tmp, "staged", ".part");
+		try {
+			DigestInputStream digestInputStream = new DigestInputStream(inputStream, StorageUtils.newDigest());
+			long size = Files.copy(digestInputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+			return new StagedContent(StorageUtils.toHex(digestInputStream.getMessageDigest().digest()), size,
+					tempFile.toString());
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tempFile);
+			throw e;
+		}
+	}
+
+	@Override
+	public void publish(StagedContent content, String key) throws IOException {
+		Path target = resolve(key);
+		Files.createDirectories(target.getParent());
+		Files.move(Paths.get(content.getLocation()), target, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	@Override
+	public void discard(StagedContent content) {
+		try {
+			Files.deleteIfExists(Paths.get(content.getLocation()));
+		} catch (IOException e) {
+			log.warn("could not delete staged content: {}", content.getLocation(), e);
+		}
+	}
+
+	@Override
+	public InputStream read(String key) throws IOException {
+		return Files.newInputStream(resolve(key));
+	}
+
+	@Override
+	public Resource getResource(String key, String filename) {
+		return new FileChannelResource(resolve(key), filename);
+	}
+
+	@Override
+	public long size(String key) throws IOException {
+		return Files.size(resolve(key));
+	}
+
+	@Override
+	public boolean exists(String key) {
+		return Files.exists(resolve(key));
+	}
+
+	@Override
+	public void delete(String key) throws IOException {
+		Files.deleteIfExists(resolve(key));
+	}
+
+	// two levels of sub directories so a single directory never holds all the files
+	Path resolve(String key) {
+		if (key == null || key.length() < 4 || key.contains("/") || key.contains("\\") || key.contains("..")) {
+			throw new IllegalArgumentException("Invalid storage key: " + key);
+		}
+		return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+	}
+}
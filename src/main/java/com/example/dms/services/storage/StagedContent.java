@@ -0,0 +1,17 @@
+package com.example.dms.services.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Content that was fully written to a temporary location of a ContentStore but is not readable yet.
+ */
+@Getter
+@AllArgsConstructor
+public class StagedContent {
+
+	private final String digest;
+	private final long size;
+	// store specific temporary location (file path, temporary key...)
+	private final String location;
+}
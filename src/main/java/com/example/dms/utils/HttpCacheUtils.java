@@ -0,0 +1,73 @@
+package com.example.dms.utils;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+public class HttpCacheUtils {
+
+	private HttpCacheUtils() {
+		throw new IllegalStateException("Utility class");
+	}
+
+	public static String toETag(String value) {
+		return "\"" + value + "\"";
+	}
+
+	public static long toEpochMillis(LocalDateTime dateTime) {
+		return dateTime == null ? 0 : dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	/**
+	 * Evaluates If-None-Match (or If-Modified-Since when no entity tag was sent) against the current validators of
+	 * a GET request, a negative lastModified means the resource has no modification date.
+	 */
+	public static boolean isNotModified(HttpHeaders requestHeaders, String eTag, long lastModified) {
+		String ifNoneMatch = requestHeaders.getFirst(HttpHeaders.IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			// weak comparison, W/ prefixes are ignored
+			for (String tag : ifNoneMatch.split(",")) {
+				tag = tag.trim();
+				if (tag.equals("*") || stripWeak(tag).equals(stripWeak(eTag))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		String ifModifiedSince = requestHeaders.getFirst(HttpHeaders.IF_MODIFIED_SINCE);
+		if (ifModifiedSince == null || lastModified < 0) {
+			return false;
+		}
+		try {
+			long date = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+			// http dates have a precision of seconds
+			return lastModified / 1000 <= date / 1000;
+		} catch (DateTimeParseException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Cache control for responses that may change, clients keep them but revalidate on every use.
+	 */
+	public static String revalidate() {
+		return CacheControl.noCache().cachePrivate().getHeaderValue();
+	}
+
+	/**
+	 * Cache control for responses that never change once they are created.
+	 */
+	public static String immutable(Duration maxAge) {
+		return CacheControl.maxAge(maxAge).cachePrivate().getHeaderValue() + ", immutable";
+	}
+
+	private static String stripWeak(String tag) {
+		return tag.startsWith("W/") ? tag.substring(2) : tag;
+	}
+}
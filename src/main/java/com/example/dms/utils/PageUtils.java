@@ -0,0 +1,31 @@
+package com.example.dms.utils;
+
+import com.example.dms.services.search.CursorPage;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+public class PageUtils {
+
+	private PageUtils() {
+		throw new IllegalStateException("Utility class");
+	}
+
+	/**
+	 * The page content as the response body, the following page is linked in the Link header (rel="next") with the
+	 * query parameters of the current request and the cursor replaced.
+	 */
+	public static <T> ResponseEntity<List<T>> toResponse(CursorPage<T> page) {
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.hasNext()) {
+			String next = ServletUriComponentsBuilder.fromCurrentRequest()
+					.replaceQueryParam("cursor", page.getNext())
+					.replaceQueryParam("size", page.getSize())
+					.toUriString();
+			response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+		}
+		return response.body(page.getContent());
+	}
+}
@@ -0,0 +1,46 @@
+package com.example.dms.utils;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Locale;
+
+public class StorageUtils {
+
+	public static final String DIGEST_ALGORITHM = "SHA-256";
+
+	private StorageUtils() {
+		throw new IllegalStateException("Utility class");
+	}
+
+	public static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(DIGEST_ALGORITHM + " not supported.", e);
+		}
+	}
+
+	public static String toHex(byte[] digest) {
+		return String.format("%0" + (digest.length * 2) + "x", new BigInteger(1, digest));
+	}
+
+	/**
+	 * True if the content type (parameters are ignored) is on the list of lower case types, entries ending with *
+	 * match every type starting with the entry.
+	 */
+	public static boolean matchesContentType(String contentType, List<String> types) {
+		if (contentType == null) {
+			return false;
+		}
+		int parameters = contentType.indexOf(';');
+		String type = (parameters < 0 ? contentType : contentType.substring(0, parameters)).trim().toLowerCase(Locale.ROOT);
+		for (String entry : types) {
+			if (entry.endsWith("*") ? type.startsWith(entry.substring(0, entry.length() - 1)) : type.equals(entry)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
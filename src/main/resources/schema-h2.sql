@@ -37,4 +37,8 @@ create table acl_entry(
     constraint unique_uk_4 unique(acl_object_identity,ace_order),
     constraint foreign_fk_4 foreign key(acl_object_identity) references acl_object_identity(id),
     constraint foreign_fk_5 foreign key(sid) references acl_sid(id)
-);
\ No newline at end of file
+);
+create table dms_content_blob(
+    storage_key varchar(64) not null primary key,
+    data blob
+);
@@ -39,4 +39,9 @@ CREATE TABLE IF NOT EXISTS acl_entry (
     UNIQUE KEY unique_acl_entry_custom (acl_object_identity, sid, mask),
     CONSTRAINT fk_acl_entry_object FOREIGN KEY (acl_object_identity) REFERENCES acl_object_identity (id) ON DELETE CASCADE,
     CONSTRAINT fk_acl_entry_acl FOREIGN KEY (sid) REFERENCES acl_sid (id)
-) ENGINE=InnoDB;
\ No newline at end of file
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS dms_content_blob (
+    storage_key VARCHAR(64) NOT NULL PRIMARY KEY,
+    data LONGBLOB
+) ENGINE=InnoDB;
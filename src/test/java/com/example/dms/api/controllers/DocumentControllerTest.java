@@ -1,6 +1,8 @@
 package com.example.dms.api.controllers;
 
 import com.example.dms.api.dtos.document.DmsDocumentDTO;
+import com.example.dms.api.dtos.document.FacetCountDTO;
+import com.example.dms.api.dtos.document.KeywordCountDTO;
 import com.example.dms.api.dtos.document.ModifyDocumentDTO;
 import com.example.dms.api.dtos.document.NewDocumentDTO;
 import com.example.dms.api.dtos.type.DmsTypeDTO;
@@ -10,29 +12,46 @@ import com.example.dms.domain.DmsUser;
 import com.example.dms.repositories.UserRepository;
 import com.example.dms.security.DmsUserDetails;
 import com.example.dms.services.ContentService;
+import com.example.dms.services.DocumentExportService;
 import com.example.dms.services.DocumentService;
+import com.example.dms.services.FullTextSearchService;
+import com.example.dms.services.UploadSessionService;
+import com.example.dms.services.search.CursorPage;
+import com.example.dms.services.storage.FileChannelResource;
 import com.example.dms.utils.Utils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.Mockito.doNothing;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -59,6 +78,15 @@ class DocumentControllerTest {
 	@MockBean
 	private ContentService contentService;
 
+	@MockBean
+	private UploadSessionService uploadSessionService;
+
+	@MockBean
+	private FullTextSearchService fullTextSearchService;
+
+	@MockBean
+	private DocumentExportService documentExportService;
+
 	DmsUser validUser;
 	DmsDocument validDocument;
 	DmsType type;
@@ -114,9 +142,85 @@ class DocumentControllerTest {
 
 	@Test
 	void getAllDocumentsTest() throws Exception {
-		BDDMockito.given(documentService.findAll()).willReturn(List.of(validDocumentDTO));
+		BDDMockito.given(documentService.searchFields(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+				Mockito.any())).willReturn(new CursorPage<>(List.of(Map.of("id", 1)), null, 100));
+
+		mockMvc.perform(get(BASE_URL)).andExpect(status().isOk()).andExpect(jsonPath("$").isArray())
+				.andExpect(header().doesNotExist(HttpHeaders.LINK));
+	}
+
+	@Test
+	void getAllDocumentsNextPageTest() throws Exception {
+		BDDMockito.given(documentService.searchFields(Mockito.any(), Mockito.any(), Mockito.eq("first"), Mockito.eq(1),
+				Mockito.any())).willReturn(new CursorPage<>(List.of(Map.of("id", 1)), "second", 1));
+
+		mockMvc.perform(get(BASE_URL).param("cursor", "first").param("size", "1")).andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1)))
+				.andExpect(header().string(HttpHeaders.LINK, containsString("cursor=second")));
+	}
+
+	@Test
+	void getAllDocumentsFieldsTest() throws Exception {
+		BDDMockito.given(documentService.searchFields(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+				Mockito.eq(List.of("object_name", "version"))))
+				.willReturn(new CursorPage<>(List.of(Map.of("id", 1, "object_name", "testni", "version", "1")), null, 100));
+
+		mockMvc.perform(get(BASE_URL).param("fields", "object_name,version")).andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].object_name").value("testni"))
+				.andExpect(jsonPath("$[0].creator").doesNotExist());
+	}
+
+	@Test
+	void downloadSingleRangeTest(@TempDir Path dir) throws Exception {
+		givenStoredContent(dir);
+
+		mockMvc.perform(get(BASE_URL + "/download/{id}", 1).header(HttpHeaders.RANGE, "bytes=2-5"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/20"))
+				.andExpect(content().string("2345"));
+	}
+
+	@Test
+	void downloadMultipleRangesTest(@TempDir Path dir) throws Exception {
+		givenStoredContent(dir);
+
+		mockMvc.perform(get(BASE_URL + "/download/{id}", 1).header(HttpHeaders.RANGE, "bytes=0-1,18-"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_TYPE, containsString("multipart/byteranges")))
+				.andExpect(content().string(containsString("Content-Range: bytes 0-1/20")))
+				.andExpect(content().string(containsString("Content-Range: bytes 18-19/20")))
+				.andExpect(content().string(containsString("ij")));
+	}
+
+	@Test
+	void downloadUnsatisfiableRangeTest(@TempDir Path dir) throws Exception {
+		givenStoredContent(dir);
 
-		mockMvc.perform(get(BASE_URL)).andExpect(status().isOk()).andExpect(jsonPath("$").isArray());
+		mockMvc.perform(get(BASE_URL + "/download/{id}", 1).header(HttpHeaders.RANGE, "bytes=40-50"))
+				.andExpect(status().isRequestedRangeNotSatisfiable());
+	}
+
+	@Test
+	void getKeywordCountsTest() throws Exception {
+		BDDMockito.given(documentService.getKeywordCounts("pr", null))
+				.willReturn(List.of(new KeywordCountDTO("prvi", 2L)));
+
+		mockMvc.perform(get(BASE_URL + "/keywords").param("prefix", "pr")).andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1)))
+				.andExpect(jsonPath("$[0].keyword").value("prvi"))
+				.andExpect(jsonPath("$[0].count").value(2));
+	}
+
+	@Test
+	void getFacetsTest() throws Exception {
+		BDDMockito.given(documentService.getFacets("type~eq~document", List.of("type"), null))
+				.willReturn(Map.of("type", List.of(new FacetCountDTO("document", 3L))));
+
+		mockMvc.perform(get(BASE_URL + "/facets").param("search", "type~eq~document").param("facets", "type"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.type", hasSize(1)))
+				.andExpect(jsonPath("$.type[0].value").value("document"))
+				.andExpect(jsonPath("$.type[0].count").value(3));
 	}
 
 	@Test
@@ -137,4 +241,11 @@ class DocumentControllerTest {
 				.contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
 	}
 
+	private void givenStoredContent(Path dir) throws IOException {
+		Path file = Files.write(dir.resolve("content"), "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII));
+		BDDMockito.given(contentService.downloadContent(Mockito.eq(1), Mockito.any(HttpHeaders.class)))
+				.willReturn(ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN).header(HttpHeaders.ACCEPT_RANGES, "bytes")
+						.body(new FileChannelResource(file, "content.txt")));
+	}
+
 }
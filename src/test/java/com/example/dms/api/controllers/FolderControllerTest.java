@@ -4,6 +4,7 @@ import com.example.dms.api.dtos.folder.DmsFolderDTO;
 import com.example.dms.api.dtos.folder.NewFolderDTO;
 import com.example.dms.domain.DmsUser;
 import com.example.dms.repositories.UserRepository;
+import com.example.dms.services.ArchiveService;
 import com.example.dms.services.FolderService;
 import com.example.dms.utils.Utils;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +14,7 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -28,6 +30,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -42,6 +45,9 @@ class FolderControllerTest {
 	@MockBean
 	FolderService folderService;
 
+	@MockBean
+	ArchiveService archiveService;
+
 	@MockBean
 	UserDetailsService userDetailsService;
 
@@ -72,10 +78,21 @@ class FolderControllerTest {
 	@Test
 	void testGetAllFolders() throws Exception {
 		BDDMockito.given(folderService.findAll()).willReturn(folderList);
+		BDDMockito.given(folderService.getListingETag()).willReturn("\"listing\"");
 
 		mockMvc.perform(get(BASE_URL)).andExpect(status().isOk()).andExpect(jsonPath("$").isArray());
 	}
 
+	@Test
+	void testGetAllFoldersNotModified() throws Exception {
+		BDDMockito.given(folderService.getListingETag()).willReturn("\"listing\"");
+
+		mockMvc.perform(get(BASE_URL).header(HttpHeaders.IF_NONE_MATCH, "\"listing\""))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"listing\""));
+		Mockito.verify(folderService, Mockito.never()).findAll();
+	}
+
 	@Test
 	void testFindById() throws Exception {
 		BDDMockito.given(folderService.findById(Mockito.any(Integer.class))).willReturn(validFolderDTO);
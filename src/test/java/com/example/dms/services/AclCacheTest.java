@@ -0,0 +1,69 @@
+package com.example.dms.services;
+
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.security.AccessVersion;
+import com.example.dms.security.configuration.acl.BoundedAclCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.acls.domain.AclAuthorizationStrategyImpl;
+import org.springframework.security.acls.domain.AclImpl;
+import org.springframework.security.acls.domain.ConsoleAuditLogger;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AclCacheTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AccessVersion accessVersion = new AccessVersion();
+
+	@Test
+	void testEvictByEitherKey() {
+		BoundedAclCache cache = new BoundedAclCache(100, Duration.ofHours(1), meterRegistry, accessVersion);
+		MutableAcl first = acl(1L);
+		MutableAcl second = acl(2L);
+		cache.putInCache(first);
+		cache.putInCache(second);
+
+		assertSame(first, cache.getFromCache(first.getObjectIdentity()));
+		assertSame(first, cache.getFromCache(1L));
+
+		long version = accessVersion.current();
+		cache.evictFromCache(first.getObjectIdentity());
+		assertNotEquals(version, accessVersion.current());
+		cache.evictFromCache(2L);
+		assertNull(cache.getFromCache(1L));
+		assertNull(cache.getFromCache(second.getObjectIdentity()));
+		assertEquals(0, cache.estimatedSize());
+	}
+
+	@Test
+	void testSizeEvictionRemovesBothKeys() {
+		BoundedAclCache cache = new BoundedAclCache(10, Duration.ofHours(1), meterRegistry, accessVersion);
+		for (long id = 1; id <= 100; id++) {
+			cache.putInCache(acl(id));
+		}
+
+		assertTrue(cache.estimatedSize() <= 10);
+		for (long id = 1; id <= 100; id++) {
+			// an acl is either cached under both keys or not at all
+			boolean byIdentity = cache.getFromCache(new ObjectIdentityImpl(DmsDocument.class, (int) id)) != null;
+			boolean byId = cache.getFromCache(id) != null;
+			assertEquals(byIdentity, byId, "acl " + id);
+		}
+		assertTrue(meterRegistry.get("cache.evictions").tag("cache", BoundedAclCache.NAME).functionCounter().count() > 0);
+	}
+
+	private MutableAcl acl(long id) {
+		return new AclImpl(new ObjectIdentityImpl(DmsDocument.class, (int) id), id,
+				new AclAuthorizationStrategyImpl(new SimpleGrantedAuthority("ROLE_ADMIN")), new ConsoleAuditLogger());
+	}
+}
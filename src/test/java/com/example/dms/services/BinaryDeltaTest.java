@@ -0,0 +1,158 @@
+package com.example.dms.services;
+
+import com.example.dms.services.storage.BinaryDelta;
+import com.example.dms.services.storage.DeflateContentCodec;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Log4j2
+class BinaryDeltaTest {
+
+	@TempDir
+	Path root;
+
+	@Test
+	void testRoundTrip() throws IOException {
+		Random random = new Random(42);
+		byte[] base = new byte[200_000];
+		random.nextBytes(base);
+
+		// insertion, modification and truncation of the base
+		ByteArrayOutputStream target = new ByteArrayOutputStream();
+		target.write(base, 0, 50_000);
+		target.write("inserted".getBytes(StandardCharsets.UTF_8));
+		target.write(base, 50_000, 100_000);
+		byte[] modified = target.toByteArray();
+		modified[120_000] ^= 1;
+
+		byte[] delta = encode(base, modified);
+		assertTrue(delta.length < modified.length / 10);
+		assertArrayEquals(modified, apply(base, delta));
+	}
+
+	@Test
+	void testUnrelatedAndEmptyContent() throws IOException {
+		byte[] base = "some document content".getBytes(StandardCharsets.UTF_8);
+		byte[] target = "completely different content of another document".getBytes(StandardCharsets.UTF_8);
+
+		assertArrayEquals(target, apply(base, encode(base, target)));
+		assertArrayEquals(target, apply(new byte[0], encode(new byte[0], target)));
+		assertArrayEquals(new byte[0], apply(base, encode(base, new byte[0])));
+	}
+
+	/**
+	 * Storage and reconstruction cost of a version chain of a large text document with a few edits per version.
+	 * Run with -Ddms.benchmark=true.
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "dms.benchmark", matches = "true")
+	void benchmarkVersionChain() throws IOException {
+		int versions = 20;
+		Random random = new Random(7);
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 100_000; i++) {
+			lines.add(randomLine(random));
+		}
+
+		DeflateContentCodec codec = new DeflateContentCodec(6);
+		List<Path> deltas = new ArrayList<>();
+		Path previous = write("version-0", lines);
+		Path first = previous;
+		long fullSize = compressedSize(codec, previous);
+		long deltaSize = fullSize;
+		for (int version = 1; version < versions; version++) {
+			for (int edit = 0; edit < 20; edit++) {
+				int line = random.nextInt(lines.size());
+				switch (random.nextInt(3)) {
+					case 0: lines.add(line, randomLine(random)); break;
+					case 1: lines.remove(line); break;
+					default: lines.set(line, randomLine(random));
+				}
+			}
+			Path current = write("version-" + version, lines);
+			Path delta = root.resolve("delta-" + version);
+			long start = System.nanoTime();
+			try (OutputStream out = Files.newOutputStream(delta)) {
+				BinaryDelta.encode(previous, current, out);
+			}
+			log.info("version {}: {} bytes, delta {} bytes, encoded in {} ms", version, Files.size(current),
+					Files.size(delta), (System.nanoTime() - start) / 1_000_000);
+			fullSize += compressedSize(codec, current);
+			deltaSize += compressedSize(codec, delta);
+			deltas.add(delta);
+			previous = current;
+		}
+		log.info("{} versions, stored in full: {} bytes, stored as deltas: {} bytes ({}x smaller)", versions, fullSize,
+				deltaSize, String.format("%.1f", (double) fullSize / deltaSize));
+
+		// reconstruct every version the way BlobServiceImpl does, materializing each base into a temporary file
+		for (int depth = 1; depth < versions; depth *= 2) {
+			long start = System.nanoTime();
+			Path base = first;
+			for (int i = 0; i < depth; i++) {
+				Path reconstructed = root.resolve("reconstructed-" + i);
+				try (InputStream inputStream = BinaryDelta.apply(base, Files.newInputStream(deltas.get(i)))) {
+					Files.copy(inputStream, reconstructed, StandardCopyOption.REPLACE_EXISTING);
+				}
+				base = reconstructed;
+			}
+			log.info("reconstructing version {} took {} ms", depth, (System.nanoTime() - start) / 1_000_000);
+			assertArrayEquals(Files.readAllBytes(root.resolve("version-" + depth)), Files.readAllBytes(base));
+		}
+		assertTrue(deltaSize < fullSize);
+	}
+
+	private String randomLine(Random random) {
+		StringBuilder line = new StringBuilder();
+		int words = 5 + random.nextInt(10);
+		for (int i = 0; i < words; i++) {
+			int length = 2 + random.nextInt(8);
+			for (int j = 0; j < length; j++) {
+				line.append((char) ('a' + random.nextInt(26)));
+			}
+			line.append(' ');
+		}
+		return line.toString();
+	}
+
+	private Path write(String name, List<String> lines) throws IOException {
+		return Files.write(root.resolve(name), lines, StandardCharsets.UTF_8);
+	}
+
+	private long compressedSize(DeflateContentCodec codec, Path path) throws IOException {
+		try (InputStream inputStream = codec.encode(Files.newInputStream(path))) {
+			return inputStream.transferTo(OutputStream.nullOutputStream());
+		}
+	}
+
+	private byte[] encode(byte[] base, byte[] target) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryDelta.encode(Files.write(root.resolve("base"), base), Files.write(root.resolve("target"), target), out);
+		return out.toByteArray();
+	}
+
+	private byte[] apply(byte[] base, byte[] delta) throws IOException {
+		try (InputStream inputStream = BinaryDelta.apply(Files.write(root.resolve("base"), base),
+				new ByteArrayInputStream(delta))) {
+			return inputStream.readAllBytes();
+		}
+	}
+}
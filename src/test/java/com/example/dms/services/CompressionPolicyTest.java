@@ -0,0 +1,53 @@
+package com.example.dms.services;
+
+import com.example.dms.services.storage.CompressionPolicy;
+import com.example.dms.services.storage.ContentCodec;
+import com.example.dms.services.storage.DeflateContentCodec;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressionPolicyTest {
+
+	private final ContentCodec deflate = new DeflateContentCodec(6);
+
+	@Test
+	void testSelect() {
+		CompressionPolicy policy = new CompressionPolicy(List.of(deflate), true, DeflateContentCodec.NAME,
+				List.of("image/jpeg", "application/vnd.openxmlformats-officedocument.*"));
+
+		assertEquals(deflate, policy.select("text/plain; charset=UTF-8"));
+		assertEquals(deflate, policy.select(null));
+		assertNull(policy.select("IMAGE/JPEG"));
+		assertNull(policy.select("application/vnd.openxmlformats-officedocument.wordprocessingml.document"));
+		assertNull(policy.getCodec(null));
+
+		CompressionPolicy disabled = new CompressionPolicy(List.of(deflate), false, DeflateContentCodec.NAME, List.of());
+		assertNull(disabled.select("text/plain"));
+	}
+
+	@Test
+	void testDeflateRoundTrip() throws IOException {
+		byte[] data = "<document><title>some document content</title></document>".repeat(100)
+				.getBytes(StandardCharsets.UTF_8);
+
+		byte[] encoded;
+		try (InputStream inputStream = deflate.encode(new ByteArrayInputStream(data))) {
+			encoded = inputStream.readAllBytes();
+		}
+		assertTrue(encoded.length < data.length);
+
+		try (InputStream inputStream = deflate.decode(new ByteArrayInputStream(encoded))) {
+			assertArrayEquals(data, inputStream.readAllBytes());
+		}
+	}
+}
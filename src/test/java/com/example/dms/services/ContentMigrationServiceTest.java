@@ -0,0 +1,83 @@
+package com.example.dms.services;
+
+import com.example.dms.domain.DmsContent;
+import com.example.dms.services.storage.ContentMigrationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ContentMigrationServiceTest {
+
+	@Mock
+	BlobService blobService;
+
+	EmbeddedDatabase database;
+	JdbcTemplate jdbcTemplate;
+	ContentMigrationService contentMigrationService;
+
+	@BeforeEach
+	void setUp() {
+		database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+		jdbcTemplate = new JdbcTemplate(database);
+		jdbcTemplate.execute("create table dms_content(id int not null primary key, storage_key varchar(64), "
+				+ "content blob, content_type varchar(255))");
+		jdbcTemplate.update("insert into dms_content(id, content, content_type) values (1, ?, 'text/plain')",
+				(Object) "legacy content".getBytes(StandardCharsets.UTF_8));
+		contentMigrationService = new ContentMigrationService(jdbcTemplate, blobService);
+	}
+
+	@AfterEach
+	void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	void testEnsureMigrated() {
+		given(blobService.store(any(InputStream.class), eq("text/plain"))).willReturn("key");
+
+		assertEquals("key", contentMigrationService.ensureMigrated(content()));
+
+		verify(blobService).addReference("key");
+		assertEquals("key", jdbcTemplate.queryForObject("select storage_key from dms_content where id = 1", String.class));
+		assertNull(jdbcTemplate.queryForObject("select content from dms_content where id = 1", byte[].class));
+	}
+
+	@Test
+	void testEnsureMigratedConcurrently() {
+		// the background migration updates the row while the content is being stored
+		given(blobService.store(any(InputStream.class), eq("text/plain"))).will(invocation -> {
+			jdbcTemplate.update("update dms_content set storage_key = 'key', content = null where id = 1");
+			return "key";
+		});
+
+		assertEquals("key", contentMigrationService.ensureMigrated(content()));
+
+		verify(blobService, never()).addReference(anyString());
+	}
+
+	private static DmsContent content() {
+		DmsContent content = DmsContent.builder().contentType("text/plain").build();
+		content.setId(1);
+		return content;
+	}
+}
@@ -0,0 +1,86 @@
+package com.example.dms.services;
+
+import com.example.dms.services.storage.DatabaseContentStore;
+import com.example.dms.services.storage.StagedContent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseContentStoreTest {
+
+	EmbeddedDatabase database;
+	JdbcTemplate jdbcTemplate;
+	DatabaseContentStore store;
+
+	@BeforeEach
+	void setUp() {
+		database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+		jdbcTemplate = new JdbcTemplate(database);
+		jdbcTemplate.execute("create table dms_content_blob(storage_key varchar(64) not null primary key, data blob)");
+		// small chunks so reads span several queries
+		store = new DatabaseContentStore(jdbcTemplate, 8);
+	}
+
+	@AfterEach
+	void tearDown() {
+		database.shutdown();
+	}
+
+	@Test
+	void testStagePublishReadDelete() throws IOException {
+		byte[] data = "some document content".getBytes(StandardCharsets.UTF_8);
+
+		StagedContent staged = store.stage(new ByteArrayInputStream(data));
+		String key = staged.getDigest();
+		assertEquals("59a5c570319cc06e627d0e7c6127f6feba531932830b73abceb5f09952d0a2a8", key);
+		assertEquals(data.length, staged.getSize());
+		assertFalse(store.exists(key));
+
+		store.publish(staged, key);
+		assertTrue(store.exists(key));
+		assertEquals(data.length, store.size(key));
+		try (InputStream inputStream = store.read(key)) {
+			assertArrayEquals(data, inputStream.readAllBytes());
+		}
+
+		store.delete(key);
+		assertFalse(store.exists(key));
+		assertEquals(0, countRows());
+	}
+
+	@Test
+	void testPublishIdenticalContentKeepsSingleCopy() throws IOException {
+		byte[] data = "some document content".getBytes(StandardCharsets.UTF_8);
+		// both uploads staged before either is published, like two concurrent uploads of the same content
+		StagedContent first = store.stage(new ByteArrayInputStream(data));
+		StagedContent second = store.stage(new ByteArrayInputStream(data));
+		String key = first.getDigest();
+
+		store.publish(first, key);
+		store.publish(second, key);
+
+		assertEquals(1, countRows());
+		try (InputStream inputStream = store.read(key)) {
+			assertArrayEquals(data, inputStream.readAllBytes());
+		}
+	}
+
+	private int countRows() {
+		Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dms_content_blob", Integer.class);
+		return count == null ? 0 : count;
+	}
+}
@@ -0,0 +1,56 @@
+package com.example.dms.services;
+
+import com.example.dms.services.storage.FileSystemContentStore;
+import com.example.dms.services.storage.StagedContent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileSystemContentStoreTest {
+
+	@TempDir
+	Path root;
+
+	@Test
+	void testStagePublishReadDelete() throws IOException {
+		FileSystemContentStore store = new FileSystemContentStore(root.toString());
+		byte[] data = "some document content".getBytes(StandardCharsets.UTF_8);
+
+		StagedContent staged = store.stage(new ByteArrayInputStream(data));
+		String key = staged.getDigest();
+		assertEquals("59a5c570319cc06e627d0e7c6127f6feba531932830b73abceb5f09952d0a2a8", key);
+		assertEquals(data.length, staged.getSize());
+		assertFalse(store.exists(key));
+
+		store.publish(staged, key);
+		assertTrue(store.exists(key));
+		assertEquals(data.length, store.size(key));
+		try (InputStream inputStream = store.read(key)) {
+			assertArrayEquals(data, inputStream.readAllBytes());
+		}
+
+		// publishing identical content again keeps a single copy
+		store.publish(store.stage(new ByteArrayInputStream(data)), key);
+		assertTrue(store.exists(key));
+
+		store.delete(key);
+		assertFalse(store.exists(key));
+	}
+
+	@Test
+	void testInvalidKey() throws IOException {
+		FileSystemContentStore store = new FileSystemContentStore(root.toString());
+		assertThrows(IllegalArgumentException.class, () -> store.read("../../etc/passwd"));
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.dms.services;
+
+import com.example.dms.repositories.FolderRepository;
+import com.example.dms.services.search.FolderHierarchy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FolderHierarchyTest {
+
+	@Mock
+	FolderRepository folderRepository;
+
+	@Mock
+	EntityManager entityManager;
+
+	FolderHierarchy folderHierarchy;
+
+	@BeforeEach
+	void setUp() {
+		folderHierarchy = new FolderHierarchy(folderRepository, entityManager);
+	}
+
+	@Test
+	void testTreeIsReused() {
+		given(folderRepository.findParents()).willReturn(List.of(folder(2, 1)));
+
+		assertEquals(Set.of(1, 2), folderHierarchy.withInheritingDescendants(List.of(1)));
+		assertEquals(Set.of(1, 2), folderHierarchy.withAncestors(List.of(2)));
+		verify(folderRepository, times(1)).findParents();
+	}
+
+	@Test
+	void testNotInheritingFolders() {
+		given(folderRepository.findParents()).willReturn(List.of(folder(2, 1), folder(3, 2), folder(4, 1)));
+		given(folderRepository.findNotInheritingIds()).willReturn(List.of(2));
+
+		// the entries of folder 1 stop at folder 2, folder 3 below it inherits from folder 2 only
+		assertEquals(Set.of(1, 4), folderHierarchy.withInheritingDescendants(List.of(1)));
+		assertEquals(Set.of(2, 3), folderHierarchy.withInheritingDescendants(List.of(2)));
+		assertEquals(Set.of(1, 2, 3), folderHierarchy.withAncestors(List.of(3)));
+	}
+
+	@Test
+	void testEvict() {
+		given(folderRepository.findParents()).willReturn(List.of(folder(2, 1)))
+				.willReturn(List.of(folder(2, 1), folder(3, 2)));
+		assertEquals(Set.of(1, 2), folderHierarchy.withInheritingDescendants(List.of(1)));
+
+		folderHierarchy.evict();
+
+		assertEquals(Set.of(1, 2, 3), folderHierarchy.withInheritingDescendants(List.of(1)));
+	}
+
+	@Test
+	void testEvictWhileLoading() {
+		// the folders are read before the eviction, the tree of the old folders must not be reused
+		given(folderRepository.findParents()).will(invocation -> {
+			folderHierarchy.evict();
+			return List.of(folder(2, 1));
+		}).willReturn(List.of(folder(2, 1), folder(3, 2)));
+
+		assertEquals(Set.of(1, 2), folderHierarchy.withInheritingDescendants(List.of(1)));
+		assertEquals(Set.of(1, 2, 3), folderHierarchy.withInheritingDescendants(List.of(1)));
+	}
+
+	private static FolderRepository.FolderParent folder(Integer id, Integer parentId) {
+		return new FolderRepository.FolderParent() {
+			@Override
+			public Integer getId() {
+				return id;
+			}
+
+			@Override
+			public Integer getParentId() {
+				return parentId;
+			}
+		};
+	}
+}
@@ -0,0 +1,112 @@
+package com.example.dms.services;
+
+import com.example.dms.repositories.GroupRepository;
+import com.example.dms.security.AccessVersion;
+import com.example.dms.security.DmsUserDetailsService;
+import com.example.dms.security.PrincipalAuthorityService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class PrincipalAuthorityServiceTest {
+
+	@Mock
+	DmsUserDetailsService userDetailsService;
+
+	@Mock
+	GroupRepository groupRepository;
+
+	AccessVersion accessVersion = new AccessVersion();
+	PrincipalAuthorityService principalAuthorityService;
+
+	@BeforeEach
+	void setUp() {
+		principalAuthorityService = new PrincipalAuthorityService(userDetailsService, groupRepository,
+				new SimpleMeterRegistry(), accessVersion, 100, Duration.ofMinutes(10));
+	}
+
+	@Test
+	void testLookupsAreCached() {
+		given(userDetailsService.loadUserByUsername("admin")).willReturn(user("admin", "ROLE_ADMIN"));
+
+		assertTrue(principalAuthorityService.isAdmin("admin"));
+		assertTrue(principalAuthorityService.isAdmin("admin"));
+		verify(userDetailsService, times(1)).loadUserByUsername("admin");
+	}
+
+	@Test
+	void testGroupIsNotAdmin() {
+		given(groupRepository.existsByIdentifier("group")).willReturn(true);
+
+		assertTrue(principalAuthorityService.get("group").isGroup());
+		assertFalse(principalAuthorityService.isAdmin("group"));
+		verify(userDetailsService, never()).loadUserByUsername("group");
+	}
+
+	@Test
+	void testMissingUsersAreNotCached() {
+		given(userDetailsService.loadUserByUsername("missing")).willThrow(new UsernameNotFoundException("missing"));
+
+		assertThrows(UsernameNotFoundException.class, () -> principalAuthorityService.get("missing"));
+		assertThrows(UsernameNotFoundException.class, () -> principalAuthorityService.get("missing"));
+		verify(userDetailsService, times(2)).loadUserByUsername("missing");
+	}
+
+	@Test
+	void testEvictReloadsAuthorities() {
+		given(userDetailsService.loadUserByUsername("user"))
+				.willReturn(user("user", "ROLE_USER"), user("user", "ROLE_ADMIN"));
+
+		assertFalse(principalAuthorityService.isAdmin("user"));
+		long version = accessVersion.current();
+		principalAuthorityService.evict("user");
+		assertTrue(principalAuthorityService.isAdmin("user"));
+		assertNotEquals(version, accessVersion.current());
+	}
+
+	@Test
+	void testEvictAgainWhenTransactionCompletes() {
+		given(userDetailsService.loadUserByUsername("user"))
+				.willReturn(user("user", "ROLE_USER"), user("user", "ROLE_USER"), user("user", "ROLE_ADMIN"));
+		assertFalse(principalAuthorityService.isAdmin("user"));
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			principalAuthorityService.evict("user");
+			// looked up again before the change is committed
+			assertFalse(principalAuthorityService.isAdmin("user"));
+			long version = accessVersion.current();
+			TransactionSynchronizationManager.getSynchronizations()
+					.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+			assertNotEquals(version, accessVersion.current());
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		assertTrue(principalAuthorityService.isAdmin("user"));
+	}
+
+	private User user(String username, String role) {
+		return new User(username, "password", List.of(new SimpleGrantedAuthority(role)));
+	}
+}
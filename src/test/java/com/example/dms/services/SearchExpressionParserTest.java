@@ -0,0 +1,105 @@
+package com.example.dms.services;
+
+import com.example.dms.services.search.Providable;
+import com.example.dms.services.search.SearchExpression;
+import com.example.dms.services.search.SearchExpressionParser;
+import com.example.dms.services.search.SpecificationBuilder;
+import com.example.dms.utils.exceptions.BadRequestException;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Log4j2
+class SearchExpressionParserTest {
+
+	private static final String NESTED = "parentFolder~eq~013a8144-85cc-4dcb-b484-60cef134d564~and~" +
+			"(immutable~eq~false~and~(objectName~like~se~or~creator~like~se~or~type~like~se~or~description~like~se))";
+
+	@Test
+	void testOperatorsApplyLeftToRight() {
+		assertEquals("((objectName~like~Test3~and~creator~like~user)~or~objectName~like~Test2)",
+				SearchExpressionParser.parseUncached("objectName~like~Test3~and~creator~like~user~or~objectName~like~Test2").toString());
+		assertEquals("((a~eq~1~or~b~eq~2)~and~c~eq~3)",
+				SearchExpressionParser.parseUncached("a~eq~1~OR~b~eq~2~AND~c~eq~3").toString());
+	}
+
+	@Test
+	void testNestedExpression() {
+		SearchExpression expression = SearchExpressionParser.parseUncached(NESTED);
+
+		assertTrue(expression instanceof SearchExpression.Combination);
+		SearchExpression.Criterion folder = (SearchExpression.Criterion) ((SearchExpression.Combination) expression).getLeft();
+		assertEquals("013a8144-85cc-4dcb-b484-60cef134d564", folder.getValue());
+		assertEquals("(parentFolder~eq~013a8144-85cc-4dcb-b484-60cef134d564~and~(immutable~eq~false~and~"
+				+ "(((objectName~like~se~or~creator~like~se)~or~type~like~se)~or~description~like~se)))", expression.toString());
+		assertEquals("id~in~1,2,3", SearchExpressionParser.parseUncached("((id~in~1,2,3))").toString());
+	}
+
+	@Test
+	void testInvalidSearch() {
+		assertThrows(BadRequestException.class, () -> SearchExpressionParser.parseUncached("(a~eq~1"));
+		assertThrows(BadRequestException.class, () -> SearchExpressionParser.parseUncached("a~eq~1)"));
+		assertThrows(BadRequestException.class, () -> SearchExpressionParser.parseUncached("a~eq"));
+		assertThrows(BadRequestException.class, () -> SearchExpressionParser.parseUncached("a~eq~1~xor~b~eq~2"));
+		assertThrows(BadRequestException.class, () -> SearchExpressionParser.parseUncached("objectName~eq~annual report"));
+		assertThrows(BadRequestException.class, () -> SearchExpressionParser.parseUncached("objectName~eq~\"annual"));
+	}
+
+	@Test
+	void testQuotedValues() {
+		assertEquals("annual report", value(SearchExpressionParser.parseUncached("objectName~eq~\"annual report\"")));
+		assertEquals("a~(b)", value(SearchExpressionParser.parseUncached("objectName~eq~\"a~(b)\"")));
+		assertEquals("say \"hi\" \\", value(SearchExpressionParser.parseUncached("objectName~eq~\"say \\\"hi\\\" \\\\\"")));
+		assertEquals("", value(SearchExpressionParser.parseUncached("description~eq~\"\"")));
+
+		SearchExpression expression = SearchExpressionParser.parseUncached("(objectName~eq~\"annual report\")~or~id~eq~1");
+		assertEquals("annual report", value(((SearchExpression.Combination) expression).getLeft()));
+	}
+
+	@Test
+	void testParsedExpressionsAreCached() {
+		assertSame(SearchExpressionParser.parse(NESTED), SearchExpressionParser.parse(" " + NESTED));
+	}
+
+	/**
+	 * Cost of turning nested searches into specifications with the regular expression based builder used before,
+	 * with the parser and with the parser's cache. Run with -Ddms.benchmark=true.
+	 */
+	@Test
+	@EnabledIfSystemProperty(named = "dms.benchmark", matches = "true")
+	void benchmarkParser() {
+		String[] searches = {NESTED, "objectName~like~Test3~and~creator~like~user~or~objectName~like~Test2",
+				"((a~eq~1~or~b~eq~2)~and~(c~eq~3~or~(d~eq~4~and~(e~eq~5~or~f~eq~6))))~or~(g~like~x~and~(h~gt~7~or~i~lt~8))"};
+		Providable<Object> provider = criteria -> (root, query, builder) -> null;
+		SpecificationBuilder<Object> specificationBuilder = new SpecificationBuilder<>(provider);
+		int iterations = 200_000;
+		for (int round = 0; round < 5; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				new LegacySpecificationBuilder<>(provider).parse(searches[i % searches.length]);
+			}
+			long legacy = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				specificationBuilder.build(SearchExpressionParser.parseUncached(searches[i % searches.length]));
+			}
+			long parsed = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int i = 0; i < iterations; i++) {
+				specificationBuilder.parse(searches[i % searches.length]);
+			}
+			long cached = System.nanoTime() - start;
+			log.info("round {}: legacy {} ns, parsed {} ns, cached {} ns per search", round, legacy / iterations,
+					parsed / iterations, cached / iterations);
+		}
+	}
+
+	private static String value(SearchExpression expression) {
+		return ((SearchExpression.Criterion) expression).getValue();
+	}
+}
@@ -0,0 +1,219 @@
+package com.example.dms.services;
+
+import com.example.dms.api.dtos.content.NewUploadSessionDTO;
+import com.example.dms.api.dtos.content.UploadSessionDTO;
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.domain.DmsUploadSession;
+import com.example.dms.repositories.DocumentRepository;
+import com.example.dms.repositories.UploadSessionRepository;
+import com.example.dms.services.impl.UploadSessionServiceImpl;
+import com.example.dms.utils.StorageUtils;
+import com.example.dms.utils.exceptions.BadRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class UploadSessionServiceTest {
+
+	private static final byte[] DATA = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+	@TempDir
+	Path root;
+
+	@Mock
+	UploadSessionRepository uploadSessionRepository;
+
+	@Mock
+	DocumentRepository documentRepository;
+
+	@Mock
+	ContentService contentService;
+
+	@Mock
+	AuthenticationUtil authUtil;
+
+	UploadSessionServiceImpl uploadSessionService;
+	DmsDocument document;
+	Map<String, DmsUploadSession> sessions = new HashMap<>();
+
+	@BeforeEach
+	void setUp() throws IOException {
+		uploadSessionService = new UploadSessionServiceImpl(uploadSessionRepository, documentRepository, contentService,
+				authUtil, root.toString(), DataSize.ofMegabytes(1), Duration.ofHours(1));
+		document = DmsDocument.builder().objectName("upload").build();
+		document.setId(1);
+		lenient().when(authUtil.getUserName()).thenReturn("user");
+		lenient().when(uploadSessionRepository.save(any(DmsUploadSession.class))).then(invocation -> {
+			DmsUploadSession session = invocation.getArgument(0);
+			if (session.getModifyDate() == null) session.setModifyDate(LocalDateTime.now());
+			sessions.put(session.getSessionKey(), session);
+			return session;
+		});
+		lenient().when(uploadSessionRepository.findBySessionKey(anyString()))
+				.then(invocation -> Optional.ofNullable(sessions.get(invocation.getArgument(0, String.class))));
+	}
+
+	@Test
+	void testCreateSession() {
+		UploadSessionDTO session = createSession(8L);
+
+		assertEquals(1, session.getDocumentId());
+		assertEquals(3, session.getChunkCount());
+		assertTrue(session.getReceivedChunks().isEmpty());
+		assertTrue(Files.isDirectory(root.resolve(session.getSessionKey())));
+	}
+
+	@Test
+	void testCreateSessionChunkTooLarge() {
+		given(documentRepository.findById(1)).willReturn(Optional.of(document));
+		NewUploadSessionDTO dto = NewUploadSessionDTO.builder().originalFileName("upload.txt").contentType("text/plain")
+				.totalSize((long) DATA.length).chunkSize(DataSize.ofMegabytes(2).toBytes()).build();
+
+		assertThrows(BadRequestException.class, () -> uploadSessionService.createSession(1, dto));
+	}
+
+	@Test
+	void testUploadChunk() {
+		String key = createSession(8L).getSessionKey();
+
+		UploadSessionDTO session = uploadChunk(key, 0);
+
+		assertEquals(List.of(0), session.getReceivedChunks());
+	}
+
+	@Test
+	void testUploadChunkChecksumMismatch() {
+		String key = createSession(8L).getSessionKey();
+
+		assertThrows(BadRequestException.class, () -> uploadSessionService.uploadChunk(key, 0,
+				StorageUtils.toHex(StorageUtils.newDigest().digest()), new ByteArrayInputStream(chunk(0))));
+		assertTrue(uploadSessionService.getSession(key).getReceivedChunks().isEmpty());
+	}
+
+	@Test
+	void testUploadChunkWrongSize() {
+		String key = createSession(8L).getSessionKey();
+		byte[] data = Arrays.copyOfRange(DATA, 0, 5);
+
+		assertThrows(BadRequestException.class, () -> uploadSessionService.uploadChunk(key, 0, checksum(data),
+				new ByteArrayInputStream(data)));
+	}
+
+	@Test
+	void testUploadChunksOutOfOrder() {
+		String key = createSession(8L).getSessionKey();
+
+		uploadChunk(key, 2);
+		uploadChunk(key, 0);
+
+		assertEquals(List.of(0, 2), uploadSessionService.getSession(key).getReceivedChunks());
+		assertThrows(BadRequestException.class, () -> uploadSessionService.commit(key));
+
+		uploadChunk(key, 1);
+		assertEquals(List.of(0, 1, 2), uploadSessionService.getSession(key).getReceivedChunks());
+	}
+
+	@Test
+	void testCommit() {
+		String key = createSession(8L).getSessionKey();
+		uploadChunk(key, 1);
+		uploadChunk(key, 2);
+		uploadChunk(key, 0);
+		AtomicReference<byte[]> stored = new AtomicReference<>();
+		given(contentService.storeContent(eq(1), any(InputStream.class), eq((long) DATA.length), eq("text/plain"),
+				eq("upload.txt"))).will(invocation -> {
+			stored.set(invocation.getArgument(1, InputStream.class).readAllBytes());
+			return checksum(DATA);
+		});
+
+		uploadSessionService.commit(key);
+
+		assertArrayEquals(DATA, stored.get());
+		verify(uploadSessionRepository).delete(any(DmsUploadSession.class));
+		assertFalse(Files.exists(root.resolve(key)));
+	}
+
+	@Test
+	void testCommitChecksumMismatch() {
+		given(documentRepository.findById(1)).willReturn(Optional.of(document));
+		String key = uploadSessionService.createSession(1, NewUploadSessionDTO.builder().originalFileName("upload.txt")
+				.contentType("text/plain").totalSize((long) DATA.length).chunkSize((long) DATA.length)
+				.checksum(checksum(new byte[0])).build()).getSessionKey();
+		uploadSessionService.uploadChunk(key, 0, checksum(DATA), new ByteArrayInputStream(DATA));
+		given(contentService.storeContent(eq(1), any(InputStream.class), anyLong(), anyString(), anyString()))
+				.willReturn(checksum(DATA));
+
+		assertThrows(BadRequestException.class, () -> uploadSessionService.commit(key));
+		verify(uploadSessionRepository, never()).delete(any(DmsUploadSession.class));
+	}
+
+	@Test
+	void testRemoveExpiredSessions() {
+		String key = createSession(8L).getSessionKey();
+		uploadChunk(key, 0);
+		DmsUploadSession session = sessions.get(key);
+		given(uploadSessionRepository.findAllByModifyDateBefore(any(LocalDateTime.class))).willReturn(List.of(session));
+
+		uploadSessionService.removeExpiredSessions();
+
+		ArgumentCaptor<LocalDateTime> threshold = ArgumentCaptor.forClass(LocalDateTime.class);
+		verify(uploadSessionRepository).findAllByModifyDateBefore(threshold.capture());
+		assertTrue(threshold.getValue().isBefore(LocalDateTime.now().minusMinutes(59)));
+		verify(uploadSessionRepository).delete(session);
+		assertFalse(Files.exists(root.resolve(key)));
+	}
+
+	private UploadSessionDTO createSession(long chunkSize) {
+		given(documentRepository.findById(1)).willReturn(Optional.of(document));
+		return uploadSessionService.createSession(1, NewUploadSessionDTO.builder().originalFileName("upload.txt")
+				.contentType("text/plain").totalSize((long) DATA.length).chunkSize(chunkSize).build());
+	}
+
+	private UploadSessionDTO uploadChunk(String key, int chunkNumber) {
+		byte[] data = chunk(chunkNumber);
+		return uploadSessionService.uploadChunk(key, chunkNumber, checksum(data), new ByteArrayInputStream(data));
+	}
+
+	private static byte[] chunk(int chunkNumber) {
+		return Arrays.copyOfRange(DATA, chunkNumber * 8, Math.min(DATA.length, (chunkNumber + 1) * 8));
+	}
+
+	private static String checksum(byte[] data) {
+		return StorageUtils.toHex(StorageUtils.newDigest().digest(data));
+	}
+}
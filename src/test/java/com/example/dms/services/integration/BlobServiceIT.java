@@ -0,0 +1,153 @@
+package com.example.dms.services.integration;
+
+import com.example.dms.repositories.BlobRepository;
+import com.example.dms.services.BlobService;
+import com.example.dms.services.storage.ContentStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ContextConfiguration
+class BlobServiceIT {
+
+	@Autowired
+	BlobService blobService;
+
+	@Autowired
+	BlobRepository blobRepository;
+
+	@Autowired
+	ContentStore contentStore;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	Random random = new Random();
+
+	@Test
+	void testIdenticalContentIsStoredOnce() throws IOException {
+		byte[] data = randomContent();
+
+		String first = blobService.store(new ByteArrayInputStream(data), "application/octet-stream");
+		String second = blobService.store(new ByteArrayInputStream(data), "application/octet-stream");
+
+		assertEquals(first, second);
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM dms_blob WHERE digest = ?", Integer.class, first));
+		assertTrue(contentStore.exists(first));
+		try (InputStream inputStream = blobService.read(first)) {
+			assertArrayEquals(data, inputStream.readAllBytes());
+		}
+		collect(first);
+	}
+
+	@Test
+	void testReferenceCounting() {
+		String digest = blobService.store(new ByteArrayInputStream(randomContent()), "application/octet-stream");
+		assertEquals(0, blobRepository.readByDigest(digest).orElseThrow().getReferenceCount());
+
+		blobService.addReference(digest);
+		blobService.addReference(digest);
+		assertEquals(2, blobRepository.readByDigest(digest).orElseThrow().getReferenceCount());
+
+		blobService.releaseReference(digest);
+		assertEquals(1, blobRepository.readByDigest(digest).orElseThrow().getReferenceCount());
+
+		blobService.releaseReference(digest);
+		collect(digest);
+	}
+
+	@Test
+	void testGarbageCollection() throws IOException {
+		String referenced = blobService.store(new ByteArrayInputStream(randomContent()), "application/octet-stream");
+		String unreferenced = blobService.store(new ByteArrayInputStream(randomContent()), "application/octet-stream");
+		String recent = blobService.store(new ByteArrayInputStream(randomContent()), "application/octet-stream");
+		blobService.addReference(referenced);
+		age(referenced);
+		age(unreferenced);
+
+		blobService.collectGarbage();
+
+		// unreferenced content is only collected once the grace period passed
+		assertFalse(blobRepository.readByDigest(unreferenced).isPresent());
+		assertFalse(contentStore.exists(unreferenced));
+		assertTrue(blobRepository.readByDigest(referenced).isPresent());
+		assertTrue(contentStore.exists(referenced));
+		assertTrue(blobRepository.readByDigest(recent).isPresent());
+		assertTrue(contentStore.exists(recent));
+
+		blobService.releaseReference(referenced);
+		collect(referenced);
+		collect(recent);
+		assertFalse(blobRepository.readByDigest(referenced).isPresent());
+		assertFalse(contentStore.exists(referenced));
+	}
+
+	@Test
+	void testConcurrentDeltaStoresReferenceBaseOnce() throws Exception {
+		// large enough for a delta smaller than the content
+		byte[] data = new byte[200_000];
+		random.nextBytes(data);
+		String base = blobService.store(new ByteArrayInputStream(data), "application/octet-stream");
+		byte[] version = data.clone();
+		version[100_000] ^= 1;
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			Callable<String> store = () -> {
+				start.await();
+				return blobService.store(new ByteArrayInputStream(version), "application/octet-stream", base);
+			};
+			Future<String> first = executor.submit(store);
+			Future<String> second = executor.submit(store);
+			start.countDown();
+
+			String digest = first.get(30, TimeUnit.SECONDS);
+			assertEquals(digest, second.get(30, TimeUnit.SECONDS));
+			assertEquals(base, blobRepository.readByDigest(digest).orElseThrow().getBaseDigest());
+			// one delta row, one reference on its base
+			assertEquals(1, blobRepository.readByDigest(base).orElseThrow().getReferenceCount());
+
+			collect(digest);
+			collect(base);
+			assertFalse(blobRepository.readByDigest(base).isPresent());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private byte[] randomContent() {
+		byte[] data = new byte[4096];
+		random.nextBytes(data);
+		return data;
+	}
+
+	// moves the last use before the garbage collection grace period
+	private void age(String digest) {
+		jdbcTemplate.update("UPDATE dms_blob SET last_used = ? WHERE digest = ?", LocalDateTime.now().minusDays(1), digest);
+	}
+
+	private void collect(String digest) {
+		age(digest);
+		blobService.collectGarbage();
+	}
+}
@@ -0,0 +1,162 @@
+package com.example.dms.services.integration;
+
+import com.example.dms.api.dtos.document.DmsDocumentDTO;
+import com.example.dms.domain.DmsContent;
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.domain.DmsFolder;
+import com.example.dms.domain.DmsType;
+import com.example.dms.domain.DmsUser;
+import com.example.dms.repositories.ContentRepository;
+import com.example.dms.repositories.DocumentRepository;
+import com.example.dms.repositories.FolderRepository;
+import com.example.dms.repositories.TypeRepository;
+import com.example.dms.repositories.UserRepository;
+import com.example.dms.services.DocumentService;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ContextConfiguration
+@WithMockUser(username = "admin", authorities = {"READ_PRIVILEGE"})
+class DocumentListingIT {
+
+	private static final int DOCUMENT_COUNT = 10_000;
+
+	@Autowired
+	DocumentService documentService;
+
+	@Autowired
+	DocumentRepository documentRepository;
+
+	@Autowired
+	ContentRepository contentRepository;
+
+	@Autowired
+	FolderRepository folderRepository;
+
+	@Autowired
+	TypeRepository typeRepository;
+
+	@Autowired
+	UserRepository userRepository;
+
+	@Autowired
+	EntityManager entityManager;
+
+	@Test
+	@DisplayName("Test content metadata holds no binary data.")
+	void testContentHasNoBinaryAttributes() {
+		for (Attribute<?, ?> attribute : entityManager.getMetamodel().entity(DmsContent.class).getAttributes()) {
+			Class<?> javaType = attribute.getJavaType();
+			assertFalse(javaType == byte[].class || Blob.class.isAssignableFrom(javaType) || Clob.class.isAssignableFrom(javaType),
+					"binary attribute: " + attribute.getName());
+		}
+	}
+
+	@Test
+	@DisplayName("Test listing documents reads content metadata without a query per document.")
+	@Transactional
+	void testListingDocuments() {
+		DmsType type = typeRepository.save(DmsType.builder().typeName("listing-type").build());
+		DmsFolder folder = folderRepository.save(DmsFolder.builder().name("listing").build());
+		DmsUser creator = userRepository.findByUsername("admin").orElseThrow();
+
+		List<DmsDocument> documents = new ArrayList<>();
+		List<DmsContent> contents = new ArrayList<>();
+		for (int i = 0; i < DOCUMENT_COUNT; i++) {
+			DmsDocument document = DmsDocument.builder().objectName("listing " + i).creator(creator).type(type)
+					.parentFolder(folder).build();
+			documents.add(document);
+			contents.add(DmsContent.builder().storageKey("key-" + i).contentSize(100L).contentType("text/plain")
+					.originalFileName("listing-" + i + ".txt").document(document).build());
+		}
+		documentRepository.saveAll(documents);
+		contentRepository.saveAll(contents);
+		entityManager.flush();
+		entityManager.clear();
+
+		StatementCounter statements = countStatements();
+		List<DmsDocumentDTO> listed = documentService.findAll();
+
+		assertTrue(listed.size() >= DOCUMENT_COUNT);
+		DmsDocumentDTO last = listed.stream().filter(dto -> ("listing " + (DOCUMENT_COUNT - 1)).equals(dto.getObjectName()))
+				.findFirst().orElseThrow();
+		assertNotNull(last.getContent());
+		assertEquals("listing-" + (DOCUMENT_COUNT - 1) + ".txt", last.getContent().getOriginalFileName());
+		// one select for the document columns with their content, one for the keywords
+		assertTrue(statements.count <= 2, "statements for listing: " + statements.count);
+	}
+
+	@Test
+	@DisplayName("Test the statements of a search do not grow with the number of listed documents.")
+	@Transactional
+	void testSearchStatementsDoNotGrowWithResultSize() {
+		DmsType type = typeRepository.save(DmsType.builder().typeName("projection-type").build());
+		DmsUser creator = userRepository.findByUsername("admin").orElseThrow();
+
+		List<DmsDocument> documents = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			// a folder per document, loaded entities select each of them
+			DmsFolder folder = folderRepository.save(DmsFolder.builder().name("projection_" + i).build());
+			documents.add(DmsDocument.builder().objectName("projection " + i).creator(creator).type(type)
+					.parentFolder(folder).keywords(new ArrayList<>(List.of("projection", "row " + i))).build());
+		}
+		documentRepository.saveAll(documents);
+		entityManager.flush();
+		entityManager.clear();
+
+		long small = searchStatements(10);
+		long large = searchStatements(100);
+		assertEquals(small, large);
+		assertTrue(large <= 2, "statements for searching: " + large);
+	}
+
+	private long searchStatements(int size) {
+		StatementCounter statements = countStatements();
+		List<DmsDocumentDTO> listed = documentService.searchAll("objectName~like~projection", null, null, size)
+				.getContent();
+		assertEquals(size, listed.size());
+		assertTrue(listed.stream().allMatch(dto -> dto.getKeywords().contains("projection")
+				&& "admin".equals(dto.getCreator().getUsername()) && dto.getParentFolderId() != null));
+		return statements.count;
+	}
+
+	// counts the statements of the test transaction only, the session factory statistics also count the
+	// statements of background tasks left running by other tests
+	private StatementCounter countStatements() {
+		StatementCounter counter = new StatementCounter();
+		entityManager.unwrap(Session.class).addEventListeners(counter);
+		return counter;
+	}
+
+	private static class StatementCounter extends BaseSessionEventListener {
+
+		private static final long serialVersionUID = 1L;
+
+		private long count = 0;
+
+		@Override
+		public void jdbcPrepareStatementStart() {
+			count++;
+		}
+	}
+}
@@ -1,6 +1,10 @@
 package com.example.dms.services.integration;
 
+import com.example.dms.api.dtos.SortDTO;
 import com.example.dms.api.dtos.document.DmsDocumentDTO;
+import com.example.dms.api.dtos.document.FacetCountDTO;
+import com.example.dms.api.dtos.document.KeywordCountDTO;
+import com.example.dms.api.dtos.document.ModifyDocumentDTO;
 import com.example.dms.api.dtos.document.NewDocumentDTO;
 import com.example.dms.domain.DmsDocument;
 import com.example.dms.domain.DmsFolder;
@@ -8,11 +12,16 @@ import com.example.dms.domain.DmsType;
 import com.example.dms.repositories.DocumentRepository;
 import com.example.dms.repositories.FolderRepository;
 import com.example.dms.repositories.TypeRepository;
+import com.example.dms.services.DocumentExportService;
 import com.example.dms.services.DocumentService;
+import com.example.dms.services.search.CursorPage;
 import com.example.dms.services.search.SearchCriteria;
 import com.example.dms.services.search.SpecificationBuilder;
 import com.example.dms.services.search.document.DocumentSpecProvider;
 import com.example.dms.services.search.document.DocumentSpecification;
+import com.example.dms.utils.exceptions.BadRequestException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -20,10 +29,26 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
 @ContextConfiguration
@@ -33,6 +58,12 @@ class DocumentSearchIT {
 	@Autowired
 	DocumentService documentService;
 
+	@Autowired
+	DocumentExportService documentExportService;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
 	@Autowired
 	DocumentRepository documentRepository;
 
@@ -42,6 +73,9 @@ class DocumentSearchIT {
 	@Autowired
 	TypeRepository typeRepository;
 
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
 	DmsDocumentDTO newDocument, newDocument2, newDocument3;
 	DmsType type;
 	String typeName = "testni-tip";
@@ -123,4 +157,206 @@ class DocumentSearchIT {
 
 		assertEquals(3, documentRepository.findAll(spec).size());
 	}
+
+	@Test
+	@DisplayName("Test search values with spaces.")
+	void testQuotedSearchValue() {
+		SpecificationBuilder<DmsDocument> builder = new SpecificationBuilder<>(new DocumentSpecProvider());
+
+		assertEquals(List.of("Test2"), entityNames(builder.parse("description~eq~\"Ovo je test u testu 2\"")));
+		assertThrows(BadRequestException.class, () -> documentService.searchAll("description~eq~Ovo je test", null, null, null));
+	}
+
+	@Test
+	@DisplayName("Test keyset pages of a search.")
+	void testSearchPages() {
+		SortDTO sort = new SortDTO();
+		sort.setActive("object_name");
+		sort.setDirection("asc");
+
+		CursorPage<DmsDocumentDTO> first = documentService.searchAll("type~eq~testni-tip", sort, null, 2);
+		assertEquals(List.of("Test1", "Test2"), names(first));
+		assertNotNull(first.getNext());
+
+		CursorPage<DmsDocumentDTO> second = documentService.searchAll("type~eq~testni-tip", null, first.getNext(), 2);
+		assertEquals(List.of("Test3"), names(second));
+		assertNull(second.getNext());
+	}
+
+	@Test
+	@DisplayName("Test keyset pages of documents with equal sort values.")
+	void testSearchPagesWithTies() {
+		// all documents have the same type, every page boundary falls between equal sort values
+		SortDTO sort = new SortDTO();
+		sort.setActive("type");
+		sort.setDirection("asc");
+		List<Integer> ids = new ArrayList<>();
+		String cursor = null;
+		do {
+			CursorPage<DmsDocumentDTO> page = documentService.searchAll("type~eq~testni-tip", sort, cursor, 1);
+			page.getContent().forEach(dto -> ids.add(dto.getId()));
+			cursor = page.getNext();
+		} while (cursor != null);
+
+		// ties are ordered by id
+		assertEquals(List.of(newDocument.getId(), newDocument2.getId(), newDocument3.getId()), ids);
+	}
+
+	@Test
+	@DisplayName("Test search without size returns pages of the default size.")
+	void testSearchWithoutSize() {
+		// more documents than the default page size
+		DmsDocument existing = documentRepository.findById(newDocument.getId()).orElseThrow();
+		List<DmsDocument> documents = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			documents.add(DmsDocument.builder().objectName("Bulk" + i).creator(existing.getCreator())
+					.type(existing.getType()).parentFolder(existing.getParentFolder()).build());
+		}
+		documentRepository.saveAll(documents);
+
+		CursorPage<DmsDocumentDTO> page = documentService.searchAll("type~eq~testni-tip", null, null, null);
+		assertEquals(100, page.getContent().size());
+		assertNotNull(page.getNext());
+
+		CursorPage<DmsDocumentDTO> rest = documentService.searchAll("type~eq~testni-tip", null, page.getNext(), null);
+		assertEquals(3, rest.getContent().size());
+		assertNull(rest.getNext());
+
+		CursorPage<DmsDocumentDTO> limited = documentService.searchAll("type~eq~testni-tip", null, null, 50);
+		assertEquals(50, limited.getContent().size());
+		assertNotNull(limited.getNext());
+	}
+
+	@Test
+	@DisplayName("Test search by keywords ignores case and matches prefixes.")
+	void testKeywordSearch() {
+		documentService.updateDocument(newDocument.getId(), ModifyDocumentDTO.builder().objectName("Test1")
+				.keywords(List.of(" Finance ", "Audit")).build(), true);
+		documentService.updateDocument(newDocument2.getId(), ModifyDocumentDTO.builder().objectName("Test2")
+				.keywords(List.of("financial")).build(), true);
+		SpecificationBuilder<DmsDocument> builder = new SpecificationBuilder<>(new DocumentSpecProvider());
+
+		assertEquals(List.of("Test1"), entityNames(builder.parse("keywords~eq~FINANCE")));
+		assertEquals(List.of("Test1", "Test2"), entityNames(builder.parse("keywords~like~fin")));
+		assertEquals(List.of("Test1", "Test2"), entityNames(builder.parse("keywords~in~audit,financial")));
+		assertEquals(List.of("Test2", "Test3"), entityNames(builder.parse("type~eq~testni-tip~and~keywords~not_eq~audit")));
+	}
+
+	@Test
+	@DisplayName("Test keyword counts follow keyword changes.")
+	void testKeywordCounts() {
+		documentService.updateDocument(newDocument.getId(), ModifyDocumentDTO.builder().objectName("Test1")
+				.keywords(List.of("KW-Finance", "kw-audit")).build(), true);
+		documentService.updateDocument(newDocument2.getId(), ModifyDocumentDTO.builder().objectName("Test2")
+				.keywords(List.of("kw-finance", "kw-financial")).build(), true);
+
+		assertEquals(List.of(new KeywordCountDTO("kw-finance", 2L), new KeywordCountDTO("kw-audit", 1L),
+				new KeywordCountDTO("kw-financial", 1L)), documentService.getKeywordCounts("kw-", 10));
+		assertEquals(List.of(new KeywordCountDTO("kw-finance", 2L), new KeywordCountDTO("kw-financial", 1L)),
+				documentService.getKeywordCounts("KW-Fin", 10));
+
+		documentService.updateDocument(newDocument.getId(), ModifyDocumentDTO.builder().objectName("Test1")
+				.keywords(List.of("kw-audit")).build(), true);
+		assertEquals(List.of(new KeywordCountDTO("kw-audit", 1L), new KeywordCountDTO("kw-finance", 1L)),
+				documentService.getKeywordCounts("kw-", 2));
+	}
+
+	@Test
+	@DisplayName("Test facet counts of the documents matching a search.")
+	void testFacets() {
+		Map<String, List<FacetCountDTO>> facets = documentService.getFacets("type~eq~" + typeName, null, null);
+
+		assertEquals(List.of("type", "creator", "folder", "month"), new ArrayList<>(facets.keySet()));
+		assertEquals(List.of(new FacetCountDTO(typeName, 3L)), facets.get("type"));
+		assertEquals(List.of(new FacetCountDTO("user", 3L)), facets.get("creator"));
+		assertEquals(List.of(new FacetCountDTO(String.valueOf(newDocument.getParentFolderId()), 3L)),
+				facets.get("folder"));
+		assertEquals(List.of(new FacetCountDTO(YearMonth.now().toString(), 3L)), facets.get("month"));
+
+		assertEquals(Map.of("year", List.of(new FacetCountDTO(String.valueOf(YearMonth.now().getYear()), 2L))),
+				documentService.getFacets("type~eq~" + typeName + "~and~objectName~not_eq~Test1", List.of("year"), 10));
+		List<String> unknown = List.of("color");
+		assertThrows(BadRequestException.class, () -> documentService.getFacets(null, unknown, null));
+	}
+
+	@Test
+	@DisplayName("Test date facets list the newest buckets first.")
+	void testDateFacetsNewestFirst() {
+		LocalDateTime lastYear = LocalDateTime.now().minusYears(1);
+		jdbcTemplate.update("UPDATE dms_document SET creation_date = ? WHERE id = ?", lastYear, newDocument.getId());
+		String search = "type~eq~" + typeName;
+
+		assertEquals(List.of(new FacetCountDTO(YearMonth.now().toString(), 2L),
+				new FacetCountDTO(YearMonth.from(lastYear).toString(), 1L)),
+				documentService.getFacets(search, List.of("month"), null).get("month"));
+		// the size limit keeps the most recent buckets
+		assertEquals(List.of(new FacetCountDTO(String.valueOf(YearMonth.now().getYear()), 2L)),
+				documentService.getFacets(search, List.of("year"), 1).get("year"));
+	}
+
+	@Test
+	@DisplayName("Test search results narrowed to the requested fields.")
+	void testSearchFields() {
+		List<Map<String, Object>> rows = documentService.searchFields("type~eq~" + typeName, null, null, 10,
+				List.of("keywords", "object_name")).getContent();
+
+		assertEquals(3, rows.size());
+		for (Map<String, Object> row : rows) {
+			assertEquals(List.of("id", "object_name", "keywords"), new ArrayList<>(row.keySet()));
+		}
+		List<String> unknown = List.of("password");
+		assertThrows(BadRequestException.class, () -> documentService.searchFields(null, null, null, 10, unknown));
+	}
+
+	@Test
+	@WithMockUser(username = "user",
+			authorities = {"ROLE_USER", "CREATE_PRIVILEGE", "READ_PRIVILEGE", "WRITE_PRIVILEGE"})
+	@DisplayName("Test search results default to the displayed document columns.")
+	void testSearchFieldsDefaultToDisplayedColumns() {
+		List<Map<String, Object>> rows = documentService.searchFields("type~eq~" + typeName, null, null, 10, null)
+				.getContent();
+
+		assertEquals(3, rows.size());
+		assertEquals(List.of("id", "creation_date", "modify_date", "object_name", "description", "parent_folder_id"),
+				new ArrayList<>(rows.get(0).keySet()));
+	}
+
+	@Test
+	@DisplayName("Test exporting the search results as newline delimited json.")
+	void testExport() throws IOException {
+		documentService.updateDocument(newDocument3.getId(), ModifyDocumentDTO.builder().objectName("Test3")
+				.keywords(List.of("exported")).build(), true);
+
+		ResponseEntity<StreamingResponseBody> response = documentExportService.exportDocuments("type~eq~" + typeName,
+				List.of("object_name", "keywords"));
+		ByteArrayOutputStream export = new ByteArrayOutputStream();
+		response.getBody().writeTo(export);
+
+		// the test export is written two rows per batch
+		String[] lines = export.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(3, lines.length);
+		List<String> names = new ArrayList<>();
+		for (String line : lines) {
+			JsonNode row = objectMapper.readTree(line);
+			assertEquals(List.of("id", "object_name", "keywords"), fieldNames(row));
+			names.add(row.get("object_name").asText());
+		}
+		assertEquals(List.of("Test1", "Test2", "Test3"), names);
+		assertEquals("exported", objectMapper.readTree(lines[2]).get("keywords").get(0).asText());
+	}
+
+	private List<String> fieldNames(JsonNode row) {
+		List<String> names = new ArrayList<>();
+		row.fieldNames().forEachRemaining(names::add);
+		return names;
+	}
+
+	private List<String> entityNames(Specification<DmsDocument> specification) {
+		return documentRepository.findAll(specification).stream().map(DmsDocument::getObjectName).sorted()
+				.collect(Collectors.toList());
+	}
+
+	private List<String> names(CursorPage<DmsDocumentDTO> page) {
+		return page.getContent().stream().map(DmsDocumentDTO::getObjectName).collect(Collectors.toList());
+	}
 }
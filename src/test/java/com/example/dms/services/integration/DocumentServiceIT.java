@@ -3,14 +3,18 @@ package com.example.dms.services.integration;
 import com.example.dms.api.dtos.document.DmsDocumentDTO;
 import com.example.dms.api.dtos.document.ModifyDocumentDTO;
 import com.example.dms.api.dtos.document.NewDocumentDTO;
+import com.example.dms.domain.DmsBlob;
 import com.example.dms.domain.DmsDocument;
 import com.example.dms.domain.DmsFolder;
 import com.example.dms.domain.DmsType;
 import com.example.dms.domain.DmsUser;
+import com.example.dms.repositories.BlobRepository;
 import com.example.dms.repositories.DocumentRepository;
 import com.example.dms.repositories.FolderRepository;
 import com.example.dms.repositories.TypeRepository;
 import com.example.dms.repositories.UserRepository;
+import com.example.dms.services.BlobService;
+import com.example.dms.services.ContentService;
 import com.example.dms.services.DocumentService;
 import com.example.dms.utils.exceptions.BadRequestException;
 import org.junit.jupiter.api.AfterEach;
@@ -19,11 +23,19 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +48,15 @@ class DocumentServiceIT {
 	@Autowired
 	DocumentService documentService;
 
+	@Autowired
+	ContentService contentService;
+
+	@Autowired
+	BlobService blobService;
+
+	@Autowired
+	BlobRepository blobRepository;
+
 	@Autowired
 	FolderRepository folderRepository;
 
@@ -127,6 +148,74 @@ class DocumentServiceIT {
 		assertEquals(2, documentService.getAllVersions(newVersion.getRootId()).size());
 	}
 
+	@Test
+	@DisplayName("Test new versions share the content of their predecessor until it is replaced.")
+	void testVersionSharesContent() {
+		byte[] data = "first revision".getBytes(StandardCharsets.UTF_8);
+		String firstKey = contentService.storeContent(newDocument.getId(), new ByteArrayInputStream(data), data.length,
+				"text/plain", "test.txt");
+
+		newVersion = documentService.createNewVersion(newDocument.getId());
+		assertEquals(firstKey, documentRepository.findById(newVersion.getId()).orElseThrow().getContent().getStorageKey());
+		assertEquals(2, blobRepository.readByDigest(firstKey).orElseThrow().getReferenceCount());
+
+		byte[] revision = "second revision".getBytes(StandardCharsets.UTF_8);
+		String secondKey = contentService.storeContent(newVersion.getId(), new ByteArrayInputStream(revision),
+				revision.length, "text/plain", "test.txt");
+
+		assertNotEquals(firstKey, secondKey);
+		assertEquals(firstKey, documentRepository.findById(newDocument.getId()).orElseThrow().getContent().getStorageKey());
+		assertEquals(1, blobRepository.readByDigest(firstKey).orElseThrow().getReferenceCount());
+		assertEquals(1, blobRepository.readByDigest(secondKey).orElseThrow().getReferenceCount());
+	}
+
+	@Test
+	@DisplayName("Test new version content is stored as a delta against its predecessor.")
+	void testVersionStoredAsDelta() throws IOException {
+		byte[] data = new byte[200_000];
+		new Random(1).nextBytes(data);
+		String firstKey = contentService.storeContent(newDocument.getId(), new ByteArrayInputStream(data), data.length,
+				"application/octet-stream", "test.bin");
+
+		newVersion = documentService.createNewVersion(newDocument.getId());
+		byte[] revision = data.clone();
+		revision[100_000] ^= 1;
+		String secondKey = contentService.storeContent(newVersion.getId(), new ByteArrayInputStream(revision),
+				revision.length, "application/octet-stream", "test.bin");
+
+		DmsBlob blob = blobRepository.readByDigest(secondKey).orElseThrow();
+		assertEquals(firstKey, blob.getBaseDigest());
+		assertEquals(1, blob.getChainLength());
+		assertEquals(revision.length, blob.getContentSize());
+		assertTrue(blob.getStoredSize() < revision.length / 10);
+		// referenced by the first version and the delta
+		assertEquals(2, blobRepository.readByDigest(firstKey).orElseThrow().getReferenceCount());
+		try (InputStream inputStream = blobService.read(secondKey)) {
+			assertArrayEquals(revision, inputStream.readAllBytes());
+		}
+	}
+
+	@Test
+	@DisplayName("Test conditional requests for document metadata.")
+	void testConditionalFindById() {
+		ResponseEntity<DmsDocumentDTO> response = documentService.findById(newDocument.getId(), new HttpHeaders());
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		String eTag = response.getHeaders().getETag();
+		assertNotNull(eTag);
+
+		HttpHeaders conditional = new HttpHeaders();
+		conditional.setIfNoneMatch(eTag);
+		response = documentService.findById(newDocument.getId(), conditional);
+		assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+		assertNull(response.getBody());
+
+		updatedDocument = documentService.updateDocument(newDocument.getId(),
+				ModifyDocumentDTO.builder().description("changed").build(), true);
+		response = documentService.findById(newDocument.getId(), conditional);
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertNotEquals(eTag, response.getHeaders().getETag());
+	}
+
 	@Test
 	@DisplayName("Test modifying document with put HTTP request.")
 	void testDocumentPut() {
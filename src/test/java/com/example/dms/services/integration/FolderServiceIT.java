@@ -9,6 +9,10 @@ import com.example.dms.domain.DmsUser;
 import com.example.dms.repositories.DocumentRepository;
 import com.example.dms.repositories.FolderRepository;
 import com.example.dms.repositories.UserRepository;
+import com.example.dms.security.PrincipalAuthorityService;
+import com.example.dms.services.ArchiveService;
+import com.example.dms.services.ContentService;
+import com.example.dms.services.DmsAclService;
 import com.example.dms.services.DocumentService;
 import com.example.dms.services.FolderService;
 import com.example.dms.utils.exceptions.DmsNotFoundException;
@@ -18,13 +22,26 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.acls.domain.BasePermission;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.ContextConfiguration;
-
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -48,6 +65,21 @@ class FolderServiceIT {
 	@Autowired
 	DocumentRepository documentRepository;
 
+	@Autowired
+	ContentService contentService;
+
+	@Autowired
+	ArchiveService archiveService;
+
+	@Autowired
+	DmsAclService aclService;
+
+	@Autowired
+	PrincipalAuthorityService principalAuthorityService;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
 	DmsUser user;
 	DmsFolderDTO folder;
 	DmsFolder folderObject, root;
@@ -151,4 +183,49 @@ class FolderServiceIT {
 		assertDoesNotThrow(() -> folderService.deleteById(folderObject.getId()));
 	}
 
+	@Test
+	@DisplayName("Test listing validator changes when rights or memberships change.")
+	void listingETagTest() {
+		String eTag = folderService.getListingETag();
+		assertEquals(eTag, folderService.getListingETag());
+
+		// granting and revoking leaves the number of acl entries unchanged
+		transactionTemplate.executeWithoutResult(status -> {
+			DmsFolder granted = folderRepository.findById(folder.getId()).orElseThrow();
+			aclService.grantRightsOnObject(granted, "user", List.of(BasePermission.READ));
+			aclService.revokeRightsOnObject(granted, "user", List.of(BasePermission.READ));
+		});
+		String afterGrant = folderService.getListingETag();
+		assertNotEquals(eTag, afterGrant);
+
+		principalAuthorityService.evict("user");
+		assertNotEquals(afterGrant, folderService.getListingETag());
+	}
+
+	@Test
+	@DisplayName("Test downloading a folder subtree as a zip archive.")
+	void downloadFolderTest() throws IOException {
+		DmsDocumentDTO inside = documentService.createDocument(NewDocumentDTO.builder().objectName("Inside")
+				.parentFolderId(subFolder.getId()).type("document").build());
+		try {
+			byte[] first = "first document".getBytes(StandardCharsets.UTF_8);
+			byte[] second = "second document".getBytes(StandardCharsets.UTF_8);
+			contentService.storeContent(newDocument.getId(), new ByteArrayInputStream(first), first.length, "text/plain", "test.txt");
+			contentService.storeContent(inside.getId(), new ByteArrayInputStream(second), second.length, "text/plain", "test.txt");
+
+			ResponseEntity<StreamingResponseBody> response = archiveService.downloadFolder(folder.getId());
+			ByteArrayOutputStream archive = new ByteArrayOutputStream();
+			response.getBody().writeTo(archive);
+
+			Map<String, String> entries = new HashMap<>();
+			try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+				for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+					entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+				}
+			}
+			assertEquals(Map.of("test.txt", "first document", "inside/test.txt", "second document"), entries);
+		} finally {
+			documentRepository.deleteById(inside.getId());
+		}
+	}
 }
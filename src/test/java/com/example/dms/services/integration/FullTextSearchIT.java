@@ -0,0 +1,144 @@
+package com.example.dms.services.integration;
+
+import com.example.dms.api.dtos.document.DmsDocumentDTO;
+import com.example.dms.api.dtos.document.NewDocumentDTO;
+import com.example.dms.domain.DmsFolder;
+import com.example.dms.repositories.DocumentRepository;
+import com.example.dms.repositories.FolderRepository;
+import com.example.dms.services.ContentService;
+import com.example.dms.services.DmsAclService;
+import com.example.dms.services.DocumentService;
+import com.example.dms.services.FullTextSearchService;
+import com.example.dms.utils.exceptions.BadRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.acls.domain.BasePermission;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ContextConfiguration
+@WithUserDetails(value = "admin", userDetailsServiceBeanName = "dmsUserDetailsService")
+class FullTextSearchIT {
+
+	@Autowired
+	FullTextSearchService fullTextSearchService;
+
+	@Autowired
+	DocumentService documentService;
+
+	@Autowired
+	ContentService contentService;
+
+	@Autowired
+	FolderRepository folderRepository;
+
+	@Autowired
+	DocumentRepository documentRepository;
+
+	@Autowired
+	DmsAclService aclService;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	DmsDocumentDTO report;
+	DmsDocumentDTO invoice;
+
+	@BeforeEach
+	void setUp() {
+		DmsFolder root = folderRepository.findByName("/").orElseThrow();
+		report = documentService.createDocument(NewDocumentDTO.builder().objectName("Quarterly report")
+				.description("Numbers of the third quarter").keywords(List.of("finance")).type("document")
+				.parentFolderId(root.getId()).build());
+		invoice = documentService.createDocument(NewDocumentDTO.builder().objectName("Invoice")
+				.description("Invoice for the quarterly audit").type("document").parentFolderId(root.getId()).build());
+	}
+
+	@AfterEach
+	void cleanUp() {
+		documentService.deleteById(report.getId());
+		documentService.deleteById(invoice.getId());
+	}
+
+	@Test
+	@DisplayName("Test full text search ranks name matches first and finds content.")
+	void testSearch() throws InterruptedException {
+		assertEquals(List.of(report.getId(), invoice.getId()), ids(fullTextSearchService.search("quarterly", 10)));
+		assertEquals(List.of(report.getId()), ids(fullTextSearchService.search("finance", 10)));
+
+		byte[] content = "the auditors approved the balance sheet".getBytes(StandardCharsets.UTF_8);
+		contentService.storeContent(invoice.getId(), new ByteArrayInputStream(content), content.length, "text/plain",
+				"audit.txt");
+		assertEquals(List.of(invoice.getId()), awaitHits("balance sheet"));
+	}
+
+	@Test
+	@DisplayName("Test users without the read privilege only find documents they may read.")
+	void testSearchFiltersByAcl() {
+		transactionTemplate.executeWithoutResult(status -> aclService.grantRightsOnObject(
+				documentRepository.findById(invoice.getId()).orElseThrow(), "user", List.of(BasePermission.READ)));
+		List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+		SecurityContext context = SecurityContextHolder.createEmptyContext();
+		context.setAuthentication(new UsernamePasswordAuthenticationToken(new User("user", "", authorities), null,
+				authorities));
+
+		SecurityContext admin = SecurityContextHolder.getContext();
+		SecurityContextHolder.setContext(context);
+		try {
+			assertEquals(List.of(invoice.getId()), ids(fullTextSearchService.search("quarterly", 10)));
+			assertTrue(fullTextSearchService.search("finance", 10).isEmpty());
+		} finally {
+			SecurityContextHolder.setContext(admin);
+		}
+	}
+
+	@Test
+	@DisplayName("Test deleted documents are removed from the index.")
+	void testDeletedDocument() {
+		documentService.deleteById(invoice.getId());
+		assertTrue(fullTextSearchService.search("invoice", 10).isEmpty());
+		invoice = documentService.createDocument(NewDocumentDTO.builder().objectName("Replacement")
+				.type("document").parentFolderId(folderRepository.findByName("/").orElseThrow().getId()).build());
+	}
+
+	@Test
+	@DisplayName("Test invalid queries are rejected.")
+	void testInvalidQuery() {
+		assertThrows(BadRequestException.class, () -> fullTextSearchService.search("name:(unclosed", 10));
+	}
+
+	// the text of stored content is extracted and indexed in the background
+	private List<Integer> awaitHits(String query) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		List<Integer> hits = ids(fullTextSearchService.search(query, 10));
+		while (hits.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+			hits = ids(fullTextSearchService.search(query, 10));
+		}
+		return hits;
+	}
+
+	private List<Integer> ids(List<DmsDocumentDTO> documents) {
+		return documents.stream().map(DmsDocumentDTO::getId).collect(Collectors.toList());
+	}
+}
@@ -1,5 +1,6 @@
 package com.example.dms.services.integration;
 
+import com.example.dms.api.dtos.SortDTO;
 import com.example.dms.api.dtos.group.DmsGroupDTO;
 import com.example.dms.api.dtos.group.NewGroupDTO;
 import com.example.dms.api.dtos.user.DmsUserDTO;
@@ -8,6 +9,7 @@ import com.example.dms.repositories.GroupRepository;
 import com.example.dms.repositories.UserRepository;
 import com.example.dms.services.GroupService;
 import com.example.dms.services.UserService;
+import com.example.dms.services.search.CursorPage;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -21,8 +23,11 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 @SpringBootTest
 @ContextConfiguration
@@ -95,5 +100,36 @@ class GroupServiceIT {
 		assertEquals(2, savedGroup.getMembers().size());
 	}
 
+	@Test
+	@DisplayName("Test keyset pages of groups.")
+	void searchPagesTest() {
+		List<DmsGroupDTO> created = new ArrayList<>();
+		try {
+			for (int i = 1; i <= 3; i++) {
+				created.add(groupService.createGroup(NewGroupDTO.builder().groupName("PAGED" + i).identifier("PAGED" + i)
+						.description("paged group").build()));
+			}
+			SortDTO sort = new SortDTO();
+			sort.setActive("group_name");
+			sort.setDirection("asc");
+
+			CursorPage<DmsGroupDTO> first = groupService.searchAll("groupName~like~PAGED", sort, null, 2);
+			assertEquals(List.of("PAGED1", "PAGED2"), groupNames(first));
+			assertNotNull(first.getNext());
+
+			CursorPage<DmsGroupDTO> second = groupService.searchAll("groupName~like~PAGED", null, first.getNext(), 2);
+			assertEquals(List.of("PAGED3"), groupNames(second));
+			assertNull(second.getNext());
+
+			CursorPage<DmsGroupDTO> all = groupService.searchAll("groupName~like~PAGED", sort, null, null);
+			assertEquals(List.of("PAGED1", "PAGED2", "PAGED3"), groupNames(all));
+			assertNull(all.getNext());
+		} finally {
+			created.forEach(dto -> groupRepository.deleteById(dto.getId()));
+		}
+	}
 
+	private List<String> groupNames(CursorPage<DmsGroupDTO> page) {
+		return page.getContent().stream().map(DmsGroupDTO::getGroupName).collect(Collectors.toList());
+	}
 }
@@ -0,0 +1,119 @@
+package com.example.dms.services.integration;
+
+import com.example.dms.api.dtos.document.DmsDocumentDTO;
+import com.example.dms.api.dtos.document.NewDocumentDTO;
+import com.example.dms.domain.DmsExtractedText;
+import com.example.dms.domain.DmsExtractedText.Status;
+import com.example.dms.repositories.ExtractedTextRepository;
+import com.example.dms.repositories.FolderRepository;
+import com.example.dms.services.ContentService;
+import com.example.dms.services.DocumentService;
+import com.example.dms.services.TextExtractionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ContextConfiguration
+@WithUserDetails(value = "admin", userDetailsServiceBeanName = "dmsUserDetailsService")
+class TextExtractionIT {
+
+	@Autowired
+	TextExtractionService textExtractionService;
+
+	@Autowired
+	ExtractedTextRepository extractedTextRepository;
+
+	@Autowired
+	DocumentService documentService;
+
+	@Autowired
+	ContentService contentService;
+
+	@Autowired
+	FolderRepository folderRepository;
+
+	DmsDocumentDTO document;
+
+	@BeforeEach
+	void setUp() {
+		document = documentService.createDocument(NewDocumentDTO.builder().objectName("Extraction").type("document")
+				.parentFolderId(folderRepository.findByName("/").orElseThrow().getId()).build());
+	}
+
+	@AfterEach
+	void cleanUp() {
+		documentService.deleteById(document.getId());
+	}
+
+	@Test
+	@DisplayName("Test the text of uploaded content is extracted in the background.")
+	void testExtraction() throws InterruptedException {
+		String text = "minutes of the meeting " + UUID.randomUUID();
+		String storageKey = store(text.getBytes(StandardCharsets.UTF_8), "text/plain");
+
+		DmsExtractedText extracted = awaitStatus(storageKey, Status.DONE);
+		assertTrue(extracted.getText().contains(text));
+		assertEquals(1, extracted.getAttempts());
+	}
+
+	@Test
+	@DisplayName("Test failed extractions are retried until the maximum number of attempts.")
+	void testFailedExtraction() throws InterruptedException {
+		String storageKey = store(("%PDF-1.4\nbroken " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8),
+				"application/pdf");
+
+		DmsExtractedText extracted = awaitStatus(storageKey, Status.FAILED);
+		assertEquals(2, extracted.getAttempts());
+		assertNotNull(extracted.getError());
+	}
+
+	@Test
+	@DisplayName("Test content types without text are not extracted.")
+	void testUnsupportedContentType() {
+		String storageKey = store(UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8), "image/png");
+
+		assertTrue(extractedTextRepository.readByStorageKey(storageKey).isEmpty());
+	}
+
+	@Test
+	@DisplayName("Test stored content is extracted again in bulk.")
+	void testRequestAll() throws InterruptedException {
+		String text = "content stored before the upgrade " + UUID.randomUUID();
+		String storageKey = store(text.getBytes(StandardCharsets.UTF_8), "text/plain");
+		extractedTextRepository.delete(awaitStatus(storageKey, Status.DONE));
+
+		assertTrue(textExtractionService.requestAll(false) > 0);
+		assertTrue(awaitStatus(storageKey, Status.DONE).getText().contains(text));
+	}
+
+	private String store(byte[] content, String contentType) {
+		return contentService.storeContent(document.getId(), new ByteArrayInputStream(content), content.length,
+				contentType, "content");
+	}
+
+	private DmsExtractedText awaitStatus(String storageKey, Status status) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 20_000;
+		DmsExtractedText extracted = extractedTextRepository.readByStorageKey(storageKey).orElse(null);
+		while ((extracted == null || extracted.getStatus() != status) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+			extracted = extractedTextRepository.readByStorageKey(storageKey).orElse(null);
+		}
+		assertNotNull(extracted);
+		assertEquals(status, extracted.getStatus());
+		return extracted;
+	}
+}
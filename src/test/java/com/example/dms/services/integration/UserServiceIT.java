@@ -1,11 +1,13 @@
 package com.example.dms.services.integration;
 
+import com.example.dms.api.dtos.SortDTO;
 import com.example.dms.api.dtos.user.DmsUserDTO;
 import com.example.dms.api.dtos.user.NewUserDTO;
 import com.example.dms.api.dtos.user.UpdateUserDTO;
 import com.example.dms.domain.DmsUser;
 import com.example.dms.repositories.UserRepository;
 import com.example.dms.services.UserService;
+import com.example.dms.services.search.CursorPage;
 import com.example.dms.utils.exceptions.DmsNotFoundException;
 import com.example.dms.utils.exceptions.UniqueConstraintViolatedException;
 import org.junit.jupiter.api.AfterEach;
@@ -17,10 +19,14 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ContextConfiguration;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
@@ -101,6 +107,35 @@ class UserServiceIT {
 		assertThrows(DmsNotFoundException.class, () -> userService.findByEmail("test"));
 	}
 
+	@Test
+	@DisplayName("Test keyset pages of users.")
+	void searchPagesTest() {
+		List<DmsUserDTO> created = new ArrayList<>();
+		try {
+			for (int i = 1; i <= 3; i++) {
+				created.add(userService.createUser(new NewUserDTO("pageduser" + i, "12345", "test", "test",
+						"paged" + i + ".test@gmail.com", "ROLE_USER", List.of("READ_PRIVILEGE"))));
+			}
+			SortDTO sort = new SortDTO();
+			sort.setActive("username");
+			sort.setDirection("desc");
+
+			CursorPage<DmsUserDTO> first = userService.searchAll("username~like~pageduser", sort, null, 2);
+			assertEquals(List.of("pageduser3", "pageduser2"), usernames(first));
+			assertNotNull(first.getNext());
+
+			CursorPage<DmsUserDTO> second = userService.searchAll("username~like~pageduser", null, first.getNext(), 2);
+			assertEquals(List.of("pageduser1"), usernames(second));
+			assertNull(second.getNext());
+
+			CursorPage<DmsUserDTO> all = userService.searchAll("username~like~pageduser", sort, null, null);
+			assertEquals(List.of("pageduser3", "pageduser2", "pageduser1"), usernames(all));
+			assertNull(all.getNext());
+		} finally {
+			created.forEach(dto -> userRepository.deleteById(dto.getId()));
+		}
+	}
+
 	@Test
 	void testEquals() {
 		DmsUser byUsername = userRepository.findByUsername(user.getUsername()).orElse(null);
@@ -115,4 +150,8 @@ class UserServiceIT {
 		assert test2 != null;
 		assertNotEquals(byUsername, test2);
 	}
+
+	private List<String> usernames(CursorPage<DmsUserDTO> page) {
+		return page.getContent().stream().map(DmsUserDTO::getUsername).collect(Collectors.toList());
+	}
 }
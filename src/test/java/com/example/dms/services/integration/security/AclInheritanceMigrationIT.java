@@ -0,0 +1,173 @@
+package com.example.dms.services.integration.security;
+
+import com.example.dms.api.dtos.document.NewDocumentDTO;
+import com.example.dms.api.dtos.folder.DmsFolderDTO;
+import com.example.dms.api.dtos.folder.NewFolderDTO;
+import com.example.dms.domain.DmsDocument;
+import com.example.dms.domain.DmsFolder;
+import com.example.dms.repositories.DocumentRepository;
+import com.example.dms.repositories.FolderRepository;
+import com.example.dms.security.configuration.acl.AclInheritanceMigration;
+import com.example.dms.services.DmsAclService;
+import com.example.dms.services.DocumentService;
+import com.example.dms.services.FolderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.acls.domain.BasePermission;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.jdbc.JdbcMutableAclService;
+import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ContextConfiguration
+class AclInheritanceMigrationIT {
+
+	@Autowired
+	AclInheritanceMigration aclInheritanceMigration;
+
+	@Autowired
+	JdbcMutableAclService aclService;
+
+	@Autowired
+	DmsAclService dmsAclService;
+
+	@Autowired
+	FolderService folderService;
+
+	@Autowired
+	DocumentService documentService;
+
+	@Autowired
+	FolderRepository folderRepository;
+
+	@Autowired
+	DocumentRepository documentRepository;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	@Test
+	@WithMockUser(username = "admin", authorities = {"ROLE_ADMIN", "CREATE_PRIVILEGE"})
+	void testMigrationKeepsEffectiveAccess() {
+		DmsFolder root = folderRepository.findByName("/").orElseThrow();
+		DmsFolderDTO granted = folderService.createFolder(NewFolderDTO.builder().name("migrated")
+				.parentFolderId(root.getId()).rootFolder(true).build());
+		DmsFolderDTO inner = folderService.createFolder(NewFolderDTO.builder().name("inner")
+				.parentFolderId(granted.getId()).build());
+		Integer collapsedId = createDocument("Collapsed", inner.getId());
+		Integer ownId = createDocument("Owned", inner.getId());
+		ObjectIdentity grantedFolder = new ObjectIdentityImpl(DmsFolder.class, granted.getId());
+		ObjectIdentity innerFolder = new ObjectIdentityImpl(DmsFolder.class, inner.getId());
+		ObjectIdentity collapsed = new ObjectIdentityImpl(DmsDocument.class, collapsedId);
+		ObjectIdentity own = new ObjectIdentityImpl(DmsDocument.class, ownId);
+		try {
+			// acls as they were written before: not linked, every object granted by its own entries only
+			transactionTemplate.executeWithoutResult(status -> {
+				unlink(grantedFolder, List.of(BasePermission.WRITE), List.of(BasePermission.READ));
+				unlink(innerFolder, List.of(BasePermission.WRITE, BasePermission.READ), List.of(BasePermission.READ));
+				unlink(collapsed, List.of(BasePermission.READ, BasePermission.WRITE), List.of(BasePermission.READ));
+				// READ only, the folders above grant more than the document had
+				unlink(own, List.of(BasePermission.READ), List.of());
+			});
+
+			aclInheritanceMigration.migrate();
+
+			assertEquals(new ObjectIdentityImpl(DmsFolder.class, root.getId()),
+					aclService.readAclById(grantedFolder).getParentAcl().getObjectIdentity());
+			assertEquals(grantedFolder, aclService.readAclById(innerFolder).getParentAcl().getObjectIdentity());
+			assertEquals(innerFolder, aclService.readAclById(collapsed).getParentAcl().getObjectIdentity());
+			assertEquals(innerFolder, aclService.readAclById(own).getParentAcl().getObjectIdentity());
+
+			// entries held on the folder above are inherited instead
+			assertTrue(aclService.readAclById(innerFolder).isEntriesInheriting());
+			assertEquals(List.of(BasePermission.READ), permissions(aclService.readAclById(innerFolder), "user"));
+			assertEquals(List.of(), permissions(aclService.readAclById(innerFolder), "tester"));
+			assertTrue(aclService.readAclById(collapsed).isEntriesInheriting());
+			assertEquals(List.of(), permissions(aclService.readAclById(collapsed), "user"));
+			assertEquals(List.of(), permissions(aclService.readAclById(collapsed), "tester"));
+			// inheriting would grant more, the acl keeps its own entries only
+			assertFalse(aclService.readAclById(own).isEntriesInheriting());
+			assertEquals(List.of(BasePermission.READ), permissions(aclService.readAclById(own), "user"));
+
+			// granted what they were granted before, by the evaluator and by queries
+			assertTrue(isGranted(collapsed, "user", BasePermission.WRITE));
+			assertTrue(isGranted(collapsed, "tester", BasePermission.READ));
+			assertTrue(isGranted(own, "user", BasePermission.READ));
+			assertFalse(isGranted(own, "user", BasePermission.WRITE));
+			assertFalse(isGranted(own, "tester", BasePermission.READ));
+			assertEquals(Set.of(collapsedId), grantedDocumentIds("user", BasePermission.WRITE, collapsedId, ownId));
+			assertEquals(Set.of(collapsedId), grantedDocumentIds("tester", BasePermission.READ, collapsedId, ownId));
+			assertEquals(Set.of(collapsedId, ownId), grantedDocumentIds("user", BasePermission.READ, collapsedId, ownId));
+		} finally {
+			documentService.deleteById(collapsedId);
+			documentService.deleteById(ownId);
+			folderService.deleteFolder(inner.getId());
+			folderService.deleteFolder(granted.getId());
+		}
+	}
+
+	private Integer createDocument(String name, Integer folderId) {
+		return documentService.createDocument(NewDocumentDTO.builder().objectName(name)
+				.description("Granted before acls were inherited").type("document").parentFolderId(folderId).build())
+				.getId();
+	}
+
+	// replaces the entries with the ones of user and tester
+	private void unlink(ObjectIdentity identity, List<Permission> userPermissions, List<Permission> testerPermissions) {
+		MutableAcl acl = (MutableAcl) aclService.readAclById(identity);
+		acl.setParent(null);
+		while (!acl.getEntries().isEmpty()) {
+			acl.deleteAce(0);
+		}
+		userPermissions.forEach(permission -> acl.insertAce(acl.getEntries().size(), permission,
+				new PrincipalSid("user"), true));
+		testerPermissions.forEach(permission -> acl.insertAce(acl.getEntries().size(), permission,
+				new PrincipalSid("tester"), true));
+		aclService.updateAcl(acl);
+	}
+
+	private List<Permission> permissions(Acl acl, String principal) {
+		return acl.getEntries().stream().filter(entry -> entry.getSid().equals(new PrincipalSid(principal)))
+				.map(AccessControlEntry::getPermission).collect(Collectors.toList());
+	}
+
+	private boolean isGranted(ObjectIdentity identity, String principal, Permission permission) {
+		try {
+			return aclService.readAclById(identity).isGranted(List.of(permission),
+					List.of(new PrincipalSid(principal)), false);
+		} catch (NotFoundException e) {
+			return false;
+		}
+	}
+
+	private Set<Integer> grantedDocumentIds(String principal, Permission permission, Integer... documentIds) {
+		List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+		Authentication authentication = new UsernamePasswordAuthenticationToken(new User(principal, "", authorities),
+				null, authorities);
+		Set<Integer> ids = Set.of(documentIds);
+		return documentRepository.findAll(dmsAclService.grantedSpecification(DmsDocument.class, authentication,
+				permission)).stream().map(DmsDocument::getId).filter(ids::contains).collect(Collectors.toSet());
+	}
+}
@@ -1,37 +1,60 @@
 package com.example.dms.services.integration.security;
 
 import com.example.dms.api.dtos.document.DmsDocumentDTO;
+import com.example.dms.api.dtos.document.FacetCountDTO;
+import com.example.dms.api.dtos.document.KeywordCountDTO;
 import com.example.dms.api.dtos.document.ModifyDocumentDTO;
 import com.example.dms.api.dtos.document.NewDocumentDTO;
+import com.example.dms.api.dtos.folder.DmsFolderDTO;
+import com.example.dms.api.dtos.folder.NewFolderDTO;
 import com.example.dms.domain.DmsDocument;
 import com.example.dms.domain.DmsFolder;
 import com.example.dms.repositories.DocumentRepository;
 import com.example.dms.repositories.FolderRepository;
+import com.example.dms.security.configuration.acl.CustomBasePermission;
+import com.example.dms.security.configuration.acl.DmsAclPermissionEvaluator;
 import com.example.dms.services.DmsAclService;
 import com.example.dms.services.DocumentService;
+import com.example.dms.services.FolderService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import lombok.extern.log4j.Log4j2;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.acls.domain.BasePermission;
 import org.springframework.security.acls.domain.ObjectIdentityImpl;
 import org.springframework.security.acls.domain.PrincipalSid;
 import org.springframework.security.acls.jdbc.JdbcMutableAclService;
+import org.springframework.security.acls.model.AclCache;
 import org.springframework.security.acls.model.MutableAcl;
 import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.Serializable;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 @ContextConfiguration
+@Log4j2
 class SecurityAclIT {
 
 	@Autowired
@@ -39,6 +62,9 @@ class SecurityAclIT {
 
 	@Autowired
 	DmsAclService dmsAclService;
+
+	@Autowired
+	FolderService folderService;
 	
 	@Autowired
 	DocumentRepository documentRepository;
@@ -49,6 +75,15 @@ class SecurityAclIT {
 	@Autowired
 	FolderRepository folderRepository;
 
+	@Autowired
+	PermissionEvaluator permissionEvaluator;
+
+	@Autowired
+	AclCache aclCache;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
 	DmsDocumentDTO newDocument;
 	DmsDocument doc;
 	private final String username = "tester";
@@ -132,4 +167,191 @@ class SecurityAclIT {
 		
 		assertThrows(NotFoundException.class, () -> aclService.readAclById(new ObjectIdentityImpl(doc)));
 	}
+
+	@Test
+	@WithMockUser(username = username, roles = "USER", authorities = "CREATE_PRIVILEGE")
+	void testSearchReturnsOnlyReadableDocuments() {
+		assertTrue(documentService.searchAll(null, null, null, 1000).getContent().stream()
+				.anyMatch(dto -> dto.getId().equals(newDocument.getId())));
+		assertEquals(1, documentService.getAllVersions(newDocument.getRootId()).size());
+
+		dmsAclService.revokeRightsOnObject(doc, (new PrincipalSid(username)), List.of(BasePermission.READ));
+
+		assertTrue(documentService.searchAll(null, null, null, 1000).getContent().stream()
+				.noneMatch(dto -> dto.getId().equals(newDocument.getId())));
+		assertTrue(documentService.getAllVersions(newDocument.getRootId()).isEmpty());
+	}
+
+	@Test
+	@WithMockUser(username = username, roles = "USER", authorities = "CREATE_PRIVILEGE")
+	void testKeywordCountsOnlyCountReadableDocuments() {
+		documentService.updateDocument(newDocument.getId(), ModifyDocumentDTO.builder().objectName("TestTest")
+				.keywords(List.of("Confidential")).build(), true);
+		assertEquals(List.of(new KeywordCountDTO("confidential", 1L)), documentService.getKeywordCounts("conf", 10));
+
+		dmsAclService.revokeRightsOnObject(doc, (new PrincipalSid(username)), List.of(BasePermission.READ));
+
+		assertTrue(documentService.getKeywordCounts("conf", 10).isEmpty());
+	}
+
+	@Test
+	@WithMockUser(username = username, roles = "USER", authorities = "CREATE_PRIVILEGE")
+	void testFacetsOnlyCountReadableDocuments() {
+		String search = "objectName~eq~TestTest";
+		assertEquals(List.of(new FacetCountDTO(username, 1L)),
+				documentService.getFacets(search, List.of("creator"), null).get("creator"));
+
+		dmsAclService.revokeRightsOnObject(doc, (new PrincipalSid(username)), List.of(BasePermission.READ));
+
+		assertTrue(documentService.getFacets(search, List.of("creator"), null).get("creator").isEmpty());
+	}
+
+	@Test
+	@WithMockUser(username = username, roles = "USER", authorities = "CREATE_PRIVILEGE")
+	void testCopyKeepsRightsOfOriginal() {
+		dmsAclService.grantRightsOnObject(doc, "user", List.of(BasePermission.READ));
+		DmsFolder root = folderRepository.findByName("/").orElseThrow();
+		DmsDocumentDTO copyDTO = documentService.copyDocuments(root.getId(), List.of(doc.getId())).get(0);
+		DmsDocument copy = documentRepository.findById(copyDTO.getId()).orElseThrow();
+		try {
+			assertTrue(dmsAclService.hasRight(copy, username, List.of(CustomBasePermission.VERSION)));
+			assertTrue(dmsAclService.hasRight(copy, "user", List.of(BasePermission.READ)));
+			assertFalse(dmsAclService.hasRight(copy, "user", List.of(BasePermission.WRITE)));
+			assertEquals(dmsAclService.getRights(doc).size(), dmsAclService.getRights(copy).size());
+
+			// entries written in batches are read and changed by the acl service like any other
+			dmsAclService.revokeRightsOnObject(copy, "user", List.of(BasePermission.READ));
+			assertFalse(dmsAclService.hasRight(copy, "user", List.of(BasePermission.READ)));
+		} finally {
+			dmsAclService.removeEntriesOnDelete(copy);
+			documentRepository.deleteById(copy.getId());
+		}
+	}
+
+	@Test
+	@WithMockUser(username = username, roles = "USER", authorities = "CREATE_PRIVILEGE")
+	void testCollectionPermissionRequiresEveryObject() {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		DmsAclPermissionEvaluator evaluator = (DmsAclPermissionEvaluator) permissionEvaluator;
+		String type = DmsDocument.class.getName();
+
+		assertTrue(evaluator.hasPermission(List.of(newDocument.getId()), type, "CREATE", authentication));
+		// an object without an acl is not granted
+		assertFalse(evaluator.hasPermission(List.of(newDocument.getId(), -1), type, "CREATE", authentication));
+
+		dmsAclService.revokeRightsOnObject(doc, (new PrincipalSid(username)), List.of(BasePermission.CREATE));
+
+		assertFalse(evaluator.hasPermission(List.of(newDocument.getId()), type, "CREATE", authentication));
+		assertTrue(evaluator.hasPermission(List.of(newDocument.getId()), type, "READ", authentication));
+	}
+
+	@Test
+	@WithMockUser(username = username, roles = "USER", authorities = "CREATE_PRIVILEGE")
+	void testFolderRightsAreInherited() {
+		DmsFolder root = folderRepository.findByName("/").orElseThrow();
+		DmsFolderDTO parent = folderService.createFolder(NewFolderDTO.builder().name("inherit")
+				.parentFolderId(root.getId()).rootFolder(true).build());
+		DmsFolderDTO child = folderService.createFolder(NewFolderDTO.builder().name("inside")
+				.parentFolderId(parent.getId()).build());
+		DmsDocument inherited = documentRepository.findById(documentService.createDocument(NewDocumentDTO.builder()
+				.objectName("Inherited").description("Inherits the folder rights").type("document")
+				.parentFolderId(child.getId()).build()).getId()).orElseThrow();
+		try {
+			List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+			Authentication user = new UsernamePasswordAuthenticationToken(new User("user", "", authorities), null,
+					authorities);
+			assertFalse(dmsAclService.hasRight(inherited, "user", List.of(BasePermission.READ)));
+			assertTrue(readableDocumentIds(user).stream().noneMatch(inherited.getId()::equals));
+
+			transactionTemplate.executeWithoutResult(status -> dmsAclService.grantRightsOnObject(
+					folderRepository.findById(parent.getId()).orElseThrow(), "user", List.of(BasePermission.READ)));
+
+			assertTrue(dmsAclService.hasRight(inherited, "user", List.of(BasePermission.READ)));
+			assertFalse(dmsAclService.hasRight(inherited, "user", List.of(BasePermission.WRITE)));
+			assertTrue(permissionEvaluator.hasPermission(user, child.getId(), DmsFolder.class.getName(), "READ"));
+			assertTrue(readableDocumentIds(user).contains(inherited.getId()));
+			// nothing is copied to the folders and documents below
+			assertTrue(dmsAclService.getRights(inherited).stream().noneMatch(grant -> grant.getUsername().equals("user")));
+		} finally {
+			documentService.deleteById(inherited.getId());
+			folderService.deleteFolder(parent.getId());
+		}
+	}
+
+	@Test
+	@WithMockUser(username = username, roles = "USER", authorities = "CREATE_PRIVILEGE")
+	void testOwnRightRemainsWhenFolderRightIsRevoked() {
+		DmsFolder root = folderRepository.findByName("/").orElseThrow();
+		DmsFolderDTO parent = folderService.createFolder(NewFolderDTO.builder().name("revoke")
+				.parentFolderId(root.getId()).rootFolder(true).build());
+		DmsDocument granted = documentRepository.findById(documentService.createDocument(NewDocumentDTO.builder()
+				.objectName("Granted").description("Granted on the folder and on itself").type("document")
+				.parentFolderId(parent.getId()).build()).getId()).orElseThrow();
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				dmsAclService.grantRightsOnObject(folderRepository.findById(parent.getId()).orElseThrow(), "user",
+						List.of(BasePermission.READ));
+				// already inherited from the folder, the document gets an entry of its own all the same
+				dmsAclService.grantRightsOnObject(granted, "user", List.of(BasePermission.READ));
+			});
+			assertTrue(dmsAclService.getRights(granted).stream().anyMatch(grant -> grant.getUsername().equals("user")));
+
+			transactionTemplate.executeWithoutResult(status -> dmsAclService.revokeRightsOnObject(
+					folderRepository.findById(parent.getId()).orElseThrow(), "user", List.of(BasePermission.READ)));
+
+			assertTrue(dmsAclService.hasRight(granted, "user", List.of(BasePermission.READ)));
+		} finally {
+			documentService.deleteById(granted.getId());
+			folderService.deleteFolder(parent.getId());
+		}
+	}
+
+	private List<Integer> readableDocumentIds(Authentication authentication) {
+		return documentRepository.findAll(dmsAclService.grantedSpecification(DmsDocument.class, authentication,
+				BasePermission.READ)).stream().map(DmsDocument::getId).collect(Collectors.toList());
+	}
+
+	/**
+	 * Collection permission checks of 1k and 10k objects, one object at a time and in one batch, the acl cache is
+	 * cleared before every check. Run with -Ddms.benchmark=true.
+	 */
+	@Test
+	@WithMockUser(username = username, roles = "USER", authorities = "CREATE_PRIVILEGE")
+	@EnabledIfSystemProperty(named = "dms.benchmark", matches = "true")
+	void benchmarkCollectionPermission() {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		DmsAclPermissionEvaluator evaluator = (DmsAclPermissionEvaluator) permissionEvaluator;
+		String type = DmsDocument.class.getName();
+		// ids far above the ids of the test documents
+		List<Object> ids = IntStream.range(1_000_000, 1_010_000).boxed().collect(Collectors.toList());
+		transactionTemplate.executeWithoutResult(status -> ids.forEach(id -> {
+			MutableAcl acl = aclService.createAcl(new ObjectIdentityImpl(type, (Serializable) id));
+			acl.insertAce(0, BasePermission.CREATE, new PrincipalSid(username), true);
+			aclService.updateAcl(acl);
+		}));
+		try {
+			for (int size : new int[]{1_000, 10_000}) {
+				List<Object> batch = ids.subList(0, size);
+				for (int round = 0; round < 3; round++) {
+					aclCache.clearCache();
+					long start = System.nanoTime();
+					for (Object id : batch) {
+						assertTrue(evaluator.hasPermission(authentication, (Serializable) id, type, "CREATE"));
+					}
+					long single = System.nanoTime() - start;
+					aclCache.clearCache();
+					start = System.nanoTime();
+					assertTrue(evaluator.hasPermission(batch, type, "CREATE", authentication));
+					long batched = System.nanoTime() - start;
+					log.info("{} ids, round {}: one at a time {} ms, batched {} ms", size, round, single / 1_000_000,
+							batched / 1_000_000);
+				}
+			}
+		} finally {
+			transactionTemplate.executeWithoutResult(status -> ids.forEach(id -> {
+				ObjectIdentity identity = new ObjectIdentityImpl(type, (Serializable) id);
+				aclService.deleteAcl(identity, true);
+			}));
+		}
+	}
 }